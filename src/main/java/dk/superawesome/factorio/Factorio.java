@@ -6,6 +6,9 @@ import dk.superawesome.factorio.listeners.*;
 import dk.superawesome.factorio.mechanics.*;
 import dk.superawesome.factorio.mechanics.db.DatabaseConnection;
 import dk.superawesome.factorio.mechanics.db.MechanicController;
+import dk.superawesome.factorio.mechanics.routes.RouteDiscovery;
+import dk.superawesome.factorio.mechanics.routes.RouteStore;
+import dk.superawesome.factorio.recipes.RecipeIndex;
 import dk.superawesome.factorio.util.Tick;
 import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
@@ -30,6 +33,8 @@ public final class Factorio extends JavaPlugin implements Listener {
     private final MechanicSerializer mechanicSerializer = new MechanicSerializer();
     private MechanicStorageContext.Provider contextProvider;
     private MechanicController mechanicController;
+    private MechanicLoader mechanicLoader;
+    private long thinkBudget;
 
     @Override
     @SuppressWarnings("ConstantConditions")
@@ -43,13 +48,17 @@ public final class Factorio extends JavaPlugin implements Listener {
         }
         DatabaseConnection connection = new DatabaseConnection(sec);
         Management.Serializer managementSerializer = new Management.Serializer(this.mechanicSerializer);
-        MechanicController controller = new MechanicController(connection, this.mechanicSerializer, managementSerializer);
+        MechanicController controller = new MechanicController(connection, this.mechanicSerializer, managementSerializer, sec.getInt("write-batch-size", 500));
         this.mechanicController = controller;
         this.contextProvider = new MechanicStorageContext.Provider(controller);
+        this.thinkBudget = getConfig().getLong("mechanics.think-budget-nanos", 0);
+        this.mechanicLoader = new MechanicLoader(getConfig().getInt("mechanics.loading-threads", 4));
 
         for (World world : Bukkit.getServer().getWorlds()) {
             MechanicManager mm = new MechanicManager(world, contextProvider);
             mechanicManagers.put(world.getName(), mm);
+
+            RouteStore.load(world);
         }
 
         Bukkit.getPluginManager().registerEvents(new ChunkLoadListener(), this);
@@ -59,6 +68,8 @@ public final class Factorio extends JavaPlugin implements Listener {
         Bukkit.getPluginManager().registerEvents(new BlockListener(), this);
         Bukkit.getPluginManager().registerEvents(new ShopManager(), this);
         Bukkit.getPluginManager().registerEvents(new QuitListener(), this);
+        Bukkit.getPluginManager().registerEvents(new ServerLoadListener(), this);
+        Bukkit.getPluginManager().registerEvents(new WorldSaveListener(), this);
 
         getCommand("addmembertoall").setExecutor(new AddMemberToAll());
         getCommand("listdefaultmembers").setExecutor(new ListDefaultMembers());
@@ -70,8 +81,16 @@ public final class Factorio extends JavaPlugin implements Listener {
         getCommand("debug").setExecutor(new Debug());
 
         Tick.start();
+        Bukkit.getScheduler().runTaskTimer(this, this::handleThinking, 0L, 1L);
+
+        // write the changed mechanics in the background
+        long writeInterval = getConfig().getLong("database.write-interval-ticks", 200);
+        Bukkit.getScheduler().runTaskTimerAsynchronously(this, () -> controller.getWriteQueue().tryFlush(), writeInterval, writeInterval);
 
         Bukkit.getScheduler().runTask(this, () -> {
+            // index the recipes when all plugins have registered theirs
+            RecipeIndex.rebuild();
+
             // load all mechanics
             for (World world : Bukkit.getWorlds()) {
                 MechanicManager manager = getMechanicManager(world);
@@ -82,13 +101,24 @@ public final class Factorio extends JavaPlugin implements Listener {
 
     @Override
     public void onDisable() {
+        // save the routes, so they don't have to be searched again after startup
+        // any save still running on the search thread is finished first, so the files are written in order
+        RouteDiscovery.shutdown();
+        for (World world : Bukkit.getWorlds()) {
+            RouteStore.save(world, false);
+        }
+
         // save all mechanics
         for (World world : Bukkit.getWorlds()) {
             for (Chunk chunk : world.getLoadedChunks()) {
-                Factorio.get().getMechanicManager(world).unloadMechanics(chunk, false);
+                Factorio.get().getMechanicManager(world).unloadMechanics(chunk);
             }
         }
 
+        // wait for the mechanics still being loaded or unloaded, and write all the changes before the connection is closed
+        mechanicLoader.shutdown();
+        mechanicController.getWriteQueue().flush();
+
         // TODO Fix
         try {
             mechanicController.close();
@@ -97,6 +127,26 @@ public final class Factorio extends JavaPlugin implements Listener {
         }
     }
 
+    private void handleThinking() {
+        // the mechanics in all worlds think within the same budget each tick
+        long deadline = this.thinkBudget > 0 ? System.nanoTime() + this.thinkBudget : 0;
+
+        // start at another world each tick, so the same world isn't always left with the rest of the budget
+        int first = Math.floorMod(Tick.currentTick, Math.max(1, this.mechanicManagers.size()));
+        int i = 0;
+        for (MechanicManager manager : this.mechanicManagers.values()) {
+            if (i++ >= first) {
+                manager.handleThinking(deadline);
+            }
+        }
+        i = 0;
+        for (MechanicManager manager : this.mechanicManagers.values()) {
+            if (i++ < first) {
+                manager.handleThinking(deadline);
+            }
+        }
+    }
+
     public static Factorio get() {
         return instance;
     }
@@ -109,6 +159,14 @@ public final class Factorio extends JavaPlugin implements Listener {
         return mechanicController;
     }
 
+    public MechanicLoader getMechanicLoader() {
+        return mechanicLoader;
+    }
+
+    public long getThinkBudget() {
+        return thinkBudget;
+    }
+
     public <E extends Event> void registerEvent(Class<? extends E> clazz, EventPriority priority, Consumer<E> listener) {
         Bukkit.getPluginManager().registerEvent(clazz, this, priority, (l, event) -> listener.accept((E) event), this);
     }
@@ -0,0 +1,30 @@
+package dk.superawesome.factorio.api.events;
+
+import dk.superawesome.factorio.mechanics.Mechanic;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+// called when a mechanic is unloaded together with its chunk, any references to it should be dropped
+public class MechanicUnloadEvent extends Event {
+
+    private static final HandlerList handlers = new HandlerList();
+
+    private final Mechanic<?> mechanic;
+
+    public MechanicUnloadEvent(Mechanic<?> mechanic) {
+        this.mechanic = mechanic;
+    }
+
+    public Mechanic<?> getMechanic() {
+        return mechanic;
+    }
+
+    public static HandlerList getHandlerList() {
+        return handlers;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return handlers;
+    }
+}
@@ -4,6 +4,7 @@ import com.sk89q.worldguard.protection.regions.ProtectedRegion;
 import dk.superawesome.factorio.Factorio;
 import dk.superawesome.factorio.mechanics.*;
 import dk.superawesome.factorio.mechanics.db.DatabaseConnection;
+import dk.superawesome.factorio.mechanics.db.MechanicWriteQueue;
 import dk.superawesome.factorio.util.db.Query;
 import dk.superawesome.factorio.util.db.Types;
 import dk.superawesome.factorio.util.statics.BlockUtil;
@@ -73,6 +74,32 @@ public class Debug extends AbstractCommand {
 
                 return;
             }
+            if (args[0].equalsIgnoreCase("think")) {
+                ThinkScheduler scheduler = manager.getThinkScheduler();
+                player.sendMessage("§eTænkende maskiner: " + scheduler.size() + " (" + scheduler.getSleepingCount() + " sover)");
+                long budget = Factorio.get().getThinkBudget();
+                player.sendMessage("§eBudget for alle verdener: " + (budget > 0 ? budget / 1_000_000d + "ms" : "ingen"));
+                player.sendMessage("§eUdskudt sidste tick: " + scheduler.getLastDeferred());
+                player.sendMessage("§eUdskudt i alt: " + scheduler.getTotalDeferred() + " over " + scheduler.getOverBudgetTicks() + " ticks");
+                return;
+            }
+            if (args[0].equalsIgnoreCase("writes")) {
+                MechanicWriteQueue queue = Factorio.get().getMechanicController().getWriteQueue();
+                player.sendMessage("§eVentende skrivninger: " + queue.size());
+                player.sendMessage("§eSidste batch: " + queue.getLastBatchSize() + " maskiner på " + queue.getLastBatchNanos() / 1_000_000d + "ms");
+                player.sendMessage("§eLængste batch: " + queue.getMaxBatchNanos() / 1_000_000d + "ms");
+                player.sendMessage("§eSkrevet i alt: " + queue.getTotalWrites() + " i " + queue.getTotalBatches() + " batches (" + queue.getSkippedFlushes() + " sprunget over)");
+                return;
+            }
+            if (args[0].equalsIgnoreCase("loading")) {
+                MechanicLoader loader = Factorio.get().getMechanicLoader();
+                player.sendMessage("§eVentende opgaver: " + loader.getQueued() + " fordelt på " + loader.getThreads() + " tråde");
+                player.sendMessage("§eUdført i alt: " + loader.getCompleted());
+                player.sendMessage("§eSidste ventetid: " + loader.getLastWaitNanos() / 1_000_000d + "ms (længste " + loader.getMaxWaitNanos() / 1_000_000d + "ms)");
+                player.sendMessage("§eSidste kørsel: " + loader.getLastRunNanos() / 1_000_000d + "ms (længste " + loader.getMaxRunNanos() / 1_000_000d + "ms)");
+                player.sendMessage("§eUdskudte chunks under gemning: " + Factorio.get().getMechanicManager(player.getWorld()).getDeferredLoads());
+                return;
+            }
             if (args[0].equalsIgnoreCase("tp")) {
                 Location loc = stringToLocation(args[1]);
                 player.teleport(loc);
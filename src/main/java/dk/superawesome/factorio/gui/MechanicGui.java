@@ -33,6 +33,9 @@ public abstract class MechanicGui<G extends BaseGui<G>, M extends Mechanic<M>> e
     public MechanicGui(M mechanic, AtomicReference<G> inUseReference, Supplier<Callback> initCallback, String title) {
         super(initCallback, inUseReference, BaseGui.DOUBLE_CHEST, title, true);
         this.mechanic = mechanic;
+
+        // the mechanic can be changed through this gui, so ensure it is not sleeping while in use
+        this.mechanic.wake();
     }
 
     public MechanicGui(M mechanic, AtomicReference<G> inUseReference, Supplier<Callback> initCallback) {
@@ -56,6 +59,7 @@ public abstract class MechanicGui<G extends BaseGui<G>, M extends Mechanic<M>> e
     @Override
     public void onClose(Player player, boolean anyViewersLeft) {
         mechanic.onUpdate();
+        mechanic.wake();
     }
 
     protected List<GuiElement> getGuiElements() {
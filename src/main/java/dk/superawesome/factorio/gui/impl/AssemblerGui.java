@@ -7,6 +7,7 @@ import dk.superawesome.factorio.gui.RecipeGui;
 import dk.superawesome.factorio.gui.SingleStorageGui;
 import dk.superawesome.factorio.mechanics.impl.accessible.Assembler;
 import dk.superawesome.factorio.util.DurationFormatter;
+import dk.superawesome.factorio.util.MaterialIndex;
 import dk.superawesome.factorio.util.helper.ItemBuilder;
 import dk.superawesome.factorio.util.statics.StringUtil;
 import org.bukkit.Bukkit;
@@ -60,7 +61,7 @@ public class AssemblerGui extends SingleStorageGui<AssemblerGui, Assembler> {
 
     @Override
     protected boolean isItemAllowed(ItemStack item) {
-        return Assembler.Types.getTypeFromMaterial(item.getType()).isPresent();
+        return MaterialIndex.getAssemblerType(item.getType()) != null;
     }
 
     @Override
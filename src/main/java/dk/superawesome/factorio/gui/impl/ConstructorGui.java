@@ -2,9 +2,8 @@ package dk.superawesome.factorio.gui.impl;
 
 import dk.superawesome.factorio.Factorio;
 import dk.superawesome.factorio.gui.MechanicGui;
-import dk.superawesome.factorio.mechanics.impl.accessible.Assembler;
 import dk.superawesome.factorio.mechanics.impl.accessible.Constructor;
-import dk.superawesome.factorio.recipes.SuspicousStewRecipe;
+import dk.superawesome.factorio.recipes.RecipeIndex;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.event.inventory.InventoryAction;
@@ -27,42 +26,6 @@ public class ConstructorGui extends MechanicGui<ConstructorGui, Constructor> {
     private static final List<Integer> CRAFTING_SLOTS = Arrays.asList(10, 11, 12, 19, 20, 21, 28, 29, 30);
     public static final List<Integer> STORAGE_SLOTS = Arrays.asList(14, 15, 16, 17, 23, 24, 25, 26, 32, 33, 34);//, 35);
 
-    private static final List<Recipe> commonRecipes = new ArrayList<>();
-
-    static {
-        Bukkit.getScheduler().runTask(Factorio.get(), () -> {
-            loadCustomRecipes();
-
-            for (Assembler.Types type : Assembler.Types.values()) {
-                addRecipesFor(new ItemStack(type.getMat()));
-            }
-        });
-    }
-
-    private static void loadCustomRecipes() {
-        Recipe recipe = new SuspicousStewRecipe();
-        commonRecipes.add(recipe);
-    }
-
-    private static void addRecipesFor(ItemStack stack) {
-        for (Recipe recipe : Bukkit.getRecipesFor(stack)) {
-            if (recipe instanceof CraftingRecipe cr && commonRecipes.stream().map(r -> (CraftingRecipe) r).noneMatch(r -> r.getKey().equals(cr.getKey()))) {
-                commonRecipes.add(cr);
-                if (recipe instanceof ShapelessRecipe shapeless) {
-                    for (ItemStack required : shapeless.getIngredientList()) {
-                        addRecipesFor(required);
-                    }
-                } else if (recipe instanceof ShapedRecipe shaped) {
-                    Arrays.stream(shaped.getShape())
-                            .flatMap(s -> s.codePoints().mapToObj(c -> (char) c))
-                            .map(c -> shaped.getIngredientMap().get(c))
-                            .filter(Objects::nonNull)
-                            .forEach(ConstructorGui::addRecipesFor);
-                }
-            }
-        }
-    }
-
     private ItemStack craft;
 
     public ConstructorGui(Constructor constructor, AtomicReference<ConstructorGui> inUseReference) {
@@ -324,104 +287,11 @@ public class ConstructorGui extends MechanicGui<ConstructorGui, Constructor> {
         getMechanic().makeNewState();
     }
 
-    private void searchRecipeIn(Iterator<Recipe> recipeIterator) {
-        while (recipeIterator.hasNext()) {
-            Recipe recipe = recipeIterator.next();
-
-            // only check for crafting recipes
-            if (recipe instanceof CraftingRecipe) {
-
-                boolean match = false;
-
-                // check for shaped recipe
-                // this means the recipe has a specific shape which needs to be inserted into the grid
-                if (recipe instanceof ShapedRecipe shaped) {
-                    // get the ingredients matrix required for this recipe
-                    List<RecipeChoice> choices = Arrays.stream(shaped.getShape())
-                            .map(r -> new StringBuilder()
-                                    .append(r)
-                                    .append(new String(new char[3 - r.length()])
-                                            .replaceAll("\0", " "))
-                            )
-                            .flatMap(r -> r.chars().mapToObj(c -> (char) c))
-                            .map(c -> shaped.getChoiceMap().get(c))
-                            .collect(Collectors.toList());
-
-                    List<ItemStack> offer = getOffer();
-
-                    // check if the ingredients for the recipe matches the items in the crafting grid
-                    for (int i = 0; i < choices.size(); i++) {
-                        ItemStack at = offer.get(i);
-                        RecipeChoice req = choices.get(i);
-
-                        if (req == null && at != null) {
-                            break;
-                        }
-                        if (req != null && (at == null || !req.test(at))) {
-                            break;
-                        }
-
-                        offer.set(i, null);
-                        choices.set(i, null);
-                    }
-
-                    // notify a match success if all items matched
-                    if (choices.stream().allMatch(Objects::isNull)
-                            && offer.stream().allMatch(Objects::isNull)) {
-                        match = true;
-                    }
-                }
-
-                // check for shapeless recipe
-                // this means that the recipe doesn't care what order and position the ingredients are inserted into the grid
-                if (recipe instanceof ShapelessRecipe shapeless) {
-                    List<RecipeChoice> choices = shapeless.getChoiceList();
-                    List<ItemStack> offer = getOffer(CRAFTING_SLOTS.get(0)).stream()
-                            .filter(Objects::nonNull)
-                            .collect(Collectors.toList()); // can't use Stream#toList because that returns an immutable list
-
-                    // loop through all items and check if they match
-                    Iterator<ItemStack> offerIterator = offer.iterator();
-                    while (offerIterator.hasNext()) {
-                        ItemStack at = offerIterator.next();
-
-                        Iterator<RecipeChoice> choiceIterator = choices.iterator();
-                        while (choiceIterator.hasNext()) {
-                            RecipeChoice choice = choiceIterator.next();
-
-                            if (choice.test(at)) {
-                                choiceIterator.remove();
-                                offerIterator.remove();
-                                break;
-                            }
-                        }
-
-                        // if either we have checked all the ingredients or items in the crafting grid, we will break the search
-                        if (offer.isEmpty() || choices.isEmpty()) {
-                            break;
-                        }
-                    }
-
-                    // notify a match success if no required ingredients are left and no more items are inserted into
-                    // the grid than what is needed in the recipe
-                    if (offer.isEmpty() && choices.isEmpty()) {
-                        match = true;
-                    }
-                }
-
-                if (match) {
-                    this.craft = recipe.getResult();
-                    break;
-                }
-            }
-        }
-    }
-
     private void searchRecipe() {
-        // iterate over all recipes and find the recipe matching the one in the crafting grid (if any)
-        searchRecipeIn(commonRecipes.iterator());
-        if (this.craft == null) {
-            searchRecipeIn(Bukkit.recipeIterator());
+        // look up the recipe matching the one in the crafting grid (if any)
+        Recipe recipe = RecipeIndex.findCraftingRecipe(getOffer(), getOffer(CRAFTING_SLOTS.get(0)));
+        if (recipe != null) {
+            this.craft = recipe.getResult();
         }
     }
 }
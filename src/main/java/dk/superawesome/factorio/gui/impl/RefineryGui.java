@@ -4,6 +4,7 @@ import dk.superawesome.factorio.gui.SingleStorageGui;
 import dk.superawesome.factorio.mechanics.impl.accessible.Refinery;
 import dk.superawesome.factorio.mechanics.stackregistry.Fluid;
 import dk.superawesome.factorio.mechanics.stackregistry.Volume;
+import dk.superawesome.factorio.util.MaterialIndex;
 import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
 
@@ -70,7 +71,7 @@ public class RefineryGui extends SingleStorageGui<RefineryGui, Refinery> {
 
     @Override
     protected boolean isItemAllowed(ItemStack item) {
-        return Volume.getTypeFromMaterial(item.getType()).isPresent();
+        return MaterialIndex.getVolume(item.getType()) != null;
     }
 
     public void updateAddedVolume(int amount) {
@@ -1,5 +1,7 @@
 package dk.superawesome.factorio.listeners;
 
+import dk.superawesome.factorio.mechanics.routes.RouteDiscovery;
+import dk.superawesome.factorio.mechanics.routes.RouteStore;
 import dk.superawesome.factorio.mechanics.routes.Routes;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -11,11 +13,19 @@ public class BlockListener implements Listener {
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBlockBreak(BlockBreakEvent event) {
-        Routes.removeNearbyRoutesSync(event.getBlock());
+        RouteDiscovery.onBlockChange(event.getBlock(), event.getBlock().getType());
+        RouteStore.onBlockChange(event.getBlock());
+        if (Routes.hasNearbyRoutes(event.getBlock())) {
+            Routes.cutNearbyRoutesSync(event.getBlock(), event.getBlock().getType());
+        }
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBlockPlace(BlockPlaceEvent event) {
-        Routes.removeNearbyRoutesSync(event.getBlock());
+        RouteDiscovery.onBlockChange(event.getBlock(), event.getBlock().getType());
+        RouteStore.onBlockChange(event.getBlock());
+        if (Routes.hasNearbyRoutes(event.getBlock())) {
+            Routes.expandNearbyRoutesSync(event.getBlock());
+        }
     }
 }
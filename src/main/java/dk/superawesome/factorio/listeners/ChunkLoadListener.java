@@ -2,44 +2,54 @@ package dk.superawesome.factorio.listeners;
 
 import dk.superawesome.factorio.Factorio;
 import dk.superawesome.factorio.mechanics.MechanicManager;
+import dk.superawesome.factorio.mechanics.routes.RouteDiscovery;
+import dk.superawesome.factorio.mechanics.routes.RouteStore;
+import dk.superawesome.factorio.util.statics.BlockUtil;
 import org.bukkit.Bukkit;
-import org.bukkit.Chunk;
 import org.bukkit.World;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.event.world.ChunkUnloadEvent;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 public class ChunkLoadListener implements Listener {
 
-    private static final Set<Long> loadedChunks = new HashSet<>();
-
-    private static long getChunkIndex(Chunk chunk) {
-        return (chunk.getX() & Integer.MAX_VALUE) | ((long) chunk.getZ() & Integer.MAX_VALUE) << 32;
-    }
+    // the chunks in each world which have had their mechanics loaded, chunk keys are only unique within a world
+    private static final Map<World, Set<Long>> loadedChunks = new HashMap<>();
 
     @EventHandler
     public void onChunkLoad(ChunkLoadEvent event) {
-        long index = getChunkIndex(event.getChunk());
-        if (loadedChunks.contains(index)) {
+        // continue the routes which stopped searching at this chunk
+        RouteDiscovery.onChunkLoad(event.getChunk());
+        RouteStore.onChunkLoad(event.getChunk());
+
+        long index = BlockUtil.getChunkKey(event.getChunk());
+        if (!loadedChunks.computeIfAbsent(event.getWorld(), __ -> new HashSet<>()).add(index)) {
             // already loaded
             return;
         }
-        loadedChunks.add(index);
 
         MechanicManager manager = Factorio.get().getMechanicManager(event.getWorld());
-        Bukkit.getScheduler().runTask(Factorio.get(), () -> manager.loadMechanics(event.getChunk()));
+        Bukkit.getScheduler().runTask(Factorio.get(), () -> manager.loadMechanicsWhenReady(event.getChunk()));
     }
 
-    // removed to optimize db connections
-    /*
     @EventHandler
     public void onChunkUnload(ChunkUnloadEvent event) {
+        RouteDiscovery.onChunkUnload(event.getChunk());
+        RouteStore.onChunkUnload(event.getChunk());
+
+        // load the mechanics again when the chunk is loaded the next time
+        Set<Long> worldChunks = loadedChunks.get(event.getWorld());
+        if (worldChunks != null) {
+            worldChunks.remove(BlockUtil.getChunkKey(event.getChunk()));
+        }
+
         World world = event.getWorld();
-        Factorio.get().getMechanicManager(world).unloadMechanics(event.getChunk(), true);
+        Factorio.get().getMechanicManager(world).unloadMechanics(event.getChunk());
     }
-    */
 }
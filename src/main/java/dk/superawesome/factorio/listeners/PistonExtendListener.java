@@ -3,7 +3,6 @@ package dk.superawesome.factorio.listeners;
 import dk.superawesome.factorio.Factorio;
 import dk.superawesome.factorio.mechanics.MechanicManager;
 import dk.superawesome.factorio.mechanics.routes.AbstractRoute;
-import dk.superawesome.factorio.util.statics.BlockUtil;
 import org.bukkit.block.Block;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
@@ -11,44 +10,41 @@ import org.bukkit.event.block.BlockPistonEvent;
 import org.bukkit.event.block.BlockPistonExtendEvent;
 import org.bukkit.event.block.BlockPistonRetractEvent;
 
-import java.util.Collections;
 import java.util.List;
 
 public class PistonExtendListener implements Listener {
 
+    private boolean disallowPiston(MechanicManager manager, Block block) {
+        return manager.getMechanicAt(block.getX(), block.getY(), block.getZ()) != null
+                || manager.getLoadingMechanic(block.getX(), block.getY(), block.getZ()) != null
+                || AbstractRoute.hasCachedRoutes(block.getWorld(), block.getX(), block.getY(), block.getZ());
+    }
+
     private boolean disallowPiston(BlockPistonEvent event, List<Block> blocks) {
         MechanicManager manager = Factorio.get().getMechanicManager(event.getBlock().getWorld());
-        for (Block block : blocks) {
-            if (manager.getMechanicAt(block.getLocation()) != null
-                    || manager.getLoadingMechanic(block.getLocation()) != null) {
-                return true;
-            }
+        if (disallowPiston(manager, event.getBlock())) {
+            return true;
         }
 
-        for (Block block : blocks) {
-            if (!AbstractRoute.getCachedRoutes(event.getBlock().getWorld(), BlockUtil.getVec(block)).isEmpty()) {
+        for (int i = 0; i < blocks.size(); i++) {
+            if (disallowPiston(manager, blocks.get(i))) {
                 return true;
             }
         }
-        if (!AbstractRoute.getCachedRoutes(event.getBlock().getWorld(), BlockUtil.getVec(event.getBlock())).isEmpty()) {
-            return true;
-        }
 
         return false;
     }
 
     @EventHandler
     public void onPistonExtend(BlockPistonExtendEvent event) {
-        if (disallowPiston(event, event.getBlocks())
-                || disallowPiston(event, Collections.singletonList(event.getBlock()))) {
+        if (disallowPiston(event, event.getBlocks())) {
             event.setCancelled(true);
         }
     }
 
     @EventHandler
     public void onPistonRetract(BlockPistonRetractEvent event) {
-        if (disallowPiston(event, event.getBlocks())
-                || disallowPiston(event, Collections.singletonList(event.getBlock()))) {
+        if (disallowPiston(event, event.getBlocks())) {
             event.setCancelled(true);
         }
     }
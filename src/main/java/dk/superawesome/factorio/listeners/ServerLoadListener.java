@@ -0,0 +1,17 @@
+package dk.superawesome.factorio.listeners;
+
+import dk.superawesome.factorio.recipes.RecipeIndex;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.ServerLoadEvent;
+
+public class ServerLoadListener implements Listener {
+
+    @EventHandler
+    public void onLoad(ServerLoadEvent event) {
+        // the recipes could have been changed by the reload
+        if (event.getType() == ServerLoadEvent.LoadType.RELOAD) {
+            RecipeIndex.rebuild();
+        }
+    }
+}
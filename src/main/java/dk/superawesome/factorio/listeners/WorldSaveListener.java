@@ -0,0 +1,15 @@
+package dk.superawesome.factorio.listeners;
+
+import dk.superawesome.factorio.mechanics.routes.RouteStore;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldSaveEvent;
+
+public class WorldSaveListener implements Listener {
+
+    @EventHandler
+    public void onWorldSave(WorldSaveEvent event) {
+        // save the routes together with the world, so they are not lost if the server stops without disabling the plugin
+        RouteStore.save(event.getWorld(), true);
+    }
+}
@@ -39,6 +39,8 @@ public abstract class AbstractMechanic<M extends Mechanic<M>> implements Mechani
     protected MechanicLevel level;
     protected double xp;
     protected boolean exists = true;
+    // the world time of when this mechanic was last unloaded, zero if it has not been unloaded
+    protected long unloadedAt;
 
     public AbstractMechanic(Location loc, BlockFace rotation, MechanicStorageContext context, boolean hasWallSign, boolean isBuild) {
         this.loc = loc;
@@ -49,6 +51,7 @@ public abstract class AbstractMechanic<M extends Mechanic<M>> implements Mechani
         if (!isBuild) {
             try {
                 this.management = context.load(this);
+                this.unloadedAt = context.getUnloadedAt();
             } catch (SQLException | IOException ex) {
                 throw new RuntimeException("Failed to load mechanic " + this  + " at " + Types.LOCATION.convert(loc), ex);
             }
@@ -70,6 +73,9 @@ public abstract class AbstractMechanic<M extends Mechanic<M>> implements Mechani
 
     @Override
     public boolean unload() {
+        if (loc.getWorld() != null) {
+            unloadedAt = loc.getWorld().getFullTime();
+        }
         exists = false;
         return save();
     }
@@ -77,17 +83,9 @@ public abstract class AbstractMechanic<M extends Mechanic<M>> implements Mechani
     @Override
     public boolean save() {
         try {
-            // ensure record exists
-            if (!this.context.hasContext()) {
-                Factorio.get().getContextProvider().create(this.loc, this.rot, getProfile().getName(), this.management.getOwner());
-            }
-
-            // save data for this mechanic
-            this.context.setLevel(this.level.lvl());
-            this.context.setXP(this.xp);
-            this.context.uploadManagement(this.management);
-
-            save(this.context);
+            // queue all columns to be written if any of them are changed since the last write, which also creates the record if it doesn't exist
+            // only keep the unload time while the mechanic is unloaded, so it is not fast-forwarded twice
+            this.context.submit(getProfile().getName(), this.rot, this.level.lvl(), this.xp, this.management, this.exists ? 0 : this.unloadedAt, save(this.context));
 
             return true;
         } catch (Exception ex) {
@@ -141,12 +139,19 @@ public abstract class AbstractMechanic<M extends Mechanic<M>> implements Mechani
         return exists;
     }
 
+    @Override
+    public long getUnloadedAt() {
+        return unloadedAt;
+    }
+
     public void load(MechanicStorageContext context) throws Exception {
         // to be overridden if needed
     }
 
-    public void save(MechanicStorageContext context) throws Exception {
+    // returns the data of this mechanic as a record, or null if it has no data
+    public byte[] save(MechanicStorageContext context) throws Exception {
         // to be overridden if needed
+        return null;
     }
 
     protected Sign getSign() {
@@ -170,6 +175,28 @@ public abstract class AbstractMechanic<M extends Mechanic<M>> implements Mechani
         onUpdate();
     }
 
+    protected void sleep(WakeCondition condition) {
+        // keep thinking while the gui is open, because it can change the state of this mechanic at any time
+        if (this instanceof ThinkingMechanic thinking
+                && thinking.getThinkDelayHandler() != DelayHandler.NO_DELAY
+                && inUse.get() == null) {
+            thinking.getThinkDelayHandler().sleep(condition);
+        }
+    }
+
+    protected void wake(WakeCondition condition) {
+        if (this instanceof ThinkingMechanic thinking) {
+            thinking.getThinkDelayHandler().wake(condition);
+        }
+    }
+
+    @Override
+    public void wake() {
+        if (this instanceof ThinkingMechanic thinking) {
+            thinking.getThinkDelayHandler().wake();
+        }
+    }
+
     @Override
     public TickThrottle getTickThrottle() {
         return tickThrottle;
@@ -8,6 +8,9 @@ public class DelayHandler {
 
     private int delay;
     private int lastCheckTick = -1;
+    private Runnable changeListener;
+    private Runnable wakeListener;
+    private WakeCondition sleepingOn;
 
     public DelayHandler(int delay) {
         this.delay = delay;
@@ -16,6 +19,48 @@ public class DelayHandler {
     public void setDelay(int delay) {
         this.delay = delay;
         lastCheckTick = Tick.currentTick;
+        // the level has changed, so the mechanic could be able to continue
+        sleepingOn = null;
+
+        if (changeListener != null) {
+            changeListener.run();
+        }
+    }
+
+    public int getDelay() {
+        return delay;
+    }
+
+    void setChangeListener(Runnable changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    void setWakeListener(Runnable wakeListener) {
+        this.wakeListener = wakeListener;
+    }
+
+    public void sleep(WakeCondition condition) {
+        this.sleepingOn = condition;
+    }
+
+    public boolean isSleeping() {
+        return sleepingOn != null;
+    }
+
+    public void wake(WakeCondition condition) {
+        if (sleepingOn == condition) {
+            wake();
+        }
+    }
+
+    public void wake() {
+        if (sleepingOn != null) {
+            sleepingOn = null;
+
+            if (wakeListener != null) {
+                wakeListener.run();
+            }
+        }
     }
 
     public boolean ready() {
@@ -8,6 +8,8 @@ import dk.superawesome.factorio.mechanics.stackregistry.Fuel;
 import dk.superawesome.factorio.mechanics.transfer.Container;
 import dk.superawesome.factorio.mechanics.transfer.ItemCollection;
 import dk.superawesome.factorio.mechanics.transfer.ItemContainer;
+import dk.superawesome.factorio.mechanics.transfer.ItemKey;
+import dk.superawesome.factorio.util.MaterialIndex;
 import dk.superawesome.factorio.util.statics.BlockUtil;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -16,8 +18,6 @@ import org.bukkit.block.Block;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.util.BlockVector;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
@@ -55,13 +55,19 @@ public interface FuelMechanic {
         Storage storage = adaptFuelStorage();
         storage.ensureValidStorage();
 
-        if (getFuelAmount() < getFuelCapacity()
-                && (getFuel() != null && collection.has(new ItemStack(getFuel().material())) || getFuel() == null && collection.has(i -> Fuel.getFuel(i.getType()) != null))) {
+        // only the items of the transfer key are put, so only they have to be the same fuel
+        ItemKey key = collection.getTransferKey();
+        if (getFuelAmount() < getFuelCapacity() && key != null
+                && (getFuel() != null ? key.getMaterial() == getFuel().material() : MaterialIndex.isFuel(key.getMaterial()))) {
             int amount = container.put(collection, getFuelCapacity() - getFuelAmount(), inUse, doGui, storage);
 
             if (amount > 0) {
                 event.setTransferred(true);
                 setFuelAmount(getFuelAmount() + amount);
+
+                if (this instanceof ThinkingMechanic thinking) {
+                    thinking.getThinkDelayHandler().wake(WakeCondition.FUEL);
+                }
             }
         }
     }
@@ -76,6 +82,28 @@ public interface FuelMechanic {
             getLocation().getWorld().playSound(getLocation(), Sound.BLOCK_BLASTFURNACE_FIRE_CRACKLE, 0.2f, 1f);
         }
 
+        return burnFuel();
+    }
+
+    // use fuel for multiple cycles at once, returns the amount of cycles there was fuel for
+    default int useFuel(int cycles) {
+        int fueled = 0;
+        while (fueled < cycles && burnFuel() != FuelState.ABORT) {
+            fueled++;
+        }
+
+        if (fueled > 0 && getLocation().getWorld() != null) {
+            getLocation().getWorld().playSound(getLocation(), Sound.BLOCK_BLASTFURNACE_FIRE_CRACKLE, 0.2f, 1f);
+        }
+
+        return fueled;
+    }
+
+    private FuelState burnFuel() {
+        if (getCurrentFuelAmount() == 0 && getFuelAmount() == 0) {
+            return FuelState.ABORT;
+        }
+
         // use fuel
         if (getCurrentFuelAmount() == 0 && getFuelAmount() > 0) {
             Fuel fuel = getFuel();
@@ -143,33 +171,33 @@ public interface FuelMechanic {
         }
     }
 
-    default void loadFuel(MechanicStorageContext context, ByteArrayInputStream str) throws IOException, ClassNotFoundException {
-        ItemStack fuel = context.getSerializer().readItemStack(str);
+    default void loadFuel(RecordReader str) throws IOException, ClassNotFoundException {
+        ItemStack fuel = str.readItemStack();
         if (fuel != null) {
             setFuel(Fuel.getFuel(fuel.getType()));
         }
-        setFuelAmount(context.getSerializer().readInt(str));
-        ItemStack currentFuel = context.getSerializer().readItemStack(str);
-        int currentFuelAmount = context.getSerializer().readInt(str);
+        setFuelAmount(str.readInt());
+        ItemStack currentFuel = str.readItemStack();
+        int currentFuelAmount = str.readInt();
         if (currentFuel != null) {
             setCurrentFuel(Fuel.getFuel(currentFuel.getType()));
             setCurrentFuelAmount(1 - getCurrentFuel().getFuelAmount() * currentFuelAmount);
         }
     }
 
-    default void saveFuel(MechanicStorageContext context, ByteArrayOutputStream str) throws IOException {
+    default void saveFuel(RecordWriter str) throws IOException {
         if (getFuel() != null) {
-            context.getSerializer().writeItemStack(str, new ItemStack(getFuel().material()));
+            str.writeItemStack(new ItemStack(getFuel().material()));
         } else {
-            context.getSerializer().writeItemStack(str, null);
+            str.writeItemStack(null);
         }
-        context.getSerializer().writeInt(str, getFuelAmount());
+        str.writeInt(getFuelAmount());
         if (getCurrentFuel() != null) {
-            context.getSerializer().writeItemStack(str, new ItemStack(getCurrentFuel().material()));
-            context.getSerializer().writeInt(str, (int) ((1 - getCurrentFuelAmount()) / getCurrentFuel().getFuelAmount()));
+            str.writeItemStack(new ItemStack(getCurrentFuel().material()));
+            str.writeInt((int) ((1 - getCurrentFuelAmount()) / getCurrentFuel().getFuelAmount()));
         } else {
-            context.getSerializer().writeItemStack(str, null);
-            context.getSerializer().writeInt(str, 0);
+            str.writeItemStack(null);
+            str.writeInt(0);
         }
     }
 
@@ -192,7 +220,7 @@ public interface FuelMechanic {
 
             @Override
             public Predicate<ItemStack> getFilter() {
-                return item -> Fuel.getType(item.getType()).isPresent();
+                return item -> Fuel.isFuel(item.getType());
             }
 
             @Override
@@ -7,12 +7,11 @@ import org.bukkit.Location;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Player;
-import org.bukkit.event.Listener;
 
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
-public interface Mechanic<M extends Mechanic<M>> extends Listener, Source {
+public interface Mechanic<M extends Mechanic<M>> extends Source {
 
     default Building getBuilding() {
         return getProfile().getBuilding(hasWallSign());
@@ -30,8 +29,12 @@ public interface Mechanic<M extends Mechanic<M>> extends Listener, Source {
 
     void onBlocksLoaded(Player by);
 
+    void wake();
+
     boolean exists();
 
+    long getUnloadedAt();
+
     boolean canBeDeleted();
 
     boolean hasWallSign();
@@ -0,0 +1,199 @@
+package dk.superawesome.factorio.mechanics;
+
+import dk.superawesome.factorio.Factorio;
+import dk.superawesome.factorio.api.events.AssemblerTypeChangeEvent;
+import dk.superawesome.factorio.api.events.MechanicEvent;
+import dk.superawesome.factorio.api.events.MechanicLoadEvent;
+import dk.superawesome.factorio.api.events.MechanicUnloadEvent;
+import dk.superawesome.factorio.building.Buildings;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.block.BlockEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.logging.Level;
+
+public class MechanicEventDispatcher {
+
+    private record Handler(Class<? extends Event> eventClass, Method method, MechanicEventHandler.Scope scope, EventPriority priority, boolean ignoreCancelled) {
+
+        private boolean matches(Class<? extends Event> eventClass, EventPriority priority) {
+            return this.eventClass == eventClass && this.priority == priority;
+        }
+
+        private void call(Mechanic<?> mechanic, Event event) {
+            if (ignoreCancelled && event instanceof Cancellable cancellable && cancellable.isCancelled()) {
+                return;
+            }
+
+            try {
+                method.invoke(mechanic, event);
+            } catch (InvocationTargetException ex) {
+                Factorio.get().getLogger().log(Level.SEVERE, "Failed to pass " + event.getEventName() + " to mechanic " + mechanic + ", " + mechanic.getLocation(), ex.getCause());
+            } catch (IllegalAccessException ex) {
+                Factorio.get().getLogger().log(Level.SEVERE, "Failed to access event handler " + method, ex);
+            }
+        }
+    }
+
+    private static final Map<Class<?>, List<Handler>> handlers = new HashMap<>();
+
+    private static List<Handler> getHandlers(Class<?> clazz) {
+        return handlers.computeIfAbsent(clazz, MechanicEventDispatcher::findHandlers);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Handler> findHandlers(Class<?> clazz) {
+        List<Handler> found = new ArrayList<>();
+        for (Method method : clazz.getMethods()) {
+            MechanicEventHandler annotation = method.getAnnotation(MechanicEventHandler.class);
+            if (annotation == null
+                    || method.getParameterCount() != 1
+                    || !Event.class.isAssignableFrom(method.getParameterTypes()[0])) {
+                continue;
+            }
+
+            method.setAccessible(true);
+            found.add(new Handler((Class<? extends Event>) method.getParameterTypes()[0], method, annotation.scope(), annotation.priority(), annotation.ignoreCancelled()));
+        }
+
+        return found;
+    }
+
+    private final MechanicManager manager;
+    private final World world;
+
+    private final Map<Class<? extends Event>, Set<EventPriority>> listening = new HashMap<>();
+    private final Map<Class<? extends Event>, Set<Mechanic<?>>> globalMechanics = new HashMap<>();
+
+    public MechanicEventDispatcher(MechanicManager manager, World world) {
+        this.manager = manager;
+        this.world = world;
+    }
+
+    public void register(Mechanic<?> mechanic) {
+        for (Handler handler : getHandlers(mechanic.getClass())) {
+            listen(handler.eventClass(), handler.priority());
+
+            if (handler.scope() == MechanicEventHandler.Scope.GLOBAL) {
+                globalMechanics.computeIfAbsent(handler.eventClass(), __ -> new LinkedHashSet<>()).add(mechanic);
+            }
+        }
+    }
+
+    public void unregister(Mechanic<?> mechanic) {
+        for (Handler handler : getHandlers(mechanic.getClass())) {
+            if (handler.scope() == MechanicEventHandler.Scope.GLOBAL) {
+                Set<Mechanic<?>> mechanics = globalMechanics.get(handler.eventClass());
+                if (mechanics != null) {
+                    mechanics.remove(mechanic);
+                }
+            }
+        }
+    }
+
+    private void listen(Class<? extends Event> eventClass, EventPriority priority) {
+        // only register one executor per event type and priority for this world
+        if (listening.computeIfAbsent(eventClass, __ -> EnumSet.noneOf(EventPriority.class)).add(priority)) {
+            Bukkit.getPluginManager().registerEvent(eventClass, manager, priority,
+                    (l, event) -> {
+                        if (eventClass.isInstance(event)) {
+                            dispatch(eventClass, event, priority);
+                        }
+                    }, Factorio.get());
+        }
+    }
+
+    private static Mechanic<?> getEventMechanic(Event event) {
+        if (event instanceof MechanicEvent mechanicEvent) {
+            return mechanicEvent.getMechanic();
+        } else if (event instanceof AssemblerTypeChangeEvent typeChangeEvent) {
+            return typeChangeEvent.getAssembler();
+        } else if (event instanceof MechanicLoadEvent loadEvent) {
+            return loadEvent.getMechanic();
+        } else if (event instanceof MechanicUnloadEvent unloadEvent) {
+            return unloadEvent.getMechanic();
+        }
+
+        return null;
+    }
+
+    private static Block getEventBlock(Event event) {
+        if (event instanceof BlockEvent blockEvent) {
+            return blockEvent.getBlock();
+        } else if (event instanceof PlayerInteractEvent interactEvent) {
+            return interactEvent.getClickedBlock();
+        }
+
+        return null;
+    }
+
+    private void dispatch(Class<? extends Event> eventClass, Event event, EventPriority priority) {
+        List<Mechanic<?>> relatives = new ArrayList<>();
+        Mechanic<?> at = getEventMechanic(event);
+        if (at != null) {
+            Location loc = at.getLocation();
+            if (!world.equals(loc.getWorld())) {
+                return;
+            }
+
+            for (Location part : Buildings.getLocations(at)) {
+                collectRelatives(part.getBlockX(), part.getBlockY(), part.getBlockZ(), relatives);
+            }
+        } else {
+            Block block = getEventBlock(event);
+            if (block != null) {
+                if (!world.equals(block.getWorld())) {
+                    return;
+                }
+
+                at = manager.getMechanicAt(block.getX(), block.getY(), block.getZ());
+                collectRelatives(block.getX(), block.getY(), block.getZ(), relatives);
+            }
+        }
+
+        // call mechanics listening for this event at any location
+        Set<Mechanic<?>> global = globalMechanics.get(eventClass);
+        if (global != null && !global.isEmpty()) {
+            for (Mechanic<?> mechanic : new ArrayList<>(global)) {
+                for (Handler handler : getHandlers(mechanic.getClass())) {
+                    if (handler.matches(eventClass, priority) && handler.scope() == MechanicEventHandler.Scope.GLOBAL) {
+                        handler.call(mechanic, event);
+                    }
+                }
+            }
+        }
+
+        // call mechanics at or next to the location of this event
+        for (Mechanic<?> mechanic : relatives) {
+            for (Handler handler : getHandlers(mechanic.getClass())) {
+                if (handler.matches(eventClass, priority)
+                        && (handler.scope() == MechanicEventHandler.Scope.RELATIVE
+                            || handler.scope() == MechanicEventHandler.Scope.AT && mechanic == at)) {
+                    handler.call(mechanic, event);
+                }
+            }
+        }
+    }
+
+    private void collectRelatives(int x, int y, int z, List<Mechanic<?>> relatives) {
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    Mechanic<?> mechanic = manager.getMechanicAt(x + dx, y + dy, z + dz);
+                    if (mechanic != null && !relatives.contains(mechanic)) {
+                        relatives.add(mechanic);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package dk.superawesome.factorio.mechanics;
+
+import org.bukkit.event.EventPriority;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface MechanicEventHandler {
+
+    enum Scope {
+
+        // only called for the mechanic at the event block, or the mechanic of a mechanic event
+        AT,
+
+        // called for all mechanics at or next to (also diagonally) the event block or mechanic
+        RELATIVE,
+
+        // called for all mechanics in the world with this handler, regardless of the event location
+        GLOBAL
+    }
+
+    Scope scope() default Scope.RELATIVE;
+
+    EventPriority priority() default EventPriority.NORMAL;
+
+    boolean ignoreCancelled() default false;
+}
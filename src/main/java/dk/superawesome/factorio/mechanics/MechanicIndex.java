@@ -0,0 +1,120 @@
+package dk.superawesome.factorio.mechanics;
+
+import dk.superawesome.factorio.building.Buildings;
+import dk.superawesome.factorio.util.LongMap;
+import dk.superawesome.factorio.util.statics.BlockUtil;
+import org.bukkit.Location;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+public class MechanicIndex {
+
+    private static class ChunkEntry {
+
+        // all blocks in this chunk which are part of a mechanic, keyed by their position in the chunk
+        private final LongMap<Mechanic<?>> blocks = new LongMap<>();
+        // all mechanics which has their origin in this chunk
+        private final List<Mechanic<?>> mechanics = new ArrayList<>();
+
+        private boolean isEmpty() {
+            return blocks.isEmpty() && mechanics.isEmpty();
+        }
+    }
+
+    private final LongMap<ChunkEntry> chunks = new LongMap<>();
+    private final Set<Mechanic<?>> mechanics = new HashSet<>();
+    // changed every time a mechanic is added or removed, so lookups can be cached until then
+    private int version;
+
+    public void add(Mechanic<?> mechanic) {
+        for (Location part : Buildings.getLocations(mechanic)) {
+            put(part.getBlockX(), part.getBlockY(), part.getBlockZ(), mechanic);
+        }
+
+        Location loc = mechanic.getLocation();
+        getOrCreate(loc.getBlockX(), loc.getBlockZ()).mechanics.add(mechanic);
+        mechanics.add(mechanic);
+        version++;
+    }
+
+    public void remove(Mechanic<?> mechanic) {
+        for (Location part : Buildings.getLocations(mechanic)) {
+            remove(part.getBlockX(), part.getBlockY(), part.getBlockZ(), mechanic);
+        }
+
+        Location loc = mechanic.getLocation();
+        long chunkKey = BlockUtil.getChunkKeyAt(loc.getBlockX(), loc.getBlockZ());
+        ChunkEntry entry = chunks.get(chunkKey);
+        if (entry != null) {
+            entry.mechanics.remove(mechanic);
+            if (entry.isEmpty()) {
+                chunks.remove(chunkKey);
+            }
+        }
+        mechanics.remove(mechanic);
+        version++;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    private ChunkEntry getOrCreate(int x, int z) {
+        return chunks.computeIfAbsent(BlockUtil.getChunkKeyAt(x, z), __ -> new ChunkEntry());
+    }
+
+    private void put(int x, int y, int z, Mechanic<?> mechanic) {
+        getOrCreate(x, z).blocks.put(BlockUtil.getChunkBlockKey(x, y, z), mechanic);
+    }
+
+    private void remove(int x, int y, int z, Mechanic<?> mechanic) {
+        long chunkKey = BlockUtil.getChunkKeyAt(x, z);
+        ChunkEntry entry = chunks.get(chunkKey);
+        if (entry != null) {
+            long blockKey = BlockUtil.getChunkBlockKey(x, y, z);
+            // only remove the block if it still belongs to this mechanic
+            if (entry.blocks.get(blockKey) == mechanic) {
+                entry.blocks.remove(blockKey);
+            }
+
+            if (entry.isEmpty()) {
+                chunks.remove(chunkKey);
+            }
+        }
+    }
+
+    public Mechanic<?> get(int x, int y, int z) {
+        ChunkEntry entry = chunks.get(BlockUtil.getChunkKeyAt(x, z));
+        if (entry == null) {
+            return null;
+        }
+
+        return entry.blocks.get(BlockUtil.getChunkBlockKey(x, y, z));
+    }
+
+    public boolean hasMechanicsInChunk(int chunkX, int chunkZ) {
+        ChunkEntry entry = chunks.get(BlockUtil.getChunkKey(chunkX, chunkZ));
+        return entry != null && !entry.mechanics.isEmpty();
+    }
+
+    public void forEachInChunk(int chunkX, int chunkZ, Consumer<Mechanic<?>> consumer) {
+        ChunkEntry entry = chunks.get(BlockUtil.getChunkKey(chunkX, chunkZ));
+        if (entry == null || entry.mechanics.isEmpty()) {
+            return;
+        }
+
+        // iterate over a copy, so the consumer is allowed to unload the mechanics
+        for (Mechanic<?> mechanic : entry.mechanics.toArray(new Mechanic<?>[0])) {
+            consumer.accept(mechanic);
+        }
+    }
+
+    public Collection<Mechanic<?>> getAll() {
+        return Collections.unmodifiableSet(mechanics);
+    }
+
+    public int size() {
+        return mechanics.size();
+    }
+}
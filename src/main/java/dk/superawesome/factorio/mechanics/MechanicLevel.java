@@ -11,6 +11,7 @@ public class MechanicLevel {
     public static final int XP_REQUIRES_MARK = 4;
     public static final int LEVEL_COST_MARK = 5;
     public static final int THINK_DELAY_MARK = 6;
+    public static final int TRANSFER_STACKS_MARK = 7;
 
     public interface Registry {
 
@@ -118,6 +119,11 @@ public class MechanicLevel {
         return get(mark);
     }
 
+    public int getInt(int mark, int def) {
+        Object val = get(mark);
+        return val != null ? (int) val : def;
+    }
+
     public double getDouble(int mark) {
         return get(mark);
     }
@@ -0,0 +1,113 @@
+package dk.superawesome.factorio.mechanics;
+
+import dk.superawesome.factorio.util.statics.BlockUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+public class MechanicLoader {
+
+    // each chunk is always handled by the same thread, so the loads, unloads and deletes of a mechanic stay in order
+    private final ExecutorService[] threads;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private volatile long lastWaitNanos;
+    private volatile long maxWaitNanos;
+    private volatile long lastRunNanos;
+    private volatile long maxRunNanos;
+
+    public MechanicLoader(int threads) {
+        this.threads = new ExecutorService[Math.max(1, threads)];
+        for (int i = 0; i < this.threads.length; i++) {
+            String name = "Factorio Loader #" + (i + 1);
+            this.threads[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private ExecutorService getThread(World world, long chunkKey) {
+        long hash = (chunkKey * 31 + world.getUID().hashCode()) * 0x9E3779B97F4A7C15L;
+        return threads[Math.floorMod(hash ^ (hash >>> 32), threads.length)];
+    }
+
+    public void submit(Location loc, Runnable task) {
+        submit(loc.getWorld(), BlockUtil.getChunkKeyAt(loc.getBlockX(), loc.getBlockZ()), task);
+    }
+
+    public void submit(World world, long chunkKey, Runnable task) {
+        long submitted = System.nanoTime();
+        queued.incrementAndGet();
+        getThread(world, chunkKey).execute(() -> {
+            queued.decrementAndGet();
+
+            long start = System.nanoTime();
+            lastWaitNanos = start - submitted;
+            maxWaitNanos = Math.max(maxWaitNanos, lastWaitNanos);
+            try {
+                task.run();
+            } catch (Throwable ex) {
+                Bukkit.getLogger().log(Level.SEVERE, "Error while loading mechanics", ex);
+            } finally {
+                lastRunNanos = System.nanoTime() - start;
+                maxRunNanos = Math.max(maxRunNanos, lastRunNanos);
+                completed.incrementAndGet();
+            }
+        });
+    }
+
+    public void shutdown() {
+        for (ExecutorService thread : threads) {
+            thread.shutdown();
+        }
+
+        try {
+            for (ExecutorService thread : threads) {
+                if (!thread.awaitTermination(10, TimeUnit.SECONDS)) {
+                    Bukkit.getLogger().warning("Mechanic loader did not finish in time, " + queued.get() + " tasks left");
+                    return;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getThreads() {
+        return threads.length;
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getLastWaitNanos() {
+        return lastWaitNanos;
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    public long getLastRunNanos() {
+        return lastRunNanos;
+    }
+
+    public long getMaxRunNanos() {
+        return maxRunNanos;
+    }
+}
@@ -1,16 +1,17 @@
 package dk.superawesome.factorio.mechanics;
 
-import com.google.common.collect.Sets;
 import dk.superawesome.factorio.Factorio;
 import dk.superawesome.factorio.api.events.*;
 import dk.superawesome.factorio.building.Building;
 import dk.superawesome.factorio.building.Buildings;
+import dk.superawesome.factorio.mechanics.db.ChunkPrefetch;
 import dk.superawesome.factorio.mechanics.db.StorageException;
 import dk.superawesome.factorio.mechanics.routes.Routes;
 import dk.superawesome.factorio.mechanics.routes.events.pipe.PipePutEvent;
-import dk.superawesome.factorio.mechanics.routes.events.pipe.PipeSuckEvent;
 import dk.superawesome.factorio.mechanics.transfer.Container;
 import dk.superawesome.factorio.mechanics.transfer.TransferCollection;
+import dk.superawesome.factorio.util.LongMap;
+import dk.superawesome.factorio.util.Tick;
 import dk.superawesome.factorio.util.WorldGuard;
 import dk.superawesome.factorio.util.db.Query;
 import dk.superawesome.factorio.util.db.Types;
@@ -23,7 +24,6 @@ import org.bukkit.block.Sign;
 import org.bukkit.block.sign.Side;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
-import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.SignChangeEvent;
 import org.bukkit.event.world.WorldSaveEvent;
@@ -31,29 +31,33 @@ import org.bukkit.util.BlockVector;
 
 import java.sql.SQLException;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.*;
 import java.util.logging.Level;
 
 public class MechanicManager implements Listener {
 
-    private static final ExecutorService LOADING_THREAD = Executors.newSingleThreadExecutor();
+    // the number of mechanics serialized each tick while saving a world
+    private static final int SAVED_PER_TICK = 200;
+
     private final World world;
     private final MechanicStorageContext.Provider contextProvider;
+    private final MechanicEventDispatcher dispatcher;
 
     public MechanicManager(World world, MechanicStorageContext.Provider contextProvider) {
         this.world = world;
         this.contextProvider = contextProvider;
+        this.dispatcher = new MechanicEventDispatcher(this, world);
 
         Bukkit.getPluginManager().registerEvents(this, Factorio.get());
-
-        Bukkit.getScheduler().runTaskTimer(Factorio.get(), this::handleThinking, 0L, 1L);
     }
 
-    private final Map<BlockVector, Mechanic<?>> mechanics = new HashMap<>();
-    private final Map<BlockVector, MechanicProfile<?>> loadingMechanics = new HashMap<>();
-    private final Queue<ThinkingMechanic> thinkingMechanics = new LinkedList<>();
+    private final MechanicIndex mechanics = new MechanicIndex();
+    private final LongMap<MechanicProfile<?>> loadingMechanics = new LongMap<>();
+    private final ThinkScheduler thinkScheduler = new ThinkScheduler(Tick.currentTick);
+    private final AtomicBoolean saving = new AtomicBoolean();
+    private final AtomicLong deferredLoads = new AtomicLong();
 
     public void loadMechanics() {
         for (Chunk chunk : world.getLoadedChunks()) {
@@ -61,10 +65,32 @@ public class MechanicManager implements Listener {
         }
     }
 
+    public void loadMechanicsWhenReady(Chunk chunk) {
+        // the chunk could have been unloaded again in the meantime
+        if (!chunk.isLoaded()) {
+            return;
+        }
+
+        if (this.saving.get()) {
+            // don't compete with the running save for connections, try again when it is done
+            this.deferredLoads.incrementAndGet();
+            Bukkit.getScheduler().runTaskLater(Factorio.get(), () -> loadMechanicsWhenReady(chunk), 20L);
+            return;
+        }
+
+        loadMechanics(chunk);
+    }
+
+    public long getDeferredLoads() {
+        return deferredLoads.get();
+    }
+
     public void loadMechanics(Chunk chunk) {
+        // read all the stored mechanics in the chunk at once, instead of reading each of them
+        ChunkPrefetch prefetch = contextProvider.prefetch(world);
         for (BlockState state : chunk.getTileEntities()) {
-            BlockVector vec = BlockUtil.getVec(state.getLocation());
-            if (!mechanics.containsKey(vec) && !loadingMechanics.containsKey(vec)
+            if (getMechanicAt(state.getX(), state.getY(), state.getZ()) == null
+                    && !loadingMechanics.containsKey(BlockUtil.getBlockKey(state.getX(), state.getY(), state.getZ()))
                     && state instanceof Sign sign
                     && (Tag.WALL_SIGNS.isTagged(state.getType()) || Tag.STANDING_SIGNS.isTagged(state.getType()))) {
 
@@ -74,11 +100,21 @@ public class MechanicManager implements Listener {
                     Building building = profile.get().getBuilding(Tag.WALL_SIGNS.isTagged(state.getType()));
                     List<Location> locations = Buildings.getLocations(building, getBlockOn(sign).getLocation(), BlockUtil.getFacing(state.getBlock()));
                     for (Location loc : locations) {
-                        loadingMechanics.put(BlockUtil.getVec(loc), profile.get());
+                        loadingMechanics.put(BlockUtil.getBlockKey(loc), profile.get());
                     }
 
                     // load this mechanic
-                    loadMechanic(sign, loaded -> {
+                    loadMechanic(sign, prefetch, loaded -> {
+                        // remove from loading mechanics
+                        for (Location loc : locations) {
+                            loadingMechanics.remove(BlockUtil.getBlockKey(loc));
+                        }
+
+                        if (!chunk.isLoaded()) {
+                            // the chunk was unloaded while loading this mechanic
+                            return;
+                        }
+
                         if (!loaded) {
                             // unable to load mechanic properly due to corrupt data
                             state.getBlock().setType(Material.AIR);
@@ -90,44 +126,44 @@ public class MechanicManager implements Listener {
                         }
 
                         Routes.removeNearbyRoutes(state.getBlock());
-
-                        // remove from loading mechanics
-                        for (Location loc : locations) {
-                            loadingMechanics.remove(BlockUtil.getVec(loc));
-                        }
                     });
                 }
             }
         }
     }
 
-    public void handleThinking() {
-        for (ThinkingMechanic thinking : this.thinkingMechanics) {
-            if (thinking.getThinkDelayHandler().ready()) {
-                thinking.think();
-            }
-        }
+    public void handleThinking(long deadline) {
+        this.thinkScheduler.advance(Tick.currentTick, deadline);
+    }
+
+    public ThinkScheduler getThinkScheduler() {
+        return thinkScheduler;
     }
 
     public Collection<Mechanic<?>> getAllMechanics() {
-        return mechanics.values();
+        return mechanics.getAll();
     }
 
     public void load(MechanicProfile<?> profile, Query.CheckedSupplier<MechanicStorageContext, StorageException> contextSupplier, Location loc, BlockFace rotation, boolean hasWallSign, boolean isBuild, Consumer<Mechanic<?>> callback) {
-        LOADING_THREAD.submit(() -> {
+        Factorio.get().getMechanicLoader().submit(loc, () -> {
             try {
                 Mechanic<?> mechanic = profile.getFactory().create(loc, rotation, contextSupplier.get(), hasWallSign, isBuild);
 
                 Bukkit.getScheduler().runTask(Factorio.get(), () -> {
-                    if (mechanic instanceof ThinkingMechanic tm) {
-                        this.thinkingMechanics.add(tm);
+                    // the chunk was unloaded before the mechanic finished loading, it is loaded again together with the chunk
+                    // nothing has changed since it was read, so it is dropped without saving it
+                    if (!isBuild && !loc.getWorld().isChunkLoaded(loc.getBlockX() >> 4, loc.getBlockZ() >> 4)) {
+                        callback.accept(null);
+                        return;
                     }
 
-                    for (Location part : Buildings.getLocations(mechanic)) {
-                        this.mechanics.put(BlockUtil.getVec(part), mechanic);
+                    if (mechanic instanceof ThinkingMechanic tm) {
+                        this.thinkScheduler.schedule(tm);
                     }
 
-                    Bukkit.getPluginManager().registerEvents(mechanic, Factorio.get());
+                    this.mechanics.add(mechanic);
+
+                    this.dispatcher.register(mechanic);
 
                     callback.accept(mechanic);
                 });
@@ -138,94 +174,115 @@ public class MechanicManager implements Listener {
     }
 
     public void unregister(Mechanic<?> mechanic) {
-        for (Location loc : Buildings.getLocations(mechanic)) {
-            this.mechanics.remove(BlockUtil.getVec(loc));
-        }
+        this.mechanics.remove(mechanic);
 
-        if (mechanic instanceof ThinkingMechanic) {
-            this.thinkingMechanics.removeIf(m -> mechanic == m);
+        if (mechanic instanceof ThinkingMechanic tm) {
+            this.thinkScheduler.cancel(tm);
         }
 
-        for (HandlerList list : HandlerList.getHandlerLists()) {
-            list.unregister(mechanic);
-        }
+        this.dispatcher.unregister(mechanic);
     }
 
-    public void unload(Mechanic<?> mechanic, boolean async) {
+    public void unload(Mechanic<?> mechanic) {
+        // let the mechanics next to this one drop their references to it, so they don't transfer to a mechanic which is no longer loaded
+        Bukkit.getPluginManager().callEvent(new MechanicUnloadEvent(mechanic));
+
         unregister(mechanic);
 
-        if (async) {
-            LOADING_THREAD.submit(mechanic::unload);
-        } else {
-            mechanic.unload();
-        }
+        // serialize the mechanic here while nothing else can change it, only the bytes are written by the write queue
+        mechanic.unload();
     }
 
-    public void unload(Mechanic<?> mechanic) {
-        unload(mechanic, true);
+    public void unloadMechanics(Chunk chunk) {
+        // unload all mechanics in this chunk
+        List<Mechanic<?>> unload = new ArrayList<>();
+        forEachInChunk(chunk, unload::add);
+        unload.forEach(this::unload);
     }
 
-    public void unloadMechanics(Chunk chunk, boolean async) {
-        // unload all mechanics in this chunk
-        for (Mechanic<?> mechanic : Sets.newHashSet(mechanics.values())) {
-            if (mechanic.getLocation().getChunk().equals(chunk)) {
-                unload(mechanic, async);
-            }
-        }
+    public void forEachInChunk(Chunk chunk, Consumer<Mechanic<?>> consumer) {
+        forEachInChunk(chunk.getX(), chunk.getZ(), consumer);
+    }
+
+    public void forEachInChunk(int chunkX, int chunkZ, Consumer<Mechanic<?>> consumer) {
+        mechanics.forEachInChunk(chunkX, chunkZ, consumer);
+    }
+
+    public boolean hasMechanicsInChunk(Chunk chunk) {
+        return mechanics.hasMechanicsInChunk(chunk.getX(), chunk.getZ());
     }
 
     public MechanicProfile<?> getLoadingMechanic(Location loc) {
-        return loadingMechanics.get(BlockUtil.getVec(loc));
+        return loadingMechanics.get(BlockUtil.getBlockKey(loc));
+    }
+
+    public MechanicProfile<?> getLoadingMechanic(int x, int y, int z) {
+        return loadingMechanics.get(BlockUtil.getBlockKey(x, y, z));
     }
 
     public Mechanic<?> getMechanicAt(Location loc) {
-        return getMechanicAt(BlockUtil.getVec(loc));
+        return getMechanicAt(loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
     }
 
     public Mechanic<?> getMechanicAt(BlockVector vec) {
-        return mechanics.get(vec);
+        return getMechanicAt(vec.getBlockX(), vec.getBlockY(), vec.getBlockZ());
     }
 
-    @EventHandler
-    public void onPipeSuck(PipeSuckEvent event) {
-        if (event.getBlock().getWorld().equals(this.world)) {
-            Mechanic<?> mechanic = getMechanicAt(event.getLocation());
-            if (mechanic instanceof TransferCollection tc) {
-                event.setTransfer(tc);
-            }
-        }
+    public Mechanic<?> getMechanicAt(int x, int y, int z) {
+        return mechanics.get(x, y, z);
     }
 
-    @EventHandler
-    public void onPipePut(PipePutEvent event) {
-        if (event.getBlock().getWorld().equals(this.world)) {
-            Mechanic<?> mechanic = getMechanicAt(event.getBlock().getLocation());
-            if (mechanic instanceof Container<?> c && c.accepts(event.getTransfer()) && mechanic != event.getFrom()) {
-                doTransfer(c, event.getTransfer(), event);
-            }
+    public int getMechanicsVersion() {
+        return mechanics.getVersion();
+    }
+
+    public void pipePut(Mechanic<?> mechanic, PipePutEvent event) {
+        if (mechanic instanceof Container<?> c && c.accepts(event.getTransfer()) && mechanic != event.getFrom()) {
+            doTransfer(c, event.getTransfer(), event);
         }
     }
 
     @EventHandler
     public void onWorldSave(WorldSaveEvent event) {
         if (event.getWorld().equals(this.world)) {
-            for (Mechanic<?> mechanic : new ArrayList<>(mechanics.values())) {
-                try {
-                    mechanic.onUpdate();
-                } catch (Exception ex) {
-                    Bukkit.getLogger().log(Level.SEVERE, "Error updating mechanic: " + mechanic.getLocation(), ex);
-                }
+            // the previous save is still running, the changes are saved by the next one instead
+            if (!this.saving.compareAndSet(false, true)) {
+                Bukkit.getLogger().warning("Skipping save of mechanics in " + this.world.getName() + ", the previous save is still running");
+                return;
             }
 
-            Bukkit.getScheduler().runTaskAsynchronously(Factorio.get(), () -> {
-                for (Mechanic<?> mechanic : new ArrayList<>(mechanics.values())) {
+            // serialize the mechanics on the main thread, a part of them each tick so a large world doesn't hold up a single tick
+            // only the writes are done asynchronously, when all the mechanics are serialized
+            Iterator<Mechanic<?>> save = new ArrayList<>(mechanics.getAll()).iterator();
+            Bukkit.getScheduler().runTaskTimer(Factorio.get(), task -> {
+                for (int i = 0; i < SAVED_PER_TICK && save.hasNext(); i++) {
+                    Mechanic<?> mechanic = save.next();
+                    if (!mechanic.exists()) {
+                        // already saved when it was unloaded
+                        continue;
+                    }
+
                     try {
+                        mechanic.onUpdate();
                         mechanic.save();
                     } catch (Exception ex) {
                         Bukkit.getLogger().log(Level.SEVERE, "Error saving mechanic: " + mechanic.getLocation(), ex);
                     }
                 }
-            });
+
+                if (!save.hasNext()) {
+                    task.cancel();
+
+                    // write the changed mechanics now, instead of waiting for the next flush
+                    Bukkit.getScheduler().runTaskAsynchronously(Factorio.get(), () -> {
+                        try {
+                            Factorio.get().getMechanicController().getWriteQueue().flush();
+                        } finally {
+                            this.saving.set(false);
+                        }
+                    });
+                }
+            }, 0L, 1L);
         }
     }
 
@@ -305,16 +362,12 @@ public class MechanicManager implements Listener {
 
         Routes.removeNearbyRoutes(mechanic.getLocation().getBlock());
 
-        for (Location loc : Buildings.getLocations(mechanic)) {
-            this.mechanics.remove(BlockUtil.getVec(loc));
-        }
+        this.mechanics.remove(mechanic);
 
         mechanic.move(to, rot, sign);
         mechanic.onBlocksLoaded(player);
 
-        for (Location loc : Buildings.getLocations(mechanic)) {
-            this.mechanics.put(BlockUtil.getVec(loc), mechanic);
-        }
+        this.mechanics.add(mechanic);
 
         // player stuff
         to.getWorld().playSound(to, Sound.BLOCK_ANVIL_PLACE, 0.375f, 1f);
@@ -411,6 +464,10 @@ public class MechanicManager implements Listener {
     }
 
     public void loadMechanic(Sign sign, Consumer<Boolean> callback) {
+        loadMechanic(sign, null, callback);
+    }
+
+    public void loadMechanic(Sign sign, ChunkPrefetch prefetch, Consumer<Boolean> callback) {
         Optional<MechanicProfile<?>> profile = getProfileFrom(sign);
         Block on = getBlockOn(sign);
         if (on != null && profile.isPresent()) {
@@ -421,9 +478,15 @@ public class MechanicManager implements Listener {
             }
 
             BlockFace face = BlockUtil.getFacing(sign.getBlock());
-            Query.CheckedSupplier<MechanicStorageContext, StorageException> contextSupplier = () -> contextProvider.findAt(on.getLocation());
+            Query.CheckedSupplier<MechanicStorageContext, StorageException> contextSupplier = () -> prefetch != null ? contextProvider.findAt(on.getLocation(), prefetch) : contextProvider.findAt(on.getLocation());
             // load the mechanic
             loadMechanicFromSign(profile.get(), contextSupplier, sign, on, face, false, mechanic -> {
+                if (mechanic == null) {
+                    // dropped because the chunk was unloaded in the meantime
+                    callback.accept(true);
+                    return;
+                }
+
                 // ensure only standing signs for buildings that allow it
                 if (Tag.STANDING_SIGNS.isTagged(sign.getType()) && mechanic.getBuilding().deniesStandingSign()) {
                     callback.accept(false);
@@ -431,6 +494,7 @@ public class MechanicManager implements Listener {
                 }
 
                 mechanic.onBlocksLoaded(null);
+                fastForward(mechanic);
 
                 MechanicLoadEvent postEvent = new MechanicLoadEvent(mechanic);
                 Bukkit.getPluginManager().callEvent(postEvent);
@@ -440,6 +504,20 @@ public class MechanicManager implements Listener {
         }
     }
 
+    private void fastForward(Mechanic<?> mechanic) {
+        // catch up what this mechanic would have produced while its chunk was unloaded
+        if (mechanic instanceof ThinkingMechanic thinking && mechanic.getUnloadedAt() > 0) {
+            long ticks = this.world.getFullTime() - mechanic.getUnloadedAt();
+            if (ticks > 0) {
+                try {
+                    thinking.fastForward(ticks);
+                } catch (Exception ex) {
+                    Bukkit.getLogger().log(Level.SEVERE, "Failed to fast-forward mechanic " + mechanic + ", " + mechanic.getLocation(), ex);
+                }
+            }
+        }
+    }
+
     private void loadMechanicFromSign(MechanicProfile<?> profile, Query.CheckedSupplier<MechanicStorageContext, StorageException> contextSupplier, Sign sign, Block on, BlockFace rotation, boolean isBuild, Consumer<Mechanic<?>> callback) {
         // load this mechanic
         load(profile, contextSupplier, on.getLocation(), rotation, Tag.WALL_SIGNS.isTagged(sign.getType()), isBuild, mechanic -> {
@@ -490,7 +568,7 @@ public class MechanicManager implements Listener {
 
         // unload and delete this mechanic
         unregister(mechanic);
-        LOADING_THREAD.submit(() -> {
+        Factorio.get().getMechanicLoader().submit(mechanic.getLocation(), () -> {
             try {
                 if (!Factorio.get().getContextProvider().deleteAt(mechanic.getLocation()))  {
                     callback.accept(false);
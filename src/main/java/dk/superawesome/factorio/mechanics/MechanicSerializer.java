@@ -1,16 +1,9 @@
 package dk.superawesome.factorio.mechanics;
 
-import dk.superawesome.factorio.util.db.Query;
-import org.bukkit.Material;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.util.io.BukkitObjectInputStream;
-import org.bukkit.util.io.BukkitObjectOutputStream;
-
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 
+// the fixed length format of the management column, the data of mechanics is written as records, see RecordWriter
 public class MechanicSerializer {
 
     public UUID readUUID(ByteArrayInputStream stream) throws IOException {
@@ -29,97 +22,54 @@ public class MechanicSerializer {
         writeLong(stream, uuid.getLeastSignificantBits());
     }
 
-    public void writeItemStack(ByteArrayOutputStream stream, ItemStack stack) throws IOException {
-        if (stack == null || stack.getType() == Material.AIR) {
-            stream.write(0);
-            return;
-        }
-
-        String mat = stack.getType().name();
-        byte[] bytes = mat.getBytes(StandardCharsets.UTF_8);
-        stream.write(bytes.length);
-        stream.write(bytes, 0, bytes.length);
-        writeInt(stream, stack.getAmount());
-
-        if (stack.hasItemMeta()) {
-            stream.write(1);
-            ObjectOutputStream output = new BukkitObjectOutputStream(stream);
-            output.writeObject(stack.getItemMeta());
-        } else {
-            stream.write(0);
+    // big endian like DataInputStream, read directly from the stream instead of wrapping it
+    private long readFixed(ByteArrayInputStream stream, int bytes) {
+        if (stream.available() < bytes) {
+            return 0;
         }
-    }
 
-    public ItemStack readItemStack(ByteArrayInputStream stream) throws IOException, ClassNotFoundException {
-        int l = stream.read();
-        if (l > 0) {
-            byte[] buf = new byte[l];
-            int len = stream.read(buf, 0, l);
-
-            int a = readInt(stream);
-            boolean hasMeta = stream.read() == 1;
-            if (len == l && a > 0) {
-                String mat = new String(buf);
-                ItemStack stack = new ItemStack(Material.valueOf(mat), a);
-
-                if (hasMeta) {
-                    ObjectInputStream input = new BukkitObjectInputStream(stream);
-                    ItemMeta meta = (ItemMeta) input.readObject();
-                    stack.setItemMeta(meta);
-                }
-
-                if (stack.getType() != Material.AIR) {
-                    return stack;
-                }
-            }
+        long val = 0;
+        for (int i = 0; i < bytes; i++) {
+            val = (val << 8) | stream.read();
         }
-
-        return null;
+        return val;
     }
 
-    public <T> T readData(ByteArrayInputStream stream, int bytesRequired, T or, Query.CheckedFunction<DataInputStream, T> function) throws IOException {
-        if (stream.available() >= bytesRequired) {
-            DataInputStream dataStream = new DataInputStream(stream);
-            return function.sneaky(dataStream);
+    private void writeFixed(ByteArrayOutputStream stream, long val, int bytes) {
+        for (int i = (bytes - 1) * 8; i >= 0; i -= 8) {
+            stream.write((int) (val >>> i));
         }
-
-        return or;
-    }
-
-    public void writeData(ByteArrayOutputStream stream, Query.CheckedConsumer<DataOutputStream> function) {
-        DataOutputStream dataStream = new DataOutputStream(stream);
-        function.sneaky(dataStream);
     }
 
     public int readInt(ByteArrayInputStream stream) throws IOException {
-        return readData(stream, 4, 0, DataInputStream::readInt);
+        return (int) readFixed(stream, 4);
     }
 
     public void writeInt(ByteArrayOutputStream stream, int val) throws IOException {
-        writeData(stream, data -> data.writeInt(val));
+        writeFixed(stream, val, 4);
     }
 
     public long readLong(ByteArrayInputStream stream) throws IOException {
-        return readData(stream, 8, 0L, DataInputStream::readLong);
+        return readFixed(stream, 8);
     }
 
     public void writeLong(ByteArrayOutputStream stream, long val) throws IOException {
-        writeData(stream, data -> data.writeLong(val));
+        writeFixed(stream, val, 8);
     }
 
     public double readDouble(ByteArrayInputStream stream) throws IOException {
-        return readData(stream, 8, 0d, DataInputStream::readDouble);
+        return Double.longBitsToDouble(readFixed(stream, 8));
     }
 
     public void writeDouble(ByteArrayOutputStream stream, double val) throws IOException {
-        writeData(stream, data -> data.writeDouble(val));
+        writeFixed(stream, Double.doubleToLongBits(val), 8);
     }
 
     public boolean readBoolean(ByteArrayInputStream stream) throws IOException {
-        return readData(stream, 1, false, DataInputStream::readBoolean);
+        return readFixed(stream, 1) != 0;
     }
 
     public void writeBoolean(ByteArrayOutputStream stream, boolean val) throws IOException {
-        writeData(stream, data -> data.writeBoolean(val));
+        writeFixed(stream, val ? 1 : 0, 1);
     }
 }
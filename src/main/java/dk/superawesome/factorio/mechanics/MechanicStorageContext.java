@@ -1,20 +1,22 @@
 package dk.superawesome.factorio.mechanics;
 
 
+import dk.superawesome.factorio.mechanics.db.ChunkPrefetch;
+import dk.superawesome.factorio.mechanics.db.DataCodec;
 import dk.superawesome.factorio.mechanics.db.MechanicController;
+import dk.superawesome.factorio.mechanics.db.MechanicWriteQueue;
 import dk.superawesome.factorio.mechanics.db.StorageException;
-import dk.superawesome.factorio.util.db.Query;
-import org.bukkit.Bukkit;
+import dk.superawesome.factorio.util.db.Types;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.block.BlockFace;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.sql.SQLException;
-import java.util.Base64;
+import java.util.Arrays;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.IntStream;
 
 public class MechanicStorageContext {
 
@@ -34,6 +36,18 @@ public class MechanicStorageContext {
             }
         }
 
+        public MechanicStorageContext findAt(Location loc, ChunkPrefetch prefetch) throws StorageException {
+            try {
+                return prefetch.findAt(loc);
+            } catch (IOException | SQLException ex) {
+                throw new StorageException(ex);
+            }
+        }
+
+        public ChunkPrefetch prefetch(World world) {
+            return new ChunkPrefetch(controller, world);
+        }
+
         public MechanicStorageContext create(Location loc, BlockFace rot, String type, UUID owner) throws StorageException {
             try {
                 return controller.create(loc, rot, type, owner);
@@ -51,48 +65,54 @@ public class MechanicStorageContext {
         }
     }
 
-    public static String encode(ByteArrayOutputStream stream) {
-        byte[] bytes = stream.toByteArray();
-        return Base64.getEncoder().encodeToString(bytes);
-    }
-
-    public static ByteArrayInputStream decode(String data) {
-        return new ByteArrayInputStream(Base64.getDecoder().decode(data));
-    }
-
-    public static void upload(ByteArrayOutputStream stream, Query.CheckedConsumer<String> data, String currentData) throws SQLException {
-        // check if either new or current data is valid
-        // if none of them are, don't allow this upload because it doesn't matter anyway
-        if (hasData(stream.toByteArray()) || hasData(decode(currentData).readAllBytes())) {
-            data.<SQLException>sneaky(encode(stream));
-        }
-    }
-
     public static boolean hasData(byte[] bytes) {
-        return IntStream.range(0, bytes.length).map(i -> bytes[i]).anyMatch(b -> b > 0);
-    }
+        for (byte b : bytes) {
+            if (b > 0) {
+                return true;
+            }
+        }
 
-    public static <E extends Exception> ByteArrayInputStream getData(Query.CheckedSupplier<String, E> data) throws E {
-        return decode(data.sneaky());
+        return false;
     }
 
     private final MechanicController controller;
     private final Management fallbackManagement;
 
+    // the columns as they were last read or written, so a mechanic is only written when any of them are changed
     private int lastLevel;
     private double lastXP;
-    private Management lastManagement;
+    private long lastUnloadedAt;
+    private byte[] lastManagement;
+    private byte[] lastData;
+    private boolean lastRecord;
+    // the columns were read as Base64, so they are written again in the binary format even if unchanged
+    private boolean legacy;
+    // the columns read together with the rest of the chunk, used instead of reading each of them while loading
+    private final MechanicController.StoredMechanic stored;
 
     private Location loc;
 
-    public MechanicStorageContext(MechanicController controller, Location location, Management fallbackManagement) {
+    public MechanicStorageContext(MechanicController controller, Location location, Management fallbackManagement, byte[] managementData, boolean legacy) {
+        this(controller, location, fallbackManagement, managementData, legacy, null);
+    }
+
+    public MechanicStorageContext(MechanicController controller, Location location, Management fallbackManagement, byte[] managementData, boolean legacy, MechanicController.StoredMechanic stored) {
         this.controller = controller;
         this.loc = location;
         this.fallbackManagement = fallbackManagement;
+        this.lastManagement = managementData;
+        this.legacy = legacy;
+        this.stored = stored;
     }
 
-    public Management load(Mechanic<?> mechanic) throws SQLException, IOException {
-        return this.controller.load(mechanic);
+    public synchronized Management load(Mechanic<?> mechanic) throws SQLException, IOException {
+        Management management = this.stored != null ? this.controller.load(mechanic, this.stored) : this.controller.load(mechanic);
+        if (mechanic.getLevel() != null) {
+            this.lastLevel = mechanic.getLevel().lvl();
+        }
+        this.lastXP = mechanic.getXP();
+
+        return management;
     }
 
     public Location getLocation() {
@@ -115,8 +135,16 @@ public class MechanicStorageContext {
         return getController().getMechanicSerializer();
     }
 
-    public ByteArrayInputStream getData() throws SQLException {
-        return getData(() -> this.controller.getData(this.loc));
+    public synchronized RecordReader getRecord() throws SQLException, IOException {
+        byte[] data = this.stored != null ? this.stored.data() : this.controller.getData(this.loc);
+        this.legacy |= DataCodec.isLegacy(data);
+        this.lastRecord = DataCodec.isRecord(data);
+
+        return new RecordReader(this.lastData = DataCodec.decode(data), this.lastRecord);
+    }
+
+    public RecordWriter newRecord(int version) {
+        return RecordWriter.get(version);
     }
 
     public Management getFallbackManagement() {
@@ -124,29 +152,50 @@ public class MechanicStorageContext {
     }
 
     public Management getManagement() throws SQLException, IOException {
-        ByteArrayInputStream stream = getData(() -> this.controller.getManagementData(this.loc));
+        ByteArrayInputStream stream = new ByteArrayInputStream(DataCodec.decode(this.controller.getManagementData(this.loc)));
         if (stream.available() == 0) {
             // return fallback management if it failed to poll from db
             return this.fallbackManagement;
         }
 
-        return this.lastManagement = this.controller.getManagementSerializer().deserialize(stream);
+        return this.controller.getManagementSerializer().deserialize(stream);
     }
 
-    public void uploadData(ByteArrayOutputStream stream) throws SQLException {
-        upload(stream, base64 -> this.controller.setData(this.loc, base64), this.controller.getData(this.loc));
-    }
+    // called on the main thread, synchronized with load and the getters because those run on the loader thread
+    public synchronized void submit(String type, BlockFace rot, int level, double xp, Management management, long unloadedAt, byte[] record) throws IOException {
+        byte[] managementData = this.controller.getManagementSerializer().serialize(management).toByteArray();
+        // check if either new or current data is valid
+        // if none of them are, the new data is not used because it doesn't matter anyway
+        if (record != null && !RecordReader.hasData(record) && (this.lastData == null || !hasData(this.lastData))) {
+            record = null;
+        }
+        // saved data is always a record, otherwise the data is kept as it was read
+        boolean isRecord = record != null || this.lastRecord;
+        byte[] data = Optional.ofNullable(record).orElse(this.lastData);
 
-    public void uploadManagement(Management management) throws SQLException, IOException {
-        if (this.lastManagement != null && this.lastManagement.equals(management)) {
+        if (!this.legacy && level == this.lastLevel && xp == this.lastXP && unloadedAt == this.lastUnloadedAt
+                && Arrays.equals(managementData, this.lastManagement) && Arrays.equals(data, this.lastData) && isRecord == this.lastRecord) {
+            // nothing has changed since the last write
             return;
         }
 
-        ByteArrayOutputStream stream = this.controller.getManagementSerializer().serialize(management);
-        upload(stream, base64 -> this.controller.setManagement(this.loc, base64), this.controller.getManagementData(this.loc));
+        // only encode the columns which are actually written
+        this.controller.getWriteQueue().submit(new MechanicWriteQueue.Write(type, Types.LOCATION.convert(this.loc), this.loc.getWorld().getName(), this.loc.getBlockX(), this.loc.getBlockY(), this.loc.getBlockZ(), rot.name(), level, xp,
+                DataCodec.encode(managementData), data != null ? DataCodec.encode(data, isRecord) : null, unloadedAt));
+        this.legacy = false;
+        this.lastLevel = level;
+        this.lastXP = xp;
+        this.lastUnloadedAt = unloadedAt;
+        this.lastManagement = managementData;
+        this.lastData = data;
+        this.lastRecord = isRecord;
     }
 
     public boolean hasContext() throws SQLException {
+        if (this.stored != null) {
+            return true;
+        }
+
         return this.controller.exists(this.loc);
     }
 
@@ -155,25 +204,19 @@ public class MechanicStorageContext {
         return (T) this.controller.get(this.loc, column, result -> result.getObject(column));
     }
 
-    public int getLevel() throws SQLException {
+    public synchronized int getLevel() throws SQLException {
         return this.lastLevel = this.controller.getLevel(this.loc);
     }
 
-    public void setLevel(int level) throws SQLException {
-        if (this.lastLevel == level) {
-            return;
-        }
-        this.controller.setLevel(this.loc, level);
-    }
-
-    public double getXP() throws SQLException {
+    public synchronized double getXP() throws SQLException {
         return this.lastXP = this.controller.getXP(this.loc);
     }
 
-    public void setXP(double xp) throws SQLException {
-        if (this.lastXP == xp) {
-            return;
+    public synchronized long getUnloadedAt() throws SQLException {
+        if (this.stored != null) {
+            return this.lastUnloadedAt = this.stored.unloaded();
         }
-        this.controller.setXP(this.loc, xp);
+
+        return this.lastUnloadedAt = this.controller.getUnloadedAt(this.loc);
     }
 }
@@ -0,0 +1,203 @@
+package dk.superawesome.factorio.mechanics;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.util.io.BukkitObjectInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.charset.StandardCharsets;
+
+// reads the data of a mechanic written by RecordWriter
+// data written before records is read as version 0, with integers of a fixed length like DataInputStream
+// fields missing at the end of the data are read as zero, so fields can be added to newer versions of a record
+public class RecordReader {
+
+    private final byte[] bytes;
+    private final int version;
+    private int pos;
+
+    public RecordReader(byte[] bytes, boolean record) throws IOException {
+        this.bytes = bytes;
+        this.version = record ? readVarInt() : 0;
+    }
+
+    // if any of the fields of a record written by RecordWriter are not zero
+    public static boolean hasData(byte[] record) {
+        int pos = 0;
+        // skip the version
+        while (pos < record.length && (record[pos] & 0x80) != 0) {
+            pos++;
+        }
+        for (pos++; pos < record.length; pos++) {
+            if (record[pos] != 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public int getVersion() {
+        return this.version;
+    }
+
+    public boolean isLegacy() {
+        return this.version == 0;
+    }
+
+    public int remaining() {
+        return this.bytes.length - this.pos;
+    }
+
+    public int readUnsignedByte() {
+        if (this.pos < this.bytes.length) {
+            return this.bytes[this.pos++] & 0xFF;
+        }
+
+        return -1;
+    }
+
+    public boolean readBoolean() {
+        return readUnsignedByte() > 0;
+    }
+
+    public int readVarInt() throws IOException {
+        return (int) readVarLong(5);
+    }
+
+    public long readVarLong() throws IOException {
+        return readVarLong(10);
+    }
+
+    private long readVarLong(int maxBytes) throws IOException {
+        long val = 0;
+        for (int i = 0; i < maxBytes; i++) {
+            if (this.pos >= this.bytes.length) {
+                if (i == 0) {
+                    return 0;
+                }
+                throw new IOException("Record ended in the middle of a number");
+            }
+
+            byte b = this.bytes[this.pos++];
+            val |= (long) (b & 0x7F) << (i * 7);
+            if ((b & 0x80) == 0) {
+                return val;
+            }
+        }
+
+        throw new IOException("Number in record is too long");
+    }
+
+    private long readFixed(int bytes) {
+        if (remaining() < bytes) {
+            return 0;
+        }
+
+        long val = 0;
+        for (int i = 0; i < bytes; i++) {
+            val = (val << 8) | (this.bytes[this.pos++] & 0xFF);
+        }
+        return val;
+    }
+
+    public int readInt() throws IOException {
+        if (isLegacy()) {
+            return (int) readFixed(4);
+        }
+
+        int val = readVarInt();
+        return (val >>> 1) ^ -(val & 1);
+    }
+
+    public long readLong() throws IOException {
+        if (isLegacy()) {
+            return readFixed(8);
+        }
+
+        long val = readVarLong();
+        return (val >>> 1) ^ -(val & 1);
+    }
+
+    public double readDouble() {
+        return Double.longBitsToDouble(readFixed(8));
+    }
+
+    public byte[] readBytes() throws IOException {
+        int length = readVarInt();
+        if (length < 0 || length > remaining()) {
+            throw new IOException("Invalid length " + length + " with " + remaining() + " bytes left");
+        }
+
+        byte[] read = new byte[length];
+        System.arraycopy(this.bytes, this.pos, read, 0, length);
+        this.pos += length;
+        return read;
+    }
+
+    public String readString() throws IOException {
+        return new String(readBytes(), StandardCharsets.UTF_8);
+    }
+
+    public ItemStack readItemStack() throws IOException, ClassNotFoundException {
+        if (isLegacy()) {
+            return readLegacyItemStack();
+        }
+
+        int amount = readVarInt();
+        if (amount <= 0) {
+            return null;
+        }
+
+        ItemStack stack = new ItemStack(Material.valueOf(readString()), amount);
+        if (readBoolean()) {
+            int length = readVarInt();
+            if (length < 0 || length > remaining()) {
+                throw new IOException("Invalid length of item meta " + length);
+            }
+
+            int end = this.pos + length;
+            stack.setItemMeta(readItemMeta(length));
+            this.pos = end;
+        }
+
+        return stack.getType() != Material.AIR ? stack : null;
+    }
+
+    private ItemStack readLegacyItemStack() throws IOException, ClassNotFoundException {
+        int l = readUnsignedByte();
+        if (l > 0) {
+            int len = Math.min(l, remaining());
+            String mat = new String(this.bytes, this.pos, len);
+            this.pos += len;
+
+            int a = readInt();
+            boolean hasMeta = readUnsignedByte() == 1;
+            if (len == l && a > 0) {
+                ItemStack stack = new ItemStack(Material.valueOf(mat), a);
+
+                if (hasMeta) {
+                    // the length of the meta was not written, so read it from the rest of the data
+                    stack.setItemMeta(readItemMeta(remaining()));
+                }
+
+                if (stack.getType() != Material.AIR) {
+                    return stack;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private ItemMeta readItemMeta(int length) throws IOException, ClassNotFoundException {
+        ByteArrayInputStream stream = new ByteArrayInputStream(this.bytes, this.pos, length);
+        ObjectInputStream input = new BukkitObjectInputStream(stream);
+        ItemMeta meta = (ItemMeta) input.readObject();
+        this.pos += length - stream.available();
+        return meta;
+    }
+}
@@ -0,0 +1,139 @@
+package dk.superawesome.factorio.mechanics;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// writes the data of a mechanic as a record starting with its version, integers are written with a variable length
+// each thread reuses its writer, so the buffer only has to grow to the largest record once
+public class RecordWriter {
+
+    private static final ThreadLocal<RecordWriter> WRITERS = ThreadLocal.withInitial(RecordWriter::new);
+
+    // versions start at 1, version 0 is the data written before records, see RecordReader
+    public static RecordWriter get(int version) {
+        if (version < 1) {
+            throw new IllegalArgumentException("Invalid record version " + version);
+        }
+
+        RecordWriter writer = WRITERS.get();
+        writer.size = 0;
+        writer.writeVarInt(version);
+        writer.headerSize = writer.size;
+        return writer;
+    }
+
+    private byte[] buffer = new byte[256];
+    private int size;
+    private int headerSize;
+
+    private void ensureCapacity(int bytes) {
+        if (this.size + bytes > this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.size + bytes));
+        }
+    }
+
+    public void writeByte(int val) {
+        ensureCapacity(1);
+        this.buffer[this.size++] = (byte) val;
+    }
+
+    public void writeBoolean(boolean val) {
+        writeByte(val ? 1 : 0);
+    }
+
+    public void writeVarInt(int val) {
+        ensureCapacity(5);
+        while ((val & ~0x7F) != 0) {
+            this.buffer[this.size++] = (byte) ((val & 0x7F) | 0x80);
+            val >>>= 7;
+        }
+        this.buffer[this.size++] = (byte) val;
+    }
+
+    public void writeVarLong(long val) {
+        ensureCapacity(10);
+        while ((val & ~0x7FL) != 0) {
+            this.buffer[this.size++] = (byte) ((val & 0x7F) | 0x80);
+            val >>>= 7;
+        }
+        this.buffer[this.size++] = (byte) val;
+    }
+
+    public void writeInt(int val) {
+        // zigzag encoded, so small negative numbers are short as well
+        writeVarInt((val << 1) ^ (val >> 31));
+    }
+
+    public void writeLong(long val) {
+        writeVarLong((val << 1) ^ (val >> 63));
+    }
+
+    public void writeDouble(double val) {
+        long bits = Double.doubleToLongBits(val);
+        ensureCapacity(8);
+        for (int i = 56; i >= 0; i -= 8) {
+            this.buffer[this.size++] = (byte) (bits >>> i);
+        }
+    }
+
+    public void writeBytes(byte[] bytes) {
+        writeVarInt(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, this.buffer, this.size, bytes.length);
+        this.size += bytes.length;
+    }
+
+    public void writeString(String val) {
+        writeBytes(val.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void writeItemStack(ItemStack stack) throws IOException {
+        if (stack == null || stack.getType() == Material.AIR) {
+            // an amount of zero is no item
+            writeVarInt(0);
+            return;
+        }
+
+        writeVarInt(stack.getAmount());
+        writeString(stack.getType().name());
+
+        if (stack.hasItemMeta()) {
+            writeBoolean(true);
+
+            ByteArrayOutputStream meta = new ByteArrayOutputStream();
+            try (ObjectOutputStream output = new BukkitObjectOutputStream(meta)) {
+                output.writeObject(stack.getItemMeta());
+            }
+            // the length of the meta is written first, so it is read without reading further into the record
+            writeBytes(meta.toByteArray());
+        } else {
+            writeBoolean(false);
+        }
+    }
+
+    // if any of the fields are not zero
+    public boolean hasData() {
+        for (int i = this.headerSize; i < this.size; i++) {
+            if (this.buffer[i] != 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(this.buffer, this.size);
+    }
+}
@@ -0,0 +1,263 @@
+package dk.superawesome.factorio.mechanics;
+
+import org.bukkit.Bukkit;
+
+import java.util.*;
+import java.util.logging.Level;
+
+public class ThinkScheduler {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 3;
+    private static final int MAX_DELAY = (1 << (WHEEL_BITS * LEVELS)) - 1;
+    private static final int MAX_CATCH_UP_CYCLES = 20;
+
+    private static class Entry {
+
+        private final ThinkingMechanic mechanic;
+        private int due;
+        private boolean cancelled;
+        private boolean queued;
+
+        // the wheel slot this entry is linked into, -1 if not in any slot
+        private int level = -1;
+        private int slot;
+        private Entry prev, next;
+
+        private Entry(ThinkingMechanic mechanic) {
+            this.mechanic = mechanic;
+        }
+    }
+
+    private final Entry[][] wheels = new Entry[LEVELS][WHEEL_SIZE];
+    private final Map<ThinkingMechanic, Entry> entries = new IdentityHashMap<>();
+    private final List<Entry> processing = new ArrayList<>();
+    // due entries in the order they will think, entries which didn't fit in the budget are kept here for the next tick
+    private final Queue<Entry> pending = new ArrayDeque<>();
+    private int tick;
+
+    private int lastDeferred;
+    private long totalDeferred;
+    private long overBudgetTicks;
+
+    public ThinkScheduler(int tick) {
+        this.tick = tick;
+    }
+
+    public void schedule(ThinkingMechanic mechanic) {
+        if (entries.containsKey(mechanic)) {
+            return;
+        }
+
+        Entry entry = new Entry(mechanic);
+        entries.put(mechanic, entry);
+
+        DelayHandler handler = mechanic.getThinkDelayHandler();
+        if (handler != DelayHandler.NO_DELAY) {
+            // think again after the new delay when it is changed, i.e. when the mechanic is upgraded
+            handler.setChangeListener(() -> reschedule(entry));
+            handler.setWakeListener(() -> wake(entry));
+        }
+
+        // think at the next tick, like a newly loaded mechanic always has done
+        entry.due = tick + 1;
+        link(entry);
+    }
+
+    public void cancel(ThinkingMechanic mechanic) {
+        Entry entry = entries.remove(mechanic);
+        if (entry == null) {
+            return;
+        }
+
+        entry.cancelled = true;
+        unlink(entry);
+
+        DelayHandler handler = mechanic.getThinkDelayHandler();
+        if (handler != DelayHandler.NO_DELAY) {
+            handler.setChangeListener(null);
+            handler.setWakeListener(null);
+        }
+    }
+
+    public boolean isScheduled(ThinkingMechanic mechanic) {
+        return entries.containsKey(mechanic);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getLastDeferred() {
+        return lastDeferred;
+    }
+
+    public long getTotalDeferred() {
+        return totalDeferred;
+    }
+
+    public long getOverBudgetTicks() {
+        return overBudgetTicks;
+    }
+
+    public int getSleepingCount() {
+        int sleeping = 0;
+        for (ThinkingMechanic mechanic : entries.keySet()) {
+            if (mechanic.getThinkDelayHandler().isSleeping()) {
+                sleeping++;
+            }
+        }
+
+        return sleeping;
+    }
+
+    private void reschedule(Entry entry) {
+        if (entry.cancelled) {
+            return;
+        }
+
+        unlink(entry);
+        entry.due = tick + Math.max(1, entry.mechanic.getThinkDelayHandler().getDelay());
+        link(entry);
+    }
+
+    private void wake(Entry entry) {
+        // nothing to do if the entry is still in the wheel or is about to think
+        if (entry.cancelled || entry.level != -1 || entry.queued) {
+            return;
+        }
+
+        // continue where the mechanic was put to sleep, but don't catch up the cycles it was sleeping
+        if (entry.due - tick <= 0) {
+            entry.due = tick + 1;
+        }
+        link(entry);
+    }
+
+    // the deadline is shared by the schedulers of all worlds, zero for no limit
+    public void advance(int currentTick, long deadline) {
+        while (tick - currentTick < 0) {
+            tick++;
+
+            // move entries from the higher wheels down when their slot is reached
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((tick & ((1 << (WHEEL_BITS * level)) - 1)) == 0) {
+                    cascade(level, (tick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+                }
+            }
+
+            drain(0, tick & WHEEL_MASK, pending);
+        }
+
+        while (!pending.isEmpty()) {
+            if (deadline != 0 && System.nanoTime() - deadline >= 0) {
+                break;
+            }
+
+            Entry entry = pending.poll();
+            entry.queued = false;
+            // skip entries which were cancelled or rescheduled after they became due
+            if (entry.cancelled || entry.level != -1) {
+                continue;
+            }
+
+            // drop sleeping entries from the wheel until they are woken
+            if (entry.mechanic.getThinkDelayHandler().isSleeping()) {
+                continue;
+            }
+
+            if (entry.due - tick > 0) {
+                link(entry);
+                continue;
+            }
+
+            think(entry);
+        }
+
+        lastDeferred = pending.size();
+        if (lastDeferred > 0) {
+            totalDeferred += lastDeferred;
+            overBudgetTicks++;
+        }
+    }
+
+    private void think(Entry entry) {
+        int delay = Math.max(1, entry.mechanic.getThinkDelayHandler().getDelay());
+        // catch up the cycles missed while this entry was deferred
+        int missed = (tick - entry.due) / delay;
+        try {
+            entry.mechanic.advance(Math.min(MAX_CATCH_UP_CYCLES, missed + 1));
+        } catch (Exception ex) {
+            Bukkit.getLogger().log(Level.SEVERE, "Error ticking mechanic " + entry.mechanic, ex);
+        }
+
+        // the mechanic could have been unloaded or rescheduled while thinking
+        if (!entry.cancelled && entry.level == -1) {
+            entry.due += (missed + 1) * delay;
+            if (!entry.mechanic.getThinkDelayHandler().isSleeping()) {
+                link(entry);
+            }
+        }
+    }
+
+    private void cascade(int level, int slot) {
+        drain(level, slot, processing);
+        for (Entry entry : processing) {
+            if (!entry.cancelled && entry.level == -1) {
+                link(entry);
+            }
+        }
+        processing.clear();
+    }
+
+    private void drain(int level, int slot, Collection<Entry> into) {
+        Entry entry = wheels[level][slot];
+        wheels[level][slot] = null;
+        while (entry != null) {
+            Entry next = entry.next;
+            entry.prev = entry.next = null;
+            entry.level = -1;
+            entry.queued = into == pending;
+            into.add(entry);
+            entry = next;
+        }
+    }
+
+    private void link(Entry entry) {
+        int delay = Math.min(entry.due - tick, MAX_DELAY);
+        int level = 0;
+        while (level < LEVELS - 1 && delay >= 1 << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = ((tick + delay) >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+
+        Entry head = wheels[level][slot];
+        entry.prev = null;
+        entry.next = head;
+        if (head != null) {
+            head.prev = entry;
+        }
+        wheels[level][slot] = entry;
+        entry.level = level;
+        entry.slot = slot;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.level == -1) {
+            return;
+        }
+
+        if (entry.prev != null) {
+            entry.prev.next = entry.next;
+        } else {
+            wheels[entry.level][entry.slot] = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.prev = entry.prev;
+        }
+        entry.prev = entry.next = null;
+        entry.level = -1;
+    }
+}
@@ -5,4 +5,31 @@ public interface ThinkingMechanic {
     DelayHandler getThinkDelayHandler();
 
     void think();
+
+    // called with more than one cycle when the mechanic is behind, i.e. after being deferred
+    default void advance(int cycles) {
+        for (int i = 0; i < cycles && !getThinkDelayHandler().isSleeping(); i++) {
+            think();
+        }
+    }
+
+    // called with the amount of ticks the chunk of this mechanic was unloaded, to catch up what it would have produced in the meantime
+    default void fastForward(long ticks) {
+        if (canFastForward()) {
+            int cycles = getCycles(ticks);
+            if (cycles > 0) {
+                advance(cycles);
+            }
+        }
+    }
+
+    // if this mechanic only works on what it has stored itself, so it can be advanced the cycles it was unloaded
+    // most mechanics depend on other mechanics to do anything, so nothing is done by default
+    default boolean canFastForward() {
+        return false;
+    }
+
+    default int getCycles(long ticks) {
+        return (int) Math.min(Integer.MAX_VALUE, ticks / Math.max(1, getThinkDelayHandler().getDelay()));
+    }
 }
@@ -0,0 +1,9 @@
+package dk.superawesome.factorio.mechanics;
+
+public enum WakeCondition {
+    INPUT,
+
+    OUTPUT,
+
+    FUEL
+}
@@ -5,6 +5,7 @@ import java.util.Random;
 public class XPDist {
 
     private final double[] amounts;
+    private final double[] sums;
     private int lastIndex = -1;
 
     public XPDist(int amount, double rangeStart, double rangeEnd) {
@@ -20,10 +21,33 @@ public class XPDist {
         for (int i = 0; i < amount; i++) {
             amounts[i] = rand.nextDouble(rangeStart, rangeEnd);
         }
+
+        // prefix sums, so multiple polls can be summed at once
+        sums = new double[amount + 1];
+        for (int i = 0; i < amount; i++) {
+            sums[i + 1] = sums[i] + amounts[i];
+        }
     }
 
     public double poll() {
         lastIndex = (lastIndex + 1) % amounts.length;
         return amounts[lastIndex];
     }
+
+    public double poll(int times) {
+        int size = amounts.length;
+        int rest = times % size;
+        int start = (lastIndex + 1) % size;
+        int end = start + rest;
+
+        double total = (double) (times / size) * sums[size];
+        if (end <= size) {
+            total += sums[end] - sums[start];
+        } else {
+            total += sums[size] - sums[start] + sums[end - size];
+        }
+
+        lastIndex = ((lastIndex + rest) % size + size) % size;
+        return total;
+    }
 }
\ No newline at end of file
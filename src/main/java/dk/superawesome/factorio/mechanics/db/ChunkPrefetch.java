@@ -0,0 +1,42 @@
+package dk.superawesome.factorio.mechanics.db;
+
+import dk.superawesome.factorio.mechanics.MechanicStorageContext;
+import dk.superawesome.factorio.util.LongMap;
+import dk.superawesome.factorio.util.statics.BlockUtil;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+// the stored mechanics of the chunks being loaded, each chunk is read at once the first time a mechanic in it is loaded
+// a building can reach into a neighbouring chunk, which is loaded by another loader thread
+public class ChunkPrefetch {
+
+    private final MechanicController controller;
+    private final World world;
+    private final LongMap<LongMap<MechanicController.StoredMechanic>> chunks = new LongMap<>();
+
+    public ChunkPrefetch(MechanicController controller, World world) {
+        this.controller = controller;
+        this.world = world;
+    }
+
+    public synchronized MechanicStorageContext findAt(Location loc) throws SQLException, IOException {
+        long chunkKey = BlockUtil.getChunkKeyAt(loc.getBlockX(), loc.getBlockZ());
+        LongMap<MechanicController.StoredMechanic> mechanics = chunks.get(chunkKey);
+        if (mechanics == null) {
+            mechanics = controller.findInChunk(world, chunkKey);
+            chunks.put(chunkKey, mechanics);
+        }
+
+        // only use the stored mechanic once, it could have been changed after that
+        MechanicController.StoredMechanic stored = mechanics.remove(BlockUtil.getBlockKey(loc.getBlockX(), loc.getBlockY(), loc.getBlockZ()));
+        if (stored == null) {
+            // not stored when the chunk was read, look it up by itself
+            return controller.findAt(loc);
+        }
+
+        return controller.findAt(loc, stored);
+    }
+}
@@ -0,0 +1,131 @@
+package dk.superawesome.factorio.mechanics.db;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// the binary format of the data and management columns, a header byte with the codec followed by the encoded bytes
+public class DataCodec {
+
+    public static final byte RAW = 0;
+    // deflate at its fastest level, for data which is not large enough to be worth compressing as much as possible
+    public static final byte FAST = 1;
+    public static final byte DEFLATE = 2;
+    // set on the codec of data written as a record, see RecordWriter
+    public static final byte RECORD = 4;
+
+    // data smaller than this is stored as it is
+    private static final int COMPRESS_THRESHOLD = 128;
+    // data from this size is compressed as much as possible
+    private static final int DEFLATE_THRESHOLD = 8192;
+    // the codec and the length of the data before it was compressed
+    private static final int COMPRESSED_HEADER = 5;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    public static byte[] encode(byte[] bytes) {
+        return encode(bytes, false);
+    }
+
+    public static byte[] encode(byte[] bytes, boolean record) {
+        byte flags = record ? RECORD : 0;
+        if (bytes.length >= COMPRESS_THRESHOLD) {
+            byte codec = bytes.length >= DEFLATE_THRESHOLD ? DEFLATE : FAST;
+            byte[] compressed = compress(bytes, codec == DEFLATE ? Deflater.DEFAULT_COMPRESSION : Deflater.BEST_SPEED);
+            // only use the compressed data if it is actually smaller
+            if (compressed.length + COMPRESSED_HEADER < bytes.length + 1) {
+                return ByteBuffer.allocate(compressed.length + COMPRESSED_HEADER)
+                        .put((byte) (codec | flags))
+                        .putInt(bytes.length)
+                        .put(compressed)
+                        .array();
+            }
+        }
+
+        byte[] encoded = new byte[bytes.length + 1];
+        encoded[0] = (byte) (RAW | flags);
+        System.arraycopy(bytes, 0, encoded, 1, bytes.length);
+        return encoded;
+    }
+
+    public static byte[] decode(byte[] encoded) throws IOException {
+        if (encoded == null || encoded.length == 0) {
+            return EMPTY;
+        }
+
+        if (isLegacy(encoded)) {
+            try {
+                return Base64.getDecoder().decode(encoded);
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("Invalid Base64 data", ex);
+            }
+        }
+
+        return switch (encoded[0] & ~RECORD) {
+            case RAW -> Arrays.copyOfRange(encoded, 1, encoded.length);
+            case FAST, DEFLATE -> decompress(encoded);
+            default -> throw new IOException("Unknown codec " + encoded[0]);
+        };
+    }
+
+    // rows written before the columns were binary are Base64, which never starts with the byte of a codec
+    public static boolean isLegacy(byte[] encoded) {
+        return encoded != null && encoded.length > 0 && encoded[0] > (DEFLATE | RECORD);
+    }
+
+    public static boolean isRecord(byte[] encoded) {
+        return encoded != null && encoded.length > 0 && !isLegacy(encoded) && (encoded[0] & RECORD) != 0;
+    }
+
+    private static byte[] compress(byte[] bytes, int level) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int written = deflater.deflate(buffer);
+                out.write(buffer, 0, written);
+            }
+
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] decompress(byte[] encoded) throws IOException {
+        if (encoded.length < COMPRESSED_HEADER) {
+            throw new IOException("Missing length of compressed data");
+        }
+
+        int length = ByteBuffer.wrap(encoded, 1, 4).getInt();
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(encoded, COMPRESSED_HEADER, encoded.length - COMPRESSED_HEADER);
+
+            byte[] bytes = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int inflated = inflater.inflate(bytes, read, length - read);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("Compressed data ended after " + read + " of " + length + " bytes");
+                }
+                read += inflated;
+            }
+
+            return bytes;
+        } catch (DataFormatException ex) {
+            throw new IOException("Invalid compressed data", ex);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -6,13 +6,19 @@ import dk.superawesome.factorio.mechanics.Mechanic;
 import dk.superawesome.factorio.mechanics.MechanicSerializer;
 import dk.superawesome.factorio.mechanics.MechanicStorageContext;
 import dk.superawesome.factorio.mechanics.impl.accessible.Assembler;
+import dk.superawesome.factorio.util.LongMap;
 import dk.superawesome.factorio.util.Serializer;
 import dk.superawesome.factorio.util.db.Query;
 import dk.superawesome.factorio.util.db.Types;
+import dk.superawesome.factorio.util.statics.BlockUtil;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.block.BlockFace;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -23,14 +29,24 @@ import java.util.logging.Level;
 
 public class MechanicController {
 
+    // the stored columns of a mechanic, read ahead of loading it
+    public record StoredMechanic(int level, double xp, byte[] management, byte[] data, long unloaded) {
+    }
+
+    private static final int SCHEMA_VERSION = 2;
+    // mechanics are looked up by the block position of their location, which is indexed
+    private static final String AT_POSITION = "WHERE world = ? AND x = ? AND y = ? AND z = ?";
+
     private final DatabaseConnection connection;
     private final Serializer<Management> managementSerializer;
     private final MechanicSerializer mechanicSerializer;
+    private final MechanicWriteQueue writeQueue;
 
-    public MechanicController(DatabaseConnection connection, MechanicSerializer mechanicSerializer, Serializer<Management> managementSerializer) {
+    public MechanicController(DatabaseConnection connection, MechanicSerializer mechanicSerializer, Serializer<Management> managementSerializer, int writeBatchSize) {
         this.connection = connection;
         this.mechanicSerializer = mechanicSerializer;
         this.managementSerializer = managementSerializer;
+        this.writeQueue = new MechanicWriteQueue(this, writeBatchSize);
 
         Query createMechanics = new Query(
                 "CREATE TABLE IF NOT EXISTS mechanics (" +
@@ -41,7 +57,13 @@ public class MechanicController {
                 "level INT DEFAULT 1, " +
                 "xp DOUBLE(16, 2) DEFAULT 0, " +
                 "management TEXT, " +
-                "data TEXT)");
+                "data TEXT, " +
+                "unloaded BIGINT DEFAULT 0)");
+
+        // the world time of when the mechanic was unloaded, added after the table was created at first
+        Query addUnloaded = new Query(
+                "ALTER TABLE mechanics " +
+                "ADD COLUMN IF NOT EXISTS unloaded BIGINT DEFAULT 0");
 
         Query createDefaultMembers = new Query(
                 "CREATE TABLE IF NOT EXISTS mechanics_defaultMembers (" +
@@ -57,15 +79,156 @@ public class MechanicController {
                 ")"
         );
 
+        Query createSchema = new Query(
+                "CREATE TABLE IF NOT EXISTS mechanics_schema (" +
+                "version INT NOT NULL" +
+                ")");
+
         try {
             createMechanics.execute(this.connection);
+            addUnloaded.execute(this.connection);
             createDefaultMembers.execute(this.connection);
             createAssemblerTransformed.execute(this.connection);
+            createSchema.execute(this.connection);
+
+            migrate();
         } catch (SQLException ex) {
             Factorio.get().getLogger().log(Level.SEVERE, "Failed to create tables!", ex);
         }
     }
 
+    private void migrate() throws SQLException {
+        Query getVersion = new Query(
+                "SELECT MAX(version) AS version " +
+                "FROM mechanics_schema");
+        int version = Optional.ofNullable(getVersion.<Integer>executeQueryCall(this.connection, r -> r.getInt("version")))
+                .orElse(0);
+
+        // run each migration the tables have not been migrated to yet, in order
+        if (version < 1) {
+            migrateToBlockPositions();
+        }
+        if (version < 2) {
+            migrateToBinaryColumns();
+        }
+
+        if (version < SCHEMA_VERSION) {
+            Query setVersion = new Query(
+                    "INSERT INTO mechanics_schema " +
+                    "VALUES (?)")
+                    .add(SCHEMA_VERSION);
+            setVersion.execute(this.connection);
+
+            Factorio.get().getLogger().info("Migrated mechanics tables from version " + version + " to " + SCHEMA_VERSION);
+        }
+    }
+
+    private void migrateToBlockPositions() throws SQLException {
+        Query addColumns = new Query(
+                "ALTER TABLE mechanics " +
+                "ADD COLUMN IF NOT EXISTS world VARCHAR(64), " +
+                "ADD COLUMN IF NOT EXISTS x INT, " +
+                "ADD COLUMN IF NOT EXISTS y INT, " +
+                "ADD COLUMN IF NOT EXISTS z INT, " +
+                "ADD COLUMN IF NOT EXISTS chunk BIGINT");
+        addColumns.execute(this.connection);
+
+        // fill in the block position of all existing mechanics from their location
+        try (Connection conn = this.connection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement select = conn.prepareStatement(
+                        "SELECT id, location FROM mechanics " +
+                        "WHERE world IS NULL");
+                 PreparedStatement update = conn.prepareStatement(
+                        "UPDATE mechanics " +
+                        "SET world = ?, x = ?, y = ?, z = ?, chunk = ? " +
+                        "WHERE id = ?");
+                 ResultSet result = select.executeQuery()) {
+                while (result.next()) {
+                    String[] location;
+                    int x, y, z;
+                    try {
+                        location = result.getString("location").split(";");
+                        x = (int) Math.floor(Double.parseDouble(location[1]));
+                        y = (int) Math.floor(Double.parseDouble(location[2]));
+                        z = (int) Math.floor(Double.parseDouble(location[3]));
+                    } catch (NullPointerException | IndexOutOfBoundsException | NumberFormatException ex) {
+                        // leave the row without a position, it is never loaded but the rest can still be migrated
+                        Factorio.get().getLogger().warning("Skipping mechanic " + result.getInt("id") + " with invalid location " + result.getString("location"));
+                        continue;
+                    }
+
+                    update.setString(1, location[0]);
+                    update.setInt(2, x);
+                    update.setInt(3, y);
+                    update.setInt(4, z);
+                    update.setLong(5, BlockUtil.getChunkKeyAt(x, z));
+                    update.setInt(6, result.getInt("id"));
+                    update.addBatch();
+                }
+
+                update.executeBatch();
+                conn.commit();
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+
+        // a new mechanic deletes any previous mechanic at its location, so only the newest row of duplicates are used
+        Query deleteDuplicates = new Query(
+                "DELETE old FROM mechanics old " +
+                "JOIN mechanics newer ON old.world = newer.world AND old.x = newer.x AND old.y = newer.y AND old.z = newer.z " +
+                "AND old.id < newer.id");
+        deleteDuplicates.executeUpdate(this.connection);
+
+        Query dropLocationIndex = new Query(
+                "DROP INDEX IF EXISTS mechanics_location " +
+                "ON mechanics");
+        dropLocationIndex.execute(this.connection);
+
+        Query addPositionIndex = new Query(
+                "CREATE UNIQUE INDEX IF NOT EXISTS mechanics_position " +
+                "ON mechanics (world, x, y, z)");
+        try {
+            addPositionIndex.execute(this.connection);
+        } catch (SQLException ex) {
+            // without the index, saving a mechanic would insert another row instead of updating the existing one
+            Query countDuplicates = new Query(
+                    "SELECT COUNT(*) AS duplicates FROM (" +
+                    "SELECT world FROM mechanics " +
+                    "WHERE world IS NOT NULL " +
+                    "GROUP BY world, x, y, z " +
+                    "HAVING COUNT(*) > 1) positions");
+            Integer duplicates = countDuplicates.executeQueryCall(this.connection, r -> r.getInt("duplicates"));
+            throw new IllegalStateException("Unable to create the unique index on the position of mechanics, " + duplicates + " positions still have more than one mechanic", ex);
+        }
+
+        Query addChunkIndex = new Query(
+                "CREATE INDEX IF NOT EXISTS mechanics_chunk " +
+                "ON mechanics (world, chunk)");
+        addChunkIndex.execute(this.connection);
+    }
+
+    private void migrateToBinaryColumns() throws SQLException {
+        // the existing Base64 rows are kept as they are, and written in the binary format the next time they are saved
+        Query modifyColumns = new Query(
+                "ALTER TABLE mechanics " +
+                "MODIFY management BLOB, " +
+                "MODIFY data MEDIUMBLOB");
+        modifyColumns.execute(this.connection);
+    }
+
+    private static Query addPosition(Query query, Location loc) {
+        return query
+                .add(loc.getWorld().getName())
+                .add(loc.getBlockX())
+                .add(loc.getBlockY())
+                .add(loc.getBlockZ());
+    }
+
     public void close() throws SQLException {
         this.connection.getConnection().close();
     }
@@ -82,18 +245,91 @@ public class MechanicController {
         return this.mechanicSerializer;
     }
 
+    public MechanicWriteQueue getWriteQueue() {
+        return this.writeQueue;
+    }
+
+    public void upsert(List<MechanicWriteQueue.Write> writes) throws SQLException {
+        // write all the mechanics in one batch and transaction on a single connection
+        try (Connection conn = this.connection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement statement = conn.prepareStatement(
+                    "INSERT INTO mechanics (type, location, world, x, y, z, chunk, rotation, level, xp, management, data, unloaded) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE rotation = VALUES(rotation), level = VALUES(level), xp = VALUES(xp), " +
+                    "management = VALUES(management), data = VALUES(data), unloaded = VALUES(unloaded)")) {
+                for (MechanicWriteQueue.Write write : writes) {
+                    statement.setString(1, write.type());
+                    statement.setString(2, write.location());
+                    statement.setString(3, write.world());
+                    statement.setInt(4, write.x());
+                    statement.setInt(5, write.y());
+                    statement.setInt(6, write.z());
+                    statement.setLong(7, BlockUtil.getChunkKeyAt(write.x(), write.z()));
+                    statement.setString(8, write.rotation());
+                    statement.setInt(9, write.level());
+                    statement.setDouble(10, write.xp());
+                    statement.setBytes(11, write.management());
+                    statement.setBytes(12, write.data());
+                    statement.setLong(13, write.unloaded());
+                    statement.addBatch();
+                }
+
+                statement.executeBatch();
+                conn.commit();
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                // the connection is returned to the pool
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
     public Management load(Mechanic<?> mechanic) throws SQLException, IOException {
-        Query query = new Query(
+        Query query = addPosition(new Query(
                 "SELECT level, xp, management " +
                 "FROM mechanics " +
-                "WHERE location = ?")
-                .add(Types.LOCATION.convert(mechanic.getLocation()));
+                AT_POSITION), mechanic.getLocation());
 
-        return query.executeQueryCall(this.connection, r -> {
-            mechanic.setLevel(r.getInt("level"));
-            mechanic.setXP(r.getDouble("xp"));
-            return this.managementSerializer.deserialize(MechanicStorageContext.decode(r.getString("management")));
+        return query.executeQueryCall(this.connection, r -> load(mechanic, r.getInt("level"), r.getDouble("xp"), r.getBytes("management")));
+    }
+
+    public Management load(Mechanic<?> mechanic, StoredMechanic stored) throws IOException {
+        return load(mechanic, stored.level(), stored.xp(), stored.management());
+    }
+
+    private Management load(Mechanic<?> mechanic, int level, double xp, byte[] management) throws IOException {
+        mechanic.setLevel(level);
+        mechanic.setXP(xp);
+        return readManagement(DataCodec.decode(management));
+    }
+
+    private Management readManagement(byte[] management) throws IOException {
+        return this.managementSerializer.deserialize(new ByteArrayInputStream(management));
+    }
+
+    public LongMap<StoredMechanic> findInChunk(World world, long chunkKey) throws SQLException {
+        // the mechanics in this chunk could have been unloaded just before, so make sure they are read as they were then
+        this.writeQueue.flushChunk(world, chunkKey);
+
+        Query query = new Query(
+                "SELECT x, y, z, level, xp, management, data, unloaded " +
+                "FROM mechanics " +
+                "WHERE world = ? AND chunk = ?")
+                .add(world.getName())
+                .add(chunkKey);
+
+        LongMap<StoredMechanic> mechanics = new LongMap<>();
+        query.executeQuery(this.connection, r -> {
+            do {
+                mechanics.put(BlockUtil.getBlockKey(r.getInt("x"), r.getInt("y"), r.getInt("z")),
+                        new StoredMechanic(r.getInt("level"), r.getDouble("xp"), r.getBytes("management"), r.getBytes("data"), r.getLong("unloaded")));
+            } while (r.next());
         });
+
+        return mechanics;
     }
 
     public void registerTransformed(Assembler.Types type, double amount) throws SQLException {
@@ -146,85 +382,111 @@ public class MechanicController {
     }
 
     public void move(Location from, Location to, BlockFace rot) throws SQLException {
-        Query query = new Query(
+        this.writeQueue.flush(from);
+
+        Query query = addPosition(new Query(
                 "UPDATE mechanics " +
-                "SET location = ?, rotation = ? " +
-                "WHERE location = ?")
+                "SET location = ?, world = ?, x = ?, y = ?, z = ?, chunk = ?, rotation = ? " +
+                AT_POSITION)
                 .add(Types.LOCATION.convert(to))
-                .add(rot.name())
-                .add(Types.LOCATION.convert(from));
+                .add(to.getWorld().getName())
+                .add(to.getBlockX())
+                .add(to.getBlockY())
+                .add(to.getBlockZ())
+                .add(BlockUtil.getChunkKeyAt(to.getBlockX(), to.getBlockZ()))
+                .add(rot.name()), from);
 
         query.executeUpdate(this.connection);
     }
 
     public boolean deleteAt(Location location) throws SQLException {
-        Query query = new Query(
+        this.writeQueue.discard(location);
+
+        Query query = addPosition(new Query(
                 "DELETE FROM mechanics " +
-                "WHERE location = ?")
-                .add(Types.LOCATION.convert(location));
+                AT_POSITION), location);
 
         return query.executeUpdate(this.connection) > 0;
     }
 
     public MechanicStorageContext findAt(Location loc) throws SQLException, IOException {
-        Management management = this.managementSerializer.deserialize(MechanicStorageContext.decode(getManagementData(loc)));
+        // the mechanic could have been unloaded just before, so make sure it is read as it was then
+        this.writeQueue.flush(loc);
+
+        byte[] managementData = getManagementData(loc);
+        byte[] decoded = DataCodec.decode(managementData);
+        Management management = readManagement(decoded);
+        if (management == null) {
+            throw new IOException("Failed to get management");
+        }
+
+        return new MechanicStorageContext(this, loc, management, decoded, DataCodec.isLegacy(managementData));
+    }
+
+    public MechanicStorageContext findAt(Location loc, StoredMechanic stored) throws IOException {
+        byte[] decoded = DataCodec.decode(stored.management());
+        Management management = readManagement(decoded);
         if (management == null) {
             throw new IOException("Failed to get management");
         }
 
-        return new MechanicStorageContext(this, loc, management);
+        return new MechanicStorageContext(this, loc, management, decoded, DataCodec.isLegacy(stored.management()), stored);
     }
 
     public MechanicStorageContext create(Location loc, BlockFace rot, String type, UUID owner) throws SQLException, IOException {
         deleteAt(loc);
 
         Management management = new Management(owner);
+        byte[] managementData = this.managementSerializer.serialize(management).toByteArray();
 
         Query query = new Query(
-                "INSERT INTO mechanics (type, location, rotation, management) " +
-                "VALUES (?, ?, ?, ?)")
+                "INSERT INTO mechanics (type, location, world, x, y, z, chunk, rotation, management) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")
                 .add(type)
                 .add(Types.LOCATION.convert(loc))
+                .add(loc.getWorld().getName())
+                .add(loc.getBlockX())
+                .add(loc.getBlockY())
+                .add(loc.getBlockZ())
+                .add(BlockUtil.getChunkKeyAt(loc.getBlockX(), loc.getBlockZ()))
                 .add(rot.name())
-                .add(MechanicStorageContext.encode(this.managementSerializer.serialize(management)));
+                .add(DataCodec.encode(managementData));
         query.execute(this.connection);
 
-        return new MechanicStorageContext(this, loc, management);
+        return new MechanicStorageContext(this, loc, management, managementData, false);
     }
 
     public boolean exists(Location loc) throws SQLException {
-        Query query = new Query(
-                "SELECT * FROM mechanics " +
-                "WHERE location = ? " +
-                "LIMIT 1")
-                .add(Types.LOCATION.convert(loc));
+        Query query = addPosition(new Query(
+                "SELECT id FROM mechanics " +
+                AT_POSITION + " " +
+                "LIMIT 1"), loc);
 
         return Boolean.TRUE.equals(
                 query.<Boolean>executeQueryCall(this.connection, __ -> true));
     }
 
     public <T> T get(Location loc, String column, Query.CheckedFunction<ResultSet, T> function) throws SQLException {
-        Query query = new Query(
+        Query query = addPosition(new Query(
                 "SELECT " + column + " FROM mechanics " +
-                "WHERE location = ? " +
-                "LIMIT 1")
-                .add(Types.LOCATION.convert(loc));
+                AT_POSITION + " " +
+                "LIMIT 1"), loc);
 
         return query.<T>executeQueryCall(this.connection, function::sneaky);
     }
 
-    public String getData(Location loc) throws SQLException {
-        return Optional.ofNullable(get(loc, "data", result -> result.getString("data")))
-                .orElse("");
+    public byte[] getData(Location loc) throws SQLException {
+        return Optional.ofNullable(get(loc, "data", result -> result.getBytes("data")))
+                .orElse(new byte[0]);
     }
 
     public Management getManagement(Location loc) throws SQLException, IOException {
-        return this.managementSerializer.deserialize(MechanicStorageContext.decode(getManagementData(loc)));
+        return readManagement(DataCodec.decode(getManagementData(loc)));
     }
 
-    public String getManagementData(Location loc) throws SQLException {
-        return Optional.ofNullable(get(loc, "management", result -> result.getString("management")))
-                .orElse("");
+    public byte[] getManagementData(Location loc) throws SQLException {
+        return Optional.ofNullable(get(loc, "management", result -> result.getBytes("management")))
+                .orElse(new byte[0]);
     }
 
     public int getLevel(Location loc) throws SQLException {
@@ -237,31 +499,39 @@ public class MechanicController {
                 .orElse(0d);
     }
 
+    public long getUnloadedAt(Location loc) throws SQLException {
+        return Optional.ofNullable(get(loc, "unloaded", result -> result.getLong("unloaded")))
+                .orElse(0L);
+    }
+
     public void set(Location loc, String column, Object val) throws SQLException {
-        Query query = new Query(
+        Query query = addPosition(new Query(
                 "UPDATE mechanics " +
                 "SET " + column + " = ? " +
-                "WHERE location = ? " +
+                AT_POSITION + " " +
                 "LIMIT 1")
-                .add(val)
-                .add(Types.LOCATION.convert(loc));
+                .add(val), loc);
 
         query.executeUpdate(this.connection);
     }
 
-    public void setData(Location loc, String data) throws SQLException {
-        set(loc, "data", data);
+    public void setData(Location loc, byte[] data) throws SQLException {
+        set(loc, "data", DataCodec.encode(data));
     }
 
     public void setLevel(Location loc, int level) throws SQLException {
         set(loc, "level", level);
     }
 
-    public void setManagement(Location loc, String data) throws SQLException {
-        set(loc, "management", data);
+    public void setManagement(Location loc, byte[] data) throws SQLException {
+        set(loc, "management", DataCodec.encode(data));
     }
 
     public void setXP(Location loc, double xp) throws SQLException {
         set(loc, "xp", xp);
     }
+
+    public void setUnloadedAt(Location loc, long time) throws SQLException {
+        set(loc, "unloaded", time);
+    }
 }
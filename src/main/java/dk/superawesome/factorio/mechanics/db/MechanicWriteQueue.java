@@ -0,0 +1,302 @@
+package dk.superawesome.factorio.mechanics.db;
+
+import dk.superawesome.factorio.Factorio;
+import dk.superawesome.factorio.util.LongMap;
+import dk.superawesome.factorio.util.db.Types;
+import dk.superawesome.factorio.util.statics.BlockUtil;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+
+public class MechanicWriteQueue {
+
+    // all columns of a mechanic, written at once
+    public record Write(String type, String location, String world, int x, int y, int z, String rotation, int level, double xp, byte[] management, byte[] data, long unloaded) {
+    }
+
+    // a write which fails this many flushes in a row is dropped, so a broken row isn't retried forever
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final MechanicController controller;
+    private final int batchSize;
+    // the latest write for each location, a write replaces any earlier write which has not been flushed yet
+    private final Map<String, Write> pending = new LinkedHashMap<>();
+    // the locations of the pending writes in each chunk of each world, so the writes in a chunk are found without going through all of them
+    private final Map<String, LongMap<Set<String>>> pendingChunks = new HashMap<>();
+    // held while a batch is written, so only one connection is used for writing at a time
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // the number of flushes the write at each location has failed in a row
+    private final Map<String, Integer> attempts = new HashMap<>();
+
+    private volatile int lastBatchSize;
+    private volatile long lastBatchNanos;
+    private volatile long maxBatchNanos;
+    private volatile long totalBatches;
+    private volatile long totalWrites;
+    private volatile long skippedFlushes;
+
+    public MechanicWriteQueue(MechanicController controller, int batchSize) {
+        this.controller = controller;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public synchronized void submit(Write write) {
+        if (pending.put(write.location(), write) == null) {
+            index(write);
+        }
+    }
+
+    private void index(Write write) {
+        pendingChunks.computeIfAbsent(write.world(), __ -> new LongMap<>())
+                .computeIfAbsent(BlockUtil.getChunkKeyAt(write.x(), write.z()), __ -> new HashSet<>())
+                .add(write.location());
+    }
+
+    private void unindex(Write write) {
+        LongMap<Set<String>> chunks = pendingChunks.get(write.world());
+        if (chunks != null) {
+            long chunkKey = BlockUtil.getChunkKeyAt(write.x(), write.z());
+            Set<String> locations = chunks.get(chunkKey);
+            if (locations != null && locations.remove(write.location()) && locations.isEmpty()) {
+                chunks.remove(chunkKey);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    private synchronized List<Write> takeBatch(Set<String> skip) {
+        List<Write> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        Iterator<Write> iterator = pending.values().iterator();
+        while (iterator.hasNext() && batch.size() < batchSize) {
+            Write write = iterator.next();
+            if (skip.contains(write.location())) {
+                // already failed in this flush, left for the next flush
+                continue;
+            }
+            iterator.remove();
+            unindex(write);
+            batch.add(write);
+        }
+
+        return batch;
+    }
+
+    private synchronized void requeue(List<Write> batch) {
+        for (Write write : batch) {
+            // keep any newer write for the same location
+            if (pending.putIfAbsent(write.location(), write) == null) {
+                index(write);
+            }
+        }
+    }
+
+    private synchronized void retry(List<Write> failed, Set<String> skip) {
+        for (Write write : failed) {
+            int attempt = attempts.merge(write.location(), 1, Integer::sum);
+            if (attempt >= MAX_ATTEMPTS) {
+                attempts.remove(write.location());
+                Factorio.get().getLogger().severe("Dropping write of mechanic " + write.type() + " at " + write.location() + " after " + attempt + " failed attempts");
+                continue;
+            }
+
+            skip.add(write.location());
+            if (pending.putIfAbsent(write.location(), write) == null) {
+                index(write);
+            }
+        }
+    }
+
+    private synchronized void written(List<Write> batch) {
+        if (!attempts.isEmpty()) {
+            for (Write write : batch) {
+                attempts.remove(write.location());
+            }
+        }
+    }
+
+    private synchronized Write take(Location loc) {
+        Write write = pending.remove(Types.LOCATION.convert(loc));
+        if (write != null) {
+            unindex(write);
+        }
+
+        return write;
+    }
+
+    private synchronized List<Write> takeChunk(String world, long chunkKey) {
+        LongMap<Set<String>> chunks = pendingChunks.get(world);
+        Set<String> locations = chunks != null ? chunks.remove(chunkKey) : null;
+        if (locations == null) {
+            return Collections.emptyList();
+        }
+
+        List<Write> writes = new ArrayList<>(locations.size());
+        for (String location : locations) {
+            Write write = pending.remove(location);
+            if (write != null) {
+                writes.add(write);
+            }
+        }
+
+        return writes;
+    }
+
+    // forget the pending write at this location, so a deleted mechanic is not written again
+    public void discard(Location loc) {
+        // wait for any batch being written, it could contain this location
+        writeLock.lock();
+        try {
+            take(loc);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // write the pending write at this location now, before the mechanic is read or moved
+    public void flush(Location loc) throws SQLException {
+        writeLock.lock();
+        try {
+            Write write = take(loc);
+            if (write != null) {
+                try {
+                    controller.upsert(List.of(write));
+                } catch (SQLException ex) {
+                    // keep the write for the next flush, unless the mechanic was saved again in the meantime
+                    requeue(List.of(write));
+                    throw ex;
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // write the pending writes in this chunk now, before the mechanics in it are read
+    public void flushChunk(World world, long chunkKey) throws SQLException {
+        writeLock.lock();
+        try {
+            List<Write> writes = takeChunk(world.getName(), chunkKey);
+            if (!writes.isEmpty()) {
+                try {
+                    controller.upsert(writes);
+                } catch (SQLException ex) {
+                    requeue(writes);
+                    throw ex;
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // write all pending writes, waiting for any flush which is already running
+    public void flush() {
+        flush(true);
+    }
+
+    // write all pending writes, unless a flush is already running
+    public void tryFlush() {
+        flush(false);
+    }
+
+    private void flush(boolean wait) {
+        // the locations which failed in this flush, so they aren't taken again until the next flush
+        Set<String> failedLocations = new HashSet<>();
+        while (true) {
+            if (wait) {
+                writeLock.lock();
+            } else if (!writeLock.tryLock()) {
+                // the previous flush is still writing, the pending writes are left for the next flush
+                skippedFlushes++;
+                return;
+            }
+
+            try {
+                List<Write> batch = takeBatch(failedLocations);
+                if (batch.isEmpty()) {
+                    // nothing is left, other than the writes which already failed in this flush
+                    return;
+                }
+
+                long start = System.nanoTime();
+                int written = batch.size();
+                try {
+                    controller.upsert(batch);
+                    written(batch);
+                } catch (SQLException ex) {
+                    if (ex instanceof SQLTransientConnectionException || ex instanceof SQLNonTransientConnectionException) {
+                        Factorio.get().getLogger().log(Level.SEVERE, "Failed to write batch of " + batch.size() + " mechanics", ex);
+                        // the database can't be reached, try again at the next flush
+                        requeue(batch);
+                        return;
+                    }
+
+                    // find the writes which made the batch fail, so they don't hold back the rest of the batch
+                    List<Write> failed = writeEach(batch);
+                    if (!failed.isEmpty()) {
+                        retry(failed, failedLocations);
+                    }
+                    written -= failed.size();
+                }
+
+                long time = System.nanoTime() - start;
+                lastBatchSize = written;
+                lastBatchNanos = time;
+                maxBatchNanos = Math.max(maxBatchNanos, time);
+                totalBatches++;
+                totalWrites += written;
+            } finally {
+                // let other writes through between batches
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private List<Write> writeEach(List<Write> batch) {
+        List<Write> failed = new ArrayList<>();
+        for (Write write : batch) {
+            try {
+                controller.upsert(List.of(write));
+                written(List.of(write));
+            } catch (SQLException ex) {
+                Factorio.get().getLogger().log(Level.SEVERE, "Failed to write mechanic " + write.type() + " at " + write.location(), ex);
+                failed.add(write);
+            }
+        }
+
+        return failed;
+    }
+
+    public int getLastBatchSize() {
+        return lastBatchSize;
+    }
+
+    public long getLastBatchNanos() {
+        return lastBatchNanos;
+    }
+
+    public long getMaxBatchNanos() {
+        return maxBatchNanos;
+    }
+
+    public long getTotalBatches() {
+        return totalBatches;
+    }
+
+    public long getTotalWrites() {
+        return totalWrites;
+    }
+
+    public long getSkippedFlushes() {
+        return skippedFlushes;
+    }
+}
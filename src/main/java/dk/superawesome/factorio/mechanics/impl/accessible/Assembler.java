@@ -10,6 +10,7 @@ import dk.superawesome.factorio.mechanics.routes.events.pipe.PipePutEvent;
 import dk.superawesome.factorio.mechanics.transfer.ItemCollection;
 import dk.superawesome.factorio.mechanics.transfer.ItemContainer;
 import dk.superawesome.factorio.mechanics.transfer.MoneyCollection;
+import dk.superawesome.factorio.util.MaterialIndex;
 import dk.superawesome.factorio.util.statics.StringUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -20,12 +21,9 @@ import org.bukkit.entity.HumanEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.logging.Level;
@@ -47,26 +45,26 @@ public class Assembler extends AbstractMechanic<Assembler> implements Accessible
 
     @Override
     public void load(MechanicStorageContext context) throws SQLException, IOException, ClassNotFoundException {
-        ByteArrayInputStream data = context.getData();
-        ItemStack item = context.getSerializer().readItemStack(data);
+        RecordReader data = context.getRecord();
+        ItemStack item = data.readItemStack();
         if (item != null) {
             this.type = Types.getLoadedType(Types.getTypeFromMaterial(item.getType()).orElseThrow(IllegalArgumentException::new));
         }
-        this.ingredientAmount = context.getSerializer().readInt(data);
-        this.moneyAmount = context.getSerializer().readDouble(data);
+        this.ingredientAmount = data.readInt();
+        this.moneyAmount = data.readDouble();
     }
 
-    public void save(MechanicStorageContext context) throws SQLException, IOException {
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        context.getSerializer().writeItemStack(stream,
+    public byte[] save(MechanicStorageContext context) throws SQLException, IOException {
+        RecordWriter stream = context.newRecord(1);
+        stream.writeItemStack(
                 Optional.ofNullable(this.type)
                         .map(Type::getMat)
                         .map(ItemStack::new)
                         .orElse(null));
-        context.getSerializer().writeInt(stream, this.ingredientAmount);
-        context.getSerializer().writeDouble(stream, this.moneyAmount);
+        stream.writeInt(this.ingredientAmount);
+        stream.writeDouble(this.moneyAmount);
 
-        context.uploadData(stream);
+        return stream.toByteArray();
     }
 
     @Override
@@ -87,25 +85,45 @@ public class Assembler extends AbstractMechanic<Assembler> implements Accessible
 
     @Override
     public void think() {
+        advance(1);
+    }
+
+    @Override
+    public boolean canFastForward() {
+        // the batch is bounded by the stored ingredients and the money capacity
+        return true;
+    }
+
+    @Override
+    public void advance(int cycles) {
         // check if an assembler type is chosen, if not, don't continue
         if (type == null
                 // check if the assembler has enough ingredients to assemble, if not, don't continue
-                || ingredientAmount < type.getRequires()
-                // check if the assembler has enough space for money, if not, don't continue
-                || moneyAmount + type.getProduces() > getMoneyCapacity()) {
+                || ingredientAmount < type.getRequires()) {
+            sleep(WakeCondition.INPUT);
             return;
         }
 
+        // check if the assembler has enough space for money, if not, don't continue
+        if (moneyAmount + type.getProduces() > getMoneyCapacity()) {
+            sleep(WakeCondition.OUTPUT);
+            return;
+        }
+
+        // assemble as many times as the ingredients and money capacity allows
+        int times = Math.min(cycles, ingredientAmount / type.getRequires());
+        times = (int) Math.max(1, Math.min(times, (getMoneyCapacity() - moneyAmount) / type.getProduces()));
+
         // do the assembling
-        ingredientAmount -= type.getRequires();
-        moneyAmount += type.getProduces();
-        xp += xpDist.poll();
+        ingredientAmount -= type.getRequires() * times;
+        moneyAmount += type.getProduces() * times;
+        xp += xpDist.poll(times);
 
-        type.getType().setTransformed(type.getType().getTransformed() + type.getProduces());
+        type.getType().setTransformed(type.getType().getTransformed() + type.getProduces() * times);
 
         AssemblerGui gui = this.<AssemblerGui>getGuiInUse().get();
         if (gui != null) {
-            gui.updateRemovedIngredients(type.getRequires());
+            gui.updateRemovedIngredients(type.getRequires() * times);
             gui.setDisplayedMoney(moneyAmount);
 
             for (HumanEntity player : gui.getInventory().getViewers()) {
@@ -131,12 +149,13 @@ public class Assembler extends AbstractMechanic<Assembler> implements Accessible
                 .map(Type::getMat)
                 .map(ItemStack::new)
                 .orElse(null);
-        if ((item != null && collection.has(item) || item == null && collection.has(i -> Types.getTypeFromMaterial(i.getType()).isPresent())) && ingredientAmount < getCapacity()) {
+        if ((item != null && collection.has(item) || item == null && collection.has(i -> MaterialIndex.getAssemblerType(i.getType()) != null)) && ingredientAmount < getCapacity()) {
             int add = this.<AssemblerGui>put(collection, getCapacity() - ingredientAmount, getGuiInUse(), AssemblerGui::updateAddedIngredients, storage);
 
             if (add > 0) {
                 ingredientAmount += add;
                 event.setTransferred(true);
+                wake(WakeCondition.INPUT);
             }
         }
     }
@@ -165,6 +184,8 @@ public class Assembler extends AbstractMechanic<Assembler> implements Accessible
         AssemblerTypeChangeEvent event = new AssemblerTypeChangeEvent(this, oldTypes, type);
         Bukkit.getPluginManager().callEvent(event);
 
+        wake(WakeCondition.INPUT);
+
         AssemblerGui gui = this.<AssemblerGui>getGuiInUse().get();
         if (gui != null) {
             gui.loadAssemblerType();
@@ -216,6 +237,9 @@ public class Assembler extends AbstractMechanic<Assembler> implements Accessible
     public double take(double amount) {
         double take = Math.min(amount, moneyAmount);
         moneyAmount -= take;
+        if (take > 0) {
+            wake(WakeCondition.OUTPUT);
+        }
 
         AssemblerGui gui = this.<AssemblerGui>getGuiInUse().get();
         if (gui != null) {
@@ -393,7 +417,7 @@ public class Assembler extends AbstractMechanic<Assembler> implements Accessible
         }
 
         public static Optional<Types> getTypeFromMaterial(Material mat) {
-            return Arrays.stream(values()).filter(t -> t.getMat().equals(mat)).findFirst();
+            return Optional.ofNullable(MaterialIndex.getAssemblerType(mat));
         }
 
         @Override
@@ -6,6 +6,7 @@ import dk.superawesome.factorio.mechanics.*;
 import dk.superawesome.factorio.mechanics.routes.events.pipe.PipePutEvent;
 import dk.superawesome.factorio.mechanics.transfer.ItemCollection;
 import dk.superawesome.factorio.mechanics.transfer.ItemContainer;
+import dk.superawesome.factorio.mechanics.transfer.ItemKey;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.Sound;
@@ -14,8 +15,6 @@ import org.bukkit.entity.HumanEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.*;
@@ -32,6 +31,7 @@ public class Constructor extends AbstractMechanic<Constructor> implements Access
 
     private final ItemStack[] craftingGridItems = new ItemStack[9];
     private ItemStack recipeResult;
+    private final ItemKey.Holder storageKey = new ItemKey.Holder();
     private ItemStack storageType;
     private int storageAmount;
 
@@ -62,14 +62,14 @@ public class Constructor extends AbstractMechanic<Constructor> implements Access
 
     @Override
     public void load(MechanicStorageContext context) throws Exception {
-        ByteArrayInputStream str = context.getData();
+        RecordReader str = context.getRecord();
         for (int i = 0; i < 9; i++) {
-            this.craftingGridItems[i] = context.getSerializer().readItemStack(str);
+            this.craftingGridItems[i] = str.readItemStack();
         }
 
-        this.recipeResult = context.getSerializer().readItemStack(str);
-        this.storageType = context.getSerializer().readItemStack(str);
-        this.storageAmount = context.getSerializer().readInt(str);
+        this.recipeResult = str.readItemStack();
+        this.storageType = str.readItemStack();
+        this.storageAmount = str.readInt();
 
         if (this.storageAmount > 0 && this.storageType == null) {
             this.storageAmount = 0;
@@ -84,17 +84,17 @@ public class Constructor extends AbstractMechanic<Constructor> implements Access
     }
 
     @Override
-    public void save(MechanicStorageContext context) throws SQLException, IOException {
-        ByteArrayOutputStream str = new ByteArrayOutputStream();
+    public byte[] save(MechanicStorageContext context) throws SQLException, IOException {
+        RecordWriter str = context.newRecord(1);
         for (int i = 0; i < 9; i++) {
-            context.getSerializer().writeItemStack(str, this.craftingGridItems[i]);
+            str.writeItemStack(this.craftingGridItems[i]);
         }
 
-        context.getSerializer().writeItemStack(str, this.recipeResult);
-        context.getSerializer().writeItemStack(str, this.storageType);
-        context.getSerializer().writeInt(str, this.storageAmount);
+        str.writeItemStack(this.recipeResult);
+        str.writeItemStack(this.storageType);
+        str.writeInt(this.storageAmount);
 
-        context.uploadData(str);
+        return str.toByteArray();
     }
 
     @Override
@@ -150,6 +150,7 @@ public class Constructor extends AbstractMechanic<Constructor> implements Access
                     if (craft.isSimilar(stack)) {
                         craft.setAmount(craft.getAmount() + stack.getAmount());
                         event.setTransferred(true);
+                        wake(WakeCondition.INPUT);
                     }
                 }
             }
@@ -171,6 +172,17 @@ public class Constructor extends AbstractMechanic<Constructor> implements Access
 
     @Override
     public void think() {
+        advance(1);
+    }
+
+    @Override
+    public boolean canFastForward() {
+        // the batch is bounded by the stored ingredients and the storage capacity
+        return true;
+    }
+
+    @Override
+    public void advance(int cycles) {
         // check if the constructors storage has any previously crafted items which is not the that are
         // not the same as the current recipe.
         // if it has any, we can't craft the new recipe until all the previously crafted items are removed
@@ -185,6 +197,7 @@ public class Constructor extends AbstractMechanic<Constructor> implements Access
                 }
             }
 
+            sleep(WakeCondition.OUTPUT);
             return;
         }
 
@@ -198,34 +211,43 @@ public class Constructor extends AbstractMechanic<Constructor> implements Access
         }
 
         // if there are not any recipe in the crafting grid, don't continue
-        if (recipeResult == null
-                // if there is no space left, don't continue
-                || storageAmount + recipeResult.getAmount() > getCapacity()) {
+        if (recipeResult == null) {
+            sleep(WakeCondition.INPUT);
+            return;
+        }
+
+        // if there is no space left, don't continue
+        if (storageAmount + recipeResult.getAmount() > getCapacity()) {
+            sleep(WakeCondition.OUTPUT);
             return;
         }
 
-        // remove one amount from all items in the crafting grid and simulate the crafting
+        // craft as many times as the storage space allows, the storage type will be the recipe result
+        int space = (getCapacitySlots(level) * recipeResult.getMaxStackSize() - storageAmount) / recipeResult.getAmount();
+        int crafts = Math.min(cycles, Math.max(1, space));
+
+        // ... and as many times as all items in the crafting grid allows, one of each item is always kept
         int a = 0;
-        for (int i = 0; i < 9; i++) {
-            ItemStack crafting = craftingGridItems[i];
-            if (crafting != null && crafting.getAmount() == 1) {
-                // re-set the amounts if the constructor did not have enough items for the recipe
-                for (int j = 0; j < i; j++) {
-                    ItemStack reSetCrafting = craftingGridItems[j];
-                    if (reSetCrafting != null) {
-                        reSetCrafting.setAmount(reSetCrafting.getAmount() + 1);
-                    }
-                }
-                return;
+        for (ItemStack crafting : craftingGridItems) {
+            if (crafting != null) {
+                a++;
+                crafts = Math.min(crafts, crafting.getAmount() - 1);
             }
+        }
 
+        if (crafts <= 0) {
+            sleep(WakeCondition.INPUT);
+            return;
+        }
+
+        // remove the amount crafted from all items in the crafting grid and simulate the crafting
+        for (ItemStack crafting : craftingGridItems) {
             if (crafting != null) {
-                a++;
-                crafting.setAmount(crafting.getAmount() - 1);
+                crafting.setAmount(crafting.getAmount() - crafts);
             }
         }
 
-        xp += xpDist.poll() * a;
+        xp += xpDist.poll(crafts) * a;
 
         // update the storage type if not set
         if (storageType == null) {
@@ -233,11 +255,11 @@ public class Constructor extends AbstractMechanic<Constructor> implements Access
             storageType.setAmount(1);
         }
 
-        storageAmount += recipeResult.getAmount();
+        storageAmount += recipeResult.getAmount() * crafts;
 
         ConstructorGui gui = this.<ConstructorGui>getGuiInUse().get();
         if (gui != null) {
-            gui.updateAddedItems(recipeResult.getAmount());
+            gui.updateAddedItems(recipeResult.getAmount() * crafts);
             for (HumanEntity player : gui.getInventory().getViewers()) {
                 ((Player)player).playSound(getLocation(), Sound.BLOCK_WOOD_HIT, 0.5f, 1f);
             }
@@ -262,7 +284,31 @@ public class Constructor extends AbstractMechanic<Constructor> implements Access
             return Collections.emptyList();
         }
 
-        return this.<ConstructorGui>take((int) Math.min(getMaxTransfer(), amount), storageType, storageAmount, getGuiInUse(), ConstructorGui::updateRemovedItems, storage);
+        List<ItemStack> items = this.<ConstructorGui>take((int) Math.min(getMaxTransfer(), amount), storageType, storageAmount, getGuiInUse(), ConstructorGui::updateRemovedItems, storage);
+        if (!items.isEmpty()) {
+            wake(WakeCondition.OUTPUT);
+        }
+        return items;
+    }
+
+    @Override
+    public ItemKey getTransferKey() {
+        return storageAmount > 0 ? storageKey.get(storageType) : null;
+    }
+
+    @Override
+    public long pipeTake(ItemKey key, long amount) {
+        storage.ensureValidStorage();
+
+        if (tickThrottle.isThrottled() || storageType == null || storageAmount == 0 || key != getTransferKey()) {
+            return 0;
+        }
+
+        int taken = this.<ConstructorGui>takeAmount((int) Math.min(getMaxTransfer(), amount), storageAmount, getGuiInUse(), ConstructorGui::updateRemovedItems, storage);
+        if (taken > 0) {
+            wake(WakeCondition.OUTPUT);
+        }
+        return taken;
     }
 
     @Override
@@ -11,8 +11,6 @@ import org.bukkit.block.BlockFace;
 import org.bukkit.block.Sign;
 import org.bukkit.block.sign.Side;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.sql.SQLException;
 
@@ -27,16 +25,16 @@ public class EmeraldForge extends AbstractMechanic<EmeraldForge> implements Acce
 
     @Override
     public void load(MechanicStorageContext context) throws SQLException, IOException {
-        ByteArrayInputStream data = context.getData();
-        this.moneyAmount = context.getSerializer().readDouble(data);
+        RecordReader data = context.getRecord();
+        this.moneyAmount = data.readDouble();
     }
 
     @Override
-    public void save(MechanicStorageContext context) throws SQLException, IOException {
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        context.getSerializer().writeDouble(stream, this.moneyAmount);
+    public byte[] save(MechanicStorageContext context) throws SQLException, IOException {
+        RecordWriter stream = context.newRecord(1);
+        stream.writeDouble(this.moneyAmount);
 
-        context.uploadData(stream);
+        return stream.toByteArray();
     }
 
     @Override
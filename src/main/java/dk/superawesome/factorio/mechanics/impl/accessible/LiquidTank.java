@@ -12,8 +12,6 @@ import org.bukkit.block.BlockFace;
 import org.bukkit.block.Sign;
 import org.bukkit.block.sign.Side;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Optional;
@@ -37,12 +35,12 @@ public class LiquidTank extends AbstractMechanic<LiquidTank> implements FluidCol
 
     @Override
     public void load(MechanicStorageContext context) throws IOException, SQLException {
-        ByteArrayInputStream str = context.getData();
-        int fluidOrdinal = str.read();
+        RecordReader str = context.getRecord();
+        int fluidOrdinal = str.readUnsignedByte();
         if (fluidOrdinal <= Fluid.values().length && fluidOrdinal >= 0) {
             this.fluid = Fluid.values()[fluidOrdinal];
         }
-        this.fluidAmount = context.getSerializer().readInt(str);
+        this.fluidAmount = str.readInt();
 
         if (this.fluidAmount > 0 && fluid == null) {
             this.fluidAmount = 0;
@@ -52,12 +50,12 @@ public class LiquidTank extends AbstractMechanic<LiquidTank> implements FluidCol
     }
 
     @Override
-    public void save(MechanicStorageContext context) throws IOException, SQLException {
-        ByteArrayOutputStream str = new ByteArrayOutputStream();
-        str.write(Optional.ofNullable(fluid).map(Enum::ordinal).orElse(-1));
-        context.getSerializer().writeInt(str, fluidAmount);
+    public byte[] save(MechanicStorageContext context) throws IOException, SQLException {
+        RecordWriter str = context.newRecord(1);
+        str.writeByte(Optional.ofNullable(fluid).map(Enum::ordinal).orElse(-1));
+        str.writeInt(fluidAmount);
 
-        context.uploadData(str);
+        return str.toByteArray();
     }
 
     @Override
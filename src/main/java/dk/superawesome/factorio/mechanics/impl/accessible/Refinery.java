@@ -5,6 +5,7 @@ import dk.superawesome.factorio.mechanics.*;
 import dk.superawesome.factorio.mechanics.routes.events.pipe.PipePutEvent;
 import dk.superawesome.factorio.mechanics.stackregistry.Filled;
 import dk.superawesome.factorio.mechanics.stackregistry.Volume;
+import dk.superawesome.factorio.util.MaterialIndex;
 import dk.superawesome.factorio.mechanics.transfer.*;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -13,8 +14,6 @@ import org.bukkit.entity.HumanEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -52,7 +51,7 @@ public class Refinery extends AbstractMechanic<Refinery> implements AccessibleMe
                     .map(ItemStack::new)
                     .orElse(null);
             if (volumeAmount < getVolumeCapacity()
-                    && (item == null && collection.has(i -> Volume.getTypeFromMaterial(i.getType()).isPresent()) || item != null && collection.has(item))) {
+                    && (item == null && collection.has(i -> MaterialIndex.getVolume(i.getType()) != null) || item != null && collection.has(item))) {
                 int add = this.<RefineryGui>put(collection, getVolumeCapacity() - volumeAmount, getGuiInUse(), RefineryGui::updateAddedVolume, volumeStorage);
 
                 if (add > 0) {
@@ -131,16 +130,16 @@ public class Refinery extends AbstractMechanic<Refinery> implements AccessibleMe
 
     @Override
     public void load(MechanicStorageContext context) throws Exception {
-        ByteArrayInputStream str = context.getData();
+        RecordReader str = context.getRecord();
 
-        this.volumeAmount = context.getSerializer().readInt(str);
-        ItemStack volume = context.getSerializer().readItemStack(str);
+        this.volumeAmount = str.readInt();
+        ItemStack volume = str.readItemStack();
         if (volume != null && this.volumeAmount > 0) {
             this.volume = Volume.getTypeFromMaterial(volume.getType()).orElse(null);
         }
 
-        this.filledAmount = context.getSerializer().readInt(str);
-        ItemStack filledStack = context.getSerializer().readItemStack(str);
+        this.filledAmount = str.readInt();
+        ItemStack filledStack = str.readItemStack();
         if (filledStack != null && this.filledAmount > 0) {
             this.filled = Filled.getFilledStateByStack(filledStack).orElse(null);
         }
@@ -158,23 +157,23 @@ public class Refinery extends AbstractMechanic<Refinery> implements AccessibleMe
     }
 
     @Override
-    public void save(MechanicStorageContext context) throws IOException, SQLException {
-        ByteArrayOutputStream str = new ByteArrayOutputStream();
+    public byte[] save(MechanicStorageContext context) throws IOException, SQLException {
+        RecordWriter str = context.newRecord(1);
 
-        context.getSerializer().writeInt(str, this.volumeAmount);
-        context.getSerializer().writeItemStack(str,
+        str.writeInt(this.volumeAmount);
+        str.writeItemStack(
                 Optional.ofNullable(this.volume)
                         .map(Volume::getMat)
                         .map(ItemStack::new)
                         .orElse(null));
 
-        context.getSerializer().writeInt(str, this.filledAmount);
-        context.getSerializer().writeItemStack(str,
+        str.writeInt(this.filledAmount);
+        str.writeItemStack(
                 Optional.ofNullable(this.filled)
                         .map(Filled::getOutputItemStack)
                         .orElse(null));
 
-        context.uploadData(str);
+        return str.toByteArray();
     }
 
     @Override
@@ -270,6 +269,22 @@ public class Refinery extends AbstractMechanic<Refinery> implements AccessibleMe
         return this.<RefineryGui>take((int) Math.min(getMaxTransfer(), amount), filled.getOutputItemStack(), filledAmount, getGuiInUse(), RefineryGui::updateRemovedFilled, filledStorage);
     }
 
+    @Override
+    public ItemKey getTransferKey() {
+        return filled != null && filledAmount > 0 ? filled.getOutputKey() : null;
+    }
+
+    @Override
+    public long pipeTake(ItemKey key, long amount) {
+        filledStorage.ensureValidStorage();
+
+        if (tickThrottle.isThrottled() || filled == null || filledAmount == 0 || key != getTransferKey()) {
+            return 0;
+        }
+
+        return this.<RefineryGui>takeAmount((int) Math.min(getMaxTransfer(), amount), filledAmount, getGuiInUse(), RefineryGui::updateRemovedFilled, filledStorage);
+    }
+
     public Volume getVolume() {
         return volume;
     }
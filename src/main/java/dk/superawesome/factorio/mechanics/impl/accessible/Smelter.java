@@ -6,17 +6,15 @@ import dk.superawesome.factorio.mechanics.routes.events.pipe.PipePutEvent;
 import dk.superawesome.factorio.mechanics.stackregistry.Fuel;
 import dk.superawesome.factorio.mechanics.transfer.ItemCollection;
 import dk.superawesome.factorio.mechanics.transfer.ItemContainer;
-import org.bukkit.Bukkit;
+import dk.superawesome.factorio.mechanics.transfer.ItemKey;
+import dk.superawesome.factorio.recipes.RecipeIndex;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.BlockFace;
 import org.bukkit.inventory.FurnaceRecipe;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.Recipe;
 import org.bukkit.util.BlockVector;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.*;
@@ -41,25 +39,14 @@ public class Smelter extends AbstractMechanic<Smelter> implements FuelMechanic,
             new BlockVector(-1, 0, 0)
     );
 
-    private static final List<FurnaceRecipe> FURNACE_RECIPES = new ArrayList<>();
-
-    static {
-        Iterator<Recipe> recipeIterator = Bukkit.recipeIterator();
-        while (recipeIterator.hasNext()) {
-            Recipe recipe = recipeIterator.next();
-
-            if (recipe instanceof FurnaceRecipe furnaceRecipe) {
-                FURNACE_RECIPES.add(furnaceRecipe);
-            }
-        }
-    }
-
     private final Storage ingredientStorage = getProfile().getStorageProvider().createStorage(this, SmelterGui.INGREDIENT_CONTEXT);
     private final Storage storedStorage = getProfile().getStorageProvider().createStorage(this, SmelterGui.STORED_CONTEXT);
     private final XPDist xpDist = new XPDist(100, 0.001, 0.01);
     private final DelayHandler thinkDelayHandler = new DelayHandler(level.get(MechanicLevel.THINK_DELAY_MARK));
     private final DelayHandler transferDelayHandler = new DelayHandler(10);
 
+    private final ItemKey.Holder ingredientKey = new ItemKey.Holder();
+    private final ItemKey.Holder storageKey = new ItemKey.Holder();
     private ItemStack ingredient;
     private int ingredientAmount;
 
@@ -81,15 +68,15 @@ public class Smelter extends AbstractMechanic<Smelter> implements FuelMechanic,
 
     @Override
     public void load(MechanicStorageContext context) throws Exception {
-        ByteArrayInputStream str = context.getData();
-        this.ingredient = context.getSerializer().readItemStack(str);
-        this.smeltResult = context.getSerializer().readItemStack(str);
-        setIngredientAmount(context.getSerializer().readInt(str)); // ensure no zero if ingredient set
+        RecordReader str = context.getRecord();
+        this.ingredient = str.readItemStack();
+        this.smeltResult = str.readItemStack();
+        setIngredientAmount(str.readInt()); // ensure no zero if ingredient set
 
-        loadFuel(context, str);
+        loadFuel(str);
 
-        this.storageType = context.getSerializer().readItemStack(str);
-        setStorageAmount(context.getSerializer().readInt(str)); // ensure no zero if storage set
+        this.storageType = str.readItemStack();
+        setStorageAmount(str.readInt()); // ensure no zero if storage set
 
         clearSmeltResult: {
             if (this.ingredientAmount > 0 && this.ingredient == null) {
@@ -114,18 +101,18 @@ public class Smelter extends AbstractMechanic<Smelter> implements FuelMechanic,
     }
 
     @Override
-    public void save(MechanicStorageContext context) throws IOException, SQLException {
-        ByteArrayOutputStream str = new ByteArrayOutputStream();
-        context.getSerializer().writeItemStack(str, this.ingredient);
-        context.getSerializer().writeItemStack(str, this.smeltResult);
-        context.getSerializer().writeInt(str, this.ingredientAmount);
+    public byte[] save(MechanicStorageContext context) throws IOException, SQLException {
+        RecordWriter str = context.newRecord(1);
+        str.writeItemStack(this.ingredient);
+        str.writeItemStack(this.smeltResult);
+        str.writeInt(this.ingredientAmount);
 
-        saveFuel(context, str);
+        saveFuel(str);
 
-        context.getSerializer().writeItemStack(str, this.storageType);
-        context.getSerializer().writeInt(str, this.storageAmount);
+        str.writeItemStack(this.storageType);
+        str.writeInt(this.storageAmount);
 
-        context.uploadData(str);
+        return str.toByteArray();
     }
 
     @Override
@@ -148,11 +135,13 @@ public class Smelter extends AbstractMechanic<Smelter> implements FuelMechanic,
             return;
         }
 
-        if (ingredient != null && collection.has(ingredient) || ingredient == null && collection.has(this::canSmelt)) {
+        ItemKey key = collection.getTransferKey();
+        if (key != null && (ingredient != null && key == ingredientKey.get(ingredient) || ingredient == null && collection.has(this::canSmelt))) {
             int add = this.<SmelterGui>put(collection, getIngredientCapacity() - ingredientAmount, getGuiInUse(), SmelterGui::updateAddedIngredients, ingredientStorage);
             if (add > 0) {
                 ingredientAmount += add;
                 event.setTransferred(true);
+                wake(WakeCondition.INPUT);
             }
 
             if (smeltResult == null) {
@@ -193,17 +182,14 @@ public class Smelter extends AbstractMechanic<Smelter> implements FuelMechanic,
     }
 
     public static boolean canSmeltStatic(ItemStack item) {
-        return FURNACE_RECIPES.stream().anyMatch(r -> r.getInputChoice().test(item));
+        return RecipeIndex.findSmeltingRecipe(item) != null;
     }
 
     public boolean canSmelt(ItemStack item) {
-        boolean can = FURNACE_RECIPES.stream().peek(r -> cachedSmeltResult = r.getResult()).anyMatch(r -> r.getInputChoice().test(item));
-
-        if (!can) {
-            cachedSmeltResult = null;
-        }
+        FurnaceRecipe recipe = RecipeIndex.findSmeltingRecipe(item);
+        cachedSmeltResult = recipe != null ? recipe.getResult() : null;
 
-        return can;
+        return recipe != null;
     }
 
     @Override
@@ -213,6 +199,17 @@ public class Smelter extends AbstractMechanic<Smelter> implements FuelMechanic,
 
     @Override
     public void think() {
+        advance(1);
+    }
+
+    @Override
+    public boolean canFastForward() {
+        // the batch is bounded by the stored ingredients, fuel and capacity
+        return true;
+    }
+
+    @Override
+    public void advance(int cycles) {
         cachedSmeltResult = null;
 
         // check if the smelters storage has any previously smelted items which is not the
@@ -229,6 +226,7 @@ public class Smelter extends AbstractMechanic<Smelter> implements FuelMechanic,
                 }
             }
 
+            sleep(WakeCondition.OUTPUT);
             return;
         }
 
@@ -250,19 +248,31 @@ public class Smelter extends AbstractMechanic<Smelter> implements FuelMechanic,
                 // this item can not be smelted, it shouldn't be in the smelter
                 ingredient = null;
                 ingredientAmount = 0;
+                sleep(WakeCondition.INPUT);
                 return;
             }
         }
 
         // if there are no ingredients ready to be smelted, don't continue
-        if (ingredient == null
-                // if there is no space left, don't continue
-                || storageAmount + smeltResult.getAmount() > getCapacity()) {
+        if (ingredient == null) {
+            sleep(WakeCondition.INPUT);
+            return;
+        }
+
+        // if there is no space left, don't continue
+        if (storageAmount + smeltResult.getAmount() > getCapacity()) {
+            sleep(WakeCondition.OUTPUT);
             return;
         }
 
-        FuelState state = useFuel();
-        if (state == FuelState.ABORT) {
+        // smelt as many times as the ingredients and storage space allows, the storage type will be the smelt result
+        int space = (getCapacitySlots(level) * smeltResult.getMaxStackSize() - storageAmount) / smeltResult.getAmount();
+        int smelts = Math.min(cycles, Math.min(ingredientAmount, Math.max(1, space)));
+
+        // ... and as long as there is fuel left
+        smelts = useFuel(smelts);
+        if (smelts == 0) {
+            sleep(WakeCondition.FUEL);
             return;
         }
 
@@ -274,15 +284,15 @@ public class Smelter extends AbstractMechanic<Smelter> implements FuelMechanic,
         }
 
         // do the smelting
-        ingredientAmount -= 1;
-        storageAmount += smeltResult.getAmount();
+        ingredientAmount -= smelts;
+        storageAmount += smeltResult.getAmount() * smelts;
 
-        xp += xpDist.poll();
+        xp += xpDist.poll(smelts);
 
         SmelterGui gui = this.<SmelterGui>getGuiInUse().get();
         if (gui != null) {
-            gui.updateRemovedIngredients(1);
-            gui.updateAddedStorage(smeltResult.getAmount());
+            gui.updateRemovedIngredients(smelts);
+            gui.updateAddedStorage(smeltResult.getAmount() * smelts);
             gui.updateFuelState();
         }
 
@@ -312,7 +322,31 @@ public class Smelter extends AbstractMechanic<Smelter> implements FuelMechanic,
             return Collections.emptyList();
         }
 
-        return this.<SmelterGui>take((int) Math.min(getMaxTransfer(), amount), storageType, storageAmount, getGuiInUse(), SmelterGui::updateRemovedStorage, storedStorage);
+        List<ItemStack> items = this.<SmelterGui>take((int) Math.min(getMaxTransfer(), amount), storageType, storageAmount, getGuiInUse(), SmelterGui::updateRemovedStorage, storedStorage);
+        if (!items.isEmpty()) {
+            wake(WakeCondition.OUTPUT);
+        }
+        return items;
+    }
+
+    @Override
+    public ItemKey getTransferKey() {
+        return storageAmount > 0 ? storageKey.get(storageType) : null;
+    }
+
+    @Override
+    public long pipeTake(ItemKey key, long amount) {
+        storedStorage.ensureValidStorage();
+
+        if (tickThrottle.isThrottled() || storageType == null || storageAmount == 0 || key != getTransferKey()) {
+            return 0;
+        }
+
+        int taken = this.<SmelterGui>takeAmount((int) Math.min(getMaxTransfer(), amount), storageAmount, getGuiInUse(), SmelterGui::updateRemovedStorage, storedStorage);
+        if (taken > 0) {
+            wake(WakeCondition.OUTPUT);
+        }
+        return taken;
     }
 
     @Override
@@ -327,7 +361,12 @@ public class Smelter extends AbstractMechanic<Smelter> implements FuelMechanic,
 
     @Override
     public double getMaxTransfer() {
-        return storageType.getMaxStackSize();
+        return storageType.getMaxStackSize() * getTransferStacks();
+    }
+
+    @Override
+    public int getTransferStacks() {
+        return level.getInt(MechanicLevel.TRANSFER_STACKS_MARK, 1);
     }
 
     @Override
@@ -5,6 +5,7 @@ import dk.superawesome.factorio.mechanics.*;
 import dk.superawesome.factorio.mechanics.routes.events.pipe.PipePutEvent;
 import dk.superawesome.factorio.mechanics.transfer.ItemCollection;
 import dk.superawesome.factorio.mechanics.transfer.ItemContainer;
+import dk.superawesome.factorio.mechanics.transfer.ItemKey;
 import dk.superawesome.factorio.util.statics.StringUtil;
 import org.bukkit.Location;
 import org.bukkit.block.BlockFace;
@@ -12,8 +13,6 @@ import org.bukkit.block.Sign;
 import org.bukkit.block.sign.Side;
 import org.bukkit.inventory.ItemStack;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -24,6 +23,7 @@ public class StorageBox extends AbstractMechanic<StorageBox> implements Accessib
 
     private final DelayHandler transferDelayHandler = new DelayHandler(10);
 
+    private final ItemKey.Holder storedKey = new ItemKey.Holder();
     private ItemStack stored;
     private int amount;
 
@@ -34,20 +34,20 @@ public class StorageBox extends AbstractMechanic<StorageBox> implements Accessib
 
     @Override
     public void load(MechanicStorageContext context) throws Exception {
-        ByteArrayInputStream str = context.getData();
-        this.stored = context.getSerializer().readItemStack(str);
-        this.amount = context.getSerializer().readInt(str);
+        RecordReader str = context.getRecord();
+        this.stored = str.readItemStack();
+        this.amount = str.readInt();
 
         ensureValidStorage();
     }
 
     @Override
-    public void save(MechanicStorageContext context) throws Exception {
-        ByteArrayOutputStream str = new ByteArrayOutputStream();
-        context.getSerializer().writeItemStack(str, this.stored);
-        context.getSerializer().writeInt(str, this.amount);
+    public byte[] save(MechanicStorageContext context) throws Exception {
+        RecordWriter str = context.newRecord(1);
+        str.writeItemStack(this.stored);
+        str.writeInt(this.amount);
 
-        context.uploadData(str);
+        return str.toByteArray();
     }
 
     @Override
@@ -63,7 +63,8 @@ public class StorageBox extends AbstractMechanic<StorageBox> implements Accessib
             return;
         }
 
-        if ((stored == null || collection.has(stored)) && amount < getCapacity()) {
+        ItemKey key = collection.getTransferKey();
+        if (key != null && (stored == null || key == storedKey.get(stored)) && amount < getCapacity()) {
             event.setTransferred(true);
             amount += this.<StorageBoxGui>put(collection, getCapacity() - amount, getGuiInUse(), StorageBoxGui::updateAddedItems, this);
         }
@@ -118,6 +119,22 @@ public class StorageBox extends AbstractMechanic<StorageBox> implements Accessib
         return take((int) Math.min(getMaxTransfer(), amount));
     }
 
+    @Override
+    public ItemKey getTransferKey() {
+        return storedKey.get(stored);
+    }
+
+    @Override
+    public long pipeTake(ItemKey key, long amount) {
+        ensureValidStorage();
+
+        if (tickThrottle.isThrottled() || stored == null || key != getTransferKey()) {
+            return 0;
+        }
+
+        return this.<StorageBoxGui>takeAmount((int) Math.min(getMaxTransfer(), amount), this.amount, getGuiInUse(), StorageBoxGui::updateRemovedItems, this);
+    }
+
     public List<ItemStack> take(int amount) {
         ensureValidStorage();
 
@@ -141,7 +158,12 @@ public class StorageBox extends AbstractMechanic<StorageBox> implements Accessib
 
     @Override
     public double getMaxTransfer() {
-        return stored.getMaxStackSize();
+        return stored.getMaxStackSize() * getTransferStacks();
+    }
+
+    @Override
+    public int getTransferStacks() {
+        return level.getInt(MechanicLevel.TRANSFER_STACKS_MARK, 1);
     }
 
     @Override
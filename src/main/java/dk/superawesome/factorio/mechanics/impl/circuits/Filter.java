@@ -5,9 +5,10 @@ import dk.superawesome.factorio.building.Buildings;
 import dk.superawesome.factorio.mechanics.*;
 import dk.superawesome.factorio.mechanics.impl.accessible.Smelter;
 import dk.superawesome.factorio.mechanics.routes.Routes;
-import dk.superawesome.factorio.mechanics.stackregistry.Fuel;
 import dk.superawesome.factorio.mechanics.transfer.ItemCollection;
 import dk.superawesome.factorio.mechanics.transfer.ItemContainer;
+import dk.superawesome.factorio.mechanics.transfer.ItemFilter;
+import dk.superawesome.factorio.util.MaterialIndex;
 import dk.superawesome.factorio.util.MaterialTags;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -17,16 +18,14 @@ import org.bukkit.block.BlockFace;
 import org.bukkit.block.Sign;
 import org.bukkit.block.sign.Side;
 import org.bukkit.entity.Player;
-import org.bukkit.event.EventHandler;
 import org.bukkit.event.block.SignChangeEvent;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.*;
-import java.util.function.Predicate;
 
 public class Filter extends Circuit<Filter, ItemCollection> implements ItemContainer {
 
-    private final List<Predicate<ItemStack>> filter = new ArrayList<>();
+    private final ItemFilter filter = new ItemFilter();
 
     public Filter(Location loc, BlockFace rotation, MechanicStorageContext context, boolean hasWallSign, boolean isBuild) {
         super(loc, rotation, context, hasWallSign, isBuild);
@@ -37,14 +36,14 @@ public class Filter extends Circuit<Filter, ItemCollection> implements ItemConta
         loadItems(filter, getSign(), by, this);
     }
 
-    @EventHandler
+    @MechanicEventHandler
     public void onSignChange(SignChangeEvent event) {
         if (event.getBlock().equals(getSign().getBlock())) {
             Bukkit.getScheduler().runTask(Factorio.get(), () -> loadItems(filter, getSign(), event.getPlayer(), this));
         }
     }
 
-    public static void loadItems(List<Predicate<ItemStack>> filter, Sign sign, Player by, Mechanic<?> mechanic) {
+    public static void loadItems(ItemFilter filter, Sign sign, Player by, Mechanic<?> mechanic) {
         // remove previous filter items if any present
         filter.clear();
 
@@ -52,10 +51,8 @@ public class Filter extends Circuit<Filter, ItemCollection> implements ItemConta
         for (String line : Arrays.copyOfRange(sign.getSide(Side.FRONT).getLines(), 1, 4)) {
             Arrays.stream(line.split(","))
                     .map(String::trim)
-                    .map(s -> findFilter(new Stack<>(), s))
-                    .forEach(filter::add);
+                    .forEach(s -> addFilter(filter, new Stack<>(), s));
         }
-        filter.removeAll(Collections.singletonList(null));
 
         if (filter.isEmpty()) {
             Factorio.get().getMechanicManagerFor(mechanic).deleteMechanic(mechanic);
@@ -69,10 +66,10 @@ public class Filter extends Circuit<Filter, ItemCollection> implements ItemConta
                 String line = sign.getSide(Side.FRONT).getLine(i);
                 StringBuilder builder = new StringBuilder();
                 Stack<String> stack = new Stack<>();
+                ItemFilter lineFilter = new ItemFilter();
                 Arrays.stream(line.split(","))
                         .map(String::trim)
-                        .map(s -> findFilter(stack, s))
-                        .filter(Objects::nonNull)
+                        .filter(s -> addFilter(lineFilter, stack, s))
                         .peek(__ -> builder.append(","))
                         .forEach(item -> builder.append(stack.pop()));
 
@@ -87,25 +84,34 @@ public class Filter extends Circuit<Filter, ItemCollection> implements ItemConta
         }
     }
 
-    public static Predicate<ItemStack> findFilter(Stack<String> stack, String name) {
+    public static boolean addFilter(ItemFilter filter, Stack<String> stack, String name) {
         stack.push(name.toLowerCase());
         if (name.equalsIgnoreCase("fuel")) {
-            return i -> Fuel.getType(i.getType()).isPresent();
+            filter.addMaterials(MaterialIndex.getFuelMaterials());
+            return true;
         } else if (name.equalsIgnoreCase("smeltable")) {
-            return Smelter::canSmeltStatic;
+            // the smelting recipes can change on reload, so this is looked up for each item
+            filter.add(Smelter::canSmeltStatic);
+            return true;
         }
 
-        return findItem(name).map(i -> (Predicate<ItemStack>) i::isSimilar)
-                .orElse(findTag(stack, name).map(tag -> (Predicate<ItemStack>) item -> tag.isTagged(item.getType()))
-                        .orElse(null)
-                );
+        Optional<ItemStack> item = findItem(name);
+        if (item.isPresent()) {
+            filter.addPlainMaterial(item.get().getType());
+            return true;
+        }
+
+        Optional<Tag<Material>> tag = findTag(stack, name);
+        if (tag.isPresent()) {
+            filter.addMaterials(MaterialIndex.getTagged(tag.get()));
+            return true;
+        }
+
+        return false;
     }
 
     public static Optional<ItemStack> findItem(String name) {
-        return Arrays.stream(Material.values())
-                .filter(m -> m.name().equalsIgnoreCase(name))
-                .filter(Material::isItem)
-                .findFirst()
+        return Optional.ofNullable(MaterialIndex.getItem(name))
                 .map(ItemStack::new);
     }
 
@@ -133,10 +139,8 @@ public class Filter extends Circuit<Filter, ItemCollection> implements ItemConta
 
     @Override
     public boolean pipePut(ItemCollection collection) {
-        for (Predicate<ItemStack> filter : this.filter) {
-            if (collection.has(filter)) {
-                return Routes.startTransferRoute(loc.getBlock(), collection, this, false);
-            }
+        if (collection.has(filter)) {
+            return Routes.startTransferRoute(loc.getBlock(), collection, this, false);
         }
 
         return false;
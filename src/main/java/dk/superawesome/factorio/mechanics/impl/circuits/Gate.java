@@ -2,6 +2,7 @@ package dk.superawesome.factorio.mechanics.impl.circuits;
 
 import dk.superawesome.factorio.Factorio;
 import dk.superawesome.factorio.mechanics.Circuit;
+import dk.superawesome.factorio.mechanics.MechanicEventHandler;
 import dk.superawesome.factorio.mechanics.MechanicProfile;
 import dk.superawesome.factorio.mechanics.MechanicStorageContext;
 import dk.superawesome.factorio.mechanics.Profiles;
@@ -16,7 +17,6 @@ import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.block.data.type.Repeater;
 import org.bukkit.entity.Player;
-import org.bukkit.event.EventHandler;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockRedstoneEvent;
 
@@ -50,7 +50,7 @@ public class Gate extends Circuit<Gate, TransferCollection> implements Container
         checkSignal();
     }
 
-    @EventHandler
+    @MechanicEventHandler
     public void onRedstoneInput(BlockRedstoneEvent event) {
         if (event.getBlock().getType() == Material.REPEATER
                 && BlockUtil.getPointingBlock(event.getBlock(), true).getLocation().equals(loc)) {
@@ -58,7 +58,7 @@ public class Gate extends Circuit<Gate, TransferCollection> implements Container
         }
     }
 
-    @EventHandler
+    @MechanicEventHandler
     public void onBlockBreak(BlockBreakEvent event) {
         if (BlockUtil.isRelativeFast(event.getBlock(), loc.getBlock())) {
             Bukkit.getScheduler().runTask(Factorio.get(), this::checkSignal);
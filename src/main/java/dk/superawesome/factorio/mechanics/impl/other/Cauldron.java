@@ -10,7 +10,6 @@ import org.bukkit.Material;
 import org.bukkit.block.BlockFace;
 import org.bukkit.block.data.Levelled;
 import org.bukkit.entity.Player;
-import org.bukkit.event.EventHandler;
 import org.bukkit.event.block.CauldronLevelChangeEvent;
 
 public class Cauldron extends AbstractMechanic<Cauldron> implements FluidCollection {
@@ -45,7 +44,7 @@ public class Cauldron extends AbstractMechanic<Cauldron> implements FluidCollect
         }
     }
 
-    @EventHandler
+    @MechanicEventHandler(scope = MechanicEventHandler.Scope.AT)
     public void onCauldronLevelChange(CauldronLevelChangeEvent event) {
         if (event.getBlock().equals(loc.getBlock())) {
             Bukkit.getScheduler().runTask(Factorio.get(), this::checkCauldron);
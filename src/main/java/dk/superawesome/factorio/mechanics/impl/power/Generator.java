@@ -23,8 +23,6 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.util.BlockVector;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Arrays;
@@ -65,10 +63,10 @@ public class Generator extends AbstractMechanic<Generator> implements FuelMechan
 
     @Override
     public void load(MechanicStorageContext context) throws IOException, SQLException, ClassNotFoundException {
-        ByteArrayInputStream str = context.getData();
+        RecordReader str = context.getRecord();
 
-        loadFuel(context, str);
-        this.availableEnergy = context.getSerializer().readDouble(str);
+        loadFuel(str);
+        this.availableEnergy = str.readDouble();
 
         if (this.fuelAmount > 0 && this.fuel == null) {
             this.fuelAmount = 0;
@@ -78,13 +76,13 @@ public class Generator extends AbstractMechanic<Generator> implements FuelMechan
     }
 
     @Override
-    public void save(MechanicStorageContext context) throws IOException, SQLException {
-        ByteArrayOutputStream str = new ByteArrayOutputStream();
+    public byte[] save(MechanicStorageContext context) throws IOException, SQLException {
+        RecordWriter str = context.newRecord(1);
 
-        saveFuel(context, str);
-        context.getSerializer().writeDouble(str, this.availableEnergy);
+        saveFuel(str);
+        str.writeDouble(this.availableEnergy);
 
-        context.uploadData(str);
+        return str.toByteArray();
     }
 
     @Override
@@ -122,21 +120,7 @@ public class Generator extends AbstractMechanic<Generator> implements FuelMechan
         // check if the generator does not have any energy available for a power central
         if (availableEnergy <= getTransferEnergyCost() * 2) {
             // ... use fuel and generate energy if not
-            Fuel prevFuel = fuel;
-            Fuel prevCurrentFuel = currentFuel;
-
-            FuelState state = useFuel();
-            if (state != FuelState.ABORT) {
-                Fuel useFuel = prevCurrentFuel != null ? prevCurrentFuel : prevFuel; // both can't be null, but has to check current fuel first
-                availableEnergy += useFuel.getEnergyAmount();
-
-                xp += xpDist.poll();
-
-                GeneratorGui gui = this.<GeneratorGui>getGuiInUse().get();
-                if (gui != null) {
-                    gui.updateFuelState();
-                }
-            }
+            generate();
         }
 
         // try to transfer energy if the generator has any energy available
@@ -149,13 +133,51 @@ public class Generator extends AbstractMechanic<Generator> implements FuelMechan
                 turnedOn = false;
                 updateLight();
             }
-        } else if (turnedOn) {
-            // turn off after all energy has been transferred to a power central
-            turnedOn = false;
-            updateLight();
+        } else {
+            if (turnedOn) {
+                // turn off after all energy has been transferred to a power central
+                turnedOn = false;
+                updateLight();
+            }
+
+            // no energy left to provide and no fuel to generate more energy from
+            sleep(WakeCondition.FUEL);
         }
     }
 
+    @Override
+    public void fastForward(long ticks) {
+        // no energy is transferred while unloaded, so fuel is only used until there is energy available again
+        int cycles = getCycles(ticks);
+        while (cycles-- > 0 && availableEnergy <= getTransferEnergyCost() * 2) {
+            if (!generate()) {
+                break;
+            }
+        }
+    }
+
+    private boolean generate() {
+        Fuel prevFuel = fuel;
+        Fuel prevCurrentFuel = currentFuel;
+
+        FuelState state = useFuel();
+        if (state == FuelState.ABORT) {
+            return false;
+        }
+
+        Fuel useFuel = prevCurrentFuel != null ? prevCurrentFuel : prevFuel; // both can't be null, but has to check current fuel first
+        availableEnergy += useFuel.getEnergyAmount();
+
+        xp += xpDist.poll();
+
+        GeneratorGui gui = this.<GeneratorGui>getGuiInUse().get();
+        if (gui != null) {
+            gui.updateFuelState();
+        }
+
+        return true;
+    }
+
     @Override
     public void updateLight() {
         if (loc.getWorld() != null) {
@@ -13,8 +13,6 @@ import org.bukkit.block.BlockFace;
 import org.bukkit.block.data.type.Switch;
 import org.bukkit.entity.Player;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.sql.SQLException;
 
@@ -43,18 +41,18 @@ public class PowerCentral extends AbstractMechanic<PowerCentral> implements Acce
 
     @Override
     public void load(MechanicStorageContext context) throws IOException, SQLException {
-        ByteArrayInputStream str = context.getData();
-        this.energy = context.getSerializer().readDouble(str);
-        this.activated = !context.getSerializer().readBoolean(str);
+        RecordReader str = context.getRecord();
+        this.energy = str.readDouble();
+        this.activated = !str.readBoolean();
     }
 
     @Override
-    public void save(MechanicStorageContext context) throws IOException, SQLException {
-        ByteArrayOutputStream str = new ByteArrayOutputStream();
-        context.getSerializer().writeDouble(str, this.energy);
-        context.getSerializer().writeBoolean(str, !this.activated);
+    public byte[] save(MechanicStorageContext context) throws IOException, SQLException {
+        RecordWriter str = context.newRecord(1);
+        str.writeDouble(this.energy);
+        str.writeBoolean(!this.activated);
 
-        context.uploadData(str);
+        return str.toByteArray();
     }
 
     @Override
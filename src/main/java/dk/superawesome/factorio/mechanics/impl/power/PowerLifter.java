@@ -18,7 +18,6 @@ import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.block.data.Powerable;
 import org.bukkit.entity.Player;
-import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
@@ -44,6 +43,11 @@ public class PowerLifter extends SignalTrigger<PowerLifter> implements SignalInv
         }
     };
 
+    // the loaded lifters in each world, so a placed block only re-roots those instead of going through all mechanics
+    private static final Map<World, Set<PowerLifter>> lifters = new HashMap<>();
+    // the last block place handled, so the lifters are only re-rooted once when more lifters are next to the block
+    private static BlockPlaceEvent lastPlace;
+
     private final TickThrottle invokeThrottle = new TickThrottle();
     private boolean invoked;
     private boolean isRoot;
@@ -56,6 +60,28 @@ public class PowerLifter extends SignalTrigger<PowerLifter> implements SignalInv
     @Override
     public void onBlocksLoaded(Player by) {
         setupRelativeBlocks();
+        lifters.computeIfAbsent(this.loc.getWorld(), __ -> new LinkedHashSet<>()).add(this);
+    }
+
+    @Override
+    public boolean unload() {
+        forget();
+        return super.unload();
+    }
+
+    @Override
+    public void move(Location loc, BlockFace rot, Block sign) {
+        // the lifter could be moved to another world
+        forget();
+        super.move(loc, rot, sign);
+        lifters.computeIfAbsent(this.loc.getWorld(), __ -> new LinkedHashSet<>()).add(this);
+    }
+
+    private void forget() {
+        Set<PowerLifter> inWorld = lifters.get(this.loc.getWorld());
+        if (inWorld != null && inWorld.remove(this) && inWorld.isEmpty()) {
+            lifters.remove(this.loc.getWorld());
+        }
     }
 
     @Override
@@ -148,7 +174,7 @@ public class PowerLifter extends SignalTrigger<PowerLifter> implements SignalInv
         return transferred;
     }
 
-    @EventHandler
+    @MechanicEventHandler
     public void onSignal(BlockRedstoneEvent event) {
         if (BlockUtil.isDiagonal2DFast(event.getBlock(), loc.getBlock()) && event.getBlock().getType() == Material.REPEATER) {
             Block point = BlockUtil.getPointingBlock(event.getBlock(), true);
@@ -236,21 +262,22 @@ public class PowerLifter extends SignalTrigger<PowerLifter> implements SignalInv
         invokeRoot(Collections.emptyList());
     }
 
-    @EventHandler
+    @MechanicEventHandler(scope = MechanicEventHandler.Scope.AT)
     public void onMechanicRemove(MechanicRemoveEvent event) {
         if (event.getMechanic() == this) {
+            forget();
             startLift(lifter -> lifter.triggerLevers(false));
         }
     }
 
-    @EventHandler
+    @MechanicEventHandler(scope = MechanicEventHandler.Scope.GLOBAL)
     public void onMechanicLoad(MechanicLoadEvent event) {
         if (event.getMechanic() instanceof PowerLifter) {
             invokeRoot();
         }
     }
 
-    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true) // call after listener for BlockBreakEvent that invokes MechanicRemoveEvent
+    @MechanicEventHandler(priority = EventPriority.HIGH, ignoreCancelled = true) // call after listener for BlockBreakEvent that invokes MechanicRemoveEvent
     @Override
     public void onBlockBreak(BlockBreakEvent event) {
         super.handleBlockBreak(event);
@@ -260,20 +287,22 @@ public class PowerLifter extends SignalTrigger<PowerLifter> implements SignalInv
         }
     }
 
-    @EventHandler(ignoreCancelled = true)
+    @MechanicEventHandler(ignoreCancelled = true)
     @Override
     public void onBlockPlace(BlockPlaceEvent event) {
         super.handleBlockPlace(event);
 
-        MechanicManager manager = Factorio.get().getMechanicManagerFor(this);
-        BlockUtil.forRelative(event.getBlock(), b -> {
-            if (manager.getMechanicAt(BlockUtil.getVec(b)) instanceof PowerLifter) {
-                invokeRoot();
+        // a block placed next to this lifter can connect it to other lifters, so any of the root lifters could lift further now
+        // only handled by the first lifter next to the block, instead of every lifter checking the blocks next to it
+        if (event != lastPlace && BlockUtil.isRelativeFast(this.loc.getBlock(), event.getBlock())) {
+            lastPlace = event;
+            for (PowerLifter lifter : new ArrayList<>(lifters.getOrDefault(this.loc.getWorld(), Collections.emptySet()))) {
+                lifter.invokeRoot();
             }
-        });
+        }
     }
 
-    @EventHandler(ignoreCancelled = true)
+    @MechanicEventHandler(ignoreCancelled = true)
     @Override
     public void onLeverPull(PlayerInteractEvent event) {
         super.handleLeverPull(event);
@@ -13,6 +13,9 @@ public class SolarCell extends AbstractMechanic<SolarCell> implements ThinkingMe
 
     private static final int SUN_LIGHT = 15;
     private static final double MAX_ENERGY = 25d;
+    private static final int DAY_LENGTH = 24000;
+    private static final int DAY_TIME = 12000;
+    private static final double AVERAGE_ENERGY = (35d / 2 + 15) / 45;
 
     private final DelayHandler thinkHandler = new DelayHandler(40);
 
@@ -57,6 +60,23 @@ public class SolarCell extends AbstractMechanic<SolarCell> implements ThinkingMe
         }
     }
 
+    @Override
+    public void fastForward(long ticks) {
+        if (this.loc.getBlock().getLightFromSky() != SUN_LIGHT) {
+            return;
+        }
+
+        // only the ticks at day time would have generated energy
+        long now = this.loc.getWorld().getFullTime();
+        long dayTicks = getDayTicks(now) - getDayTicks(now - ticks);
+        energy = Math.min(MAX_ENERGY, energy + getCycles(dayTicks) * AVERAGE_ENERGY);
+    }
+
+    private static long getDayTicks(long time) {
+        // the amount of ticks at day time from the world was created until the given time
+        return Math.floorDiv(time, DAY_LENGTH) * (DAY_TIME + 1) + Math.min(Math.floorMod(time, DAY_LENGTH), DAY_TIME + 1);
+    }
+
     @Override
     public boolean handleOutput(Block block, Location loc, Block from) {
         return Routes.invokeEnergySourceOutput(block, loc, this, this);
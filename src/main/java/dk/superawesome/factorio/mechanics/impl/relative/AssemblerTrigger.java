@@ -12,7 +12,6 @@ import org.bukkit.block.BlockFace;
 import org.bukkit.block.Sign;
 import org.bukkit.block.sign.Side;
 import org.bukkit.entity.Player;
-import org.bukkit.event.EventHandler;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.block.SignChangeEvent;
@@ -37,6 +36,9 @@ public class AssemblerTrigger extends SignalTrigger<AssemblerTrigger> implements
         // if all assembler prices are above the minPrice or minPercentage, power is off
         powered = false;
 
+        // assemblers in unloaded chunks are connected again when they are loaded
+        assemblers.removeIf(assembler -> !assembler.exists());
+
         for (Assembler assembler : assemblers) {
             if (assembler.getType() != null) {
                 Assembler.Type type = assembler.getType();
@@ -63,7 +65,7 @@ public class AssemblerTrigger extends SignalTrigger<AssemblerTrigger> implements
         triggerLevers();
     }
 
-    @EventHandler
+    @MechanicEventHandler(scope = MechanicEventHandler.Scope.GLOBAL)
     public void onPriceUpdate(AssemblerTypeRequestEvent event) {
         for (Assembler assembler : assemblers) {
             if (assembler.getType() != null && assembler.getType().isTypesEquals(event.getType())) {
@@ -73,7 +75,7 @@ public class AssemblerTrigger extends SignalTrigger<AssemblerTrigger> implements
         }
     }
 
-    @EventHandler
+    @MechanicEventHandler
     public void onAssemblerTypeChange(AssemblerTypeChangeEvent event) {
         for (Assembler assembler : assemblers) {
             if (assembler.getType() != null && assembler.getType().isTypesEquals(event.getNewType())) {
@@ -83,19 +85,19 @@ public class AssemblerTrigger extends SignalTrigger<AssemblerTrigger> implements
         }
     }
 
-    @EventHandler
+    @MechanicEventHandler
     @Override
     public void onBlockPlace(BlockPlaceEvent event) {
         super.handleBlockPlace(event);
     }
 
-    @EventHandler
+    @MechanicEventHandler
     @Override
     public void onBlockBreak(BlockBreakEvent event)  {
         super.handleBlockBreak(event);
     }
 
-    @EventHandler
+    @MechanicEventHandler
     @Override
     public void onLeverPull(PlayerInteractEvent event) {
         super.handleLeverPull(event);
@@ -118,7 +120,7 @@ public class AssemblerTrigger extends SignalTrigger<AssemblerTrigger> implements
         });
     }
 
-    @EventHandler
+    @MechanicEventHandler
     public void onSignChange(SignChangeEvent event) {
         if (event.getBlock().equals(getSign().getBlock())) {
             Bukkit.getScheduler().runTask(Factorio.get(), () -> {
@@ -185,7 +187,7 @@ public class AssemblerTrigger extends SignalTrigger<AssemblerTrigger> implements
         return thinkDelayHandler;
     }
 
-    @EventHandler
+    @MechanicEventHandler
     public void onMechanicLoad(MechanicLoadEvent event) {
         if (event.getMechanic() instanceof Assembler assembler) {
             MechanicManager manager = Factorio.get().getMechanicManagerFor(this);
@@ -197,7 +199,14 @@ public class AssemblerTrigger extends SignalTrigger<AssemblerTrigger> implements
         }
     }
 
-    @EventHandler
+    @MechanicEventHandler
+    public void onMechanicUnload(MechanicUnloadEvent event) {
+        if (event.getMechanic() instanceof Assembler assembler) {
+            assemblers.remove(assembler);
+        }
+    }
+
+    @MechanicEventHandler
     public void onMechanicRemove(MechanicRemoveEvent event) {
         if (event.getMechanic() instanceof Assembler assembler) {
             assemblers.remove(assembler);
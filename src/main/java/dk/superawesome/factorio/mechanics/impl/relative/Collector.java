@@ -3,6 +3,7 @@ package dk.superawesome.factorio.mechanics.impl.relative;
 import dk.superawesome.factorio.mechanics.*;
 import dk.superawesome.factorio.mechanics.routes.Routes;
 import dk.superawesome.factorio.mechanics.transfer.ItemCollection;
+import dk.superawesome.factorio.mechanics.transfer.ItemKey;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
@@ -15,6 +16,7 @@ import java.util.function.Predicate;
 
 public class Collector extends AbstractMechanic<Collector> implements ItemCollection {
 
+    private final ItemKey.Holder collectedKey = new ItemKey.Holder();
     private ItemStack collected;
 
     public Collector(Location loc, BlockFace rotation, MechanicStorageContext context, boolean hasWallSign, boolean isBuild) {
@@ -62,6 +64,11 @@ public class Collector extends AbstractMechanic<Collector> implements ItemCollec
         return Collections.singletonList(item);
     }
 
+    @Override
+    public ItemKey getTransferKey() {
+        return collectedKey.get(collected);
+    }
+
     @Override
     public boolean isTransferEmpty() {
         return collected == null;
@@ -2,7 +2,9 @@ package dk.superawesome.factorio.mechanics.impl.relative;
 
 import dk.superawesome.factorio.Factorio;
 import dk.superawesome.factorio.api.events.MechanicBuildEvent;
+import dk.superawesome.factorio.api.events.MechanicLoadEvent;
 import dk.superawesome.factorio.api.events.MechanicRemoveEvent;
+import dk.superawesome.factorio.api.events.MechanicUnloadEvent;
 import dk.superawesome.factorio.mechanics.*;
 import dk.superawesome.factorio.mechanics.transfer.TransferCollection;
 import dk.superawesome.factorio.util.statics.BlockUtil;
@@ -10,7 +12,6 @@ import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Player;
-import org.bukkit.event.EventHandler;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
@@ -30,6 +31,10 @@ public class Comparator extends SignalTrigger<Comparator> implements ThinkingMec
 
     @Override
     public void think() {
+        if (collectionTrigger instanceof Mechanic<?> mechanic && !mechanic.exists()) {
+            collectionTrigger = null;
+        }
+
         if (collectionTrigger != null) {
             if (collectionTrigger.isTransferEmpty() && powered) {
                 powered = false;
@@ -57,27 +62,36 @@ public class Comparator extends SignalTrigger<Comparator> implements ThinkingMec
         });
     }
 
-    @EventHandler
+    @MechanicEventHandler
     @Override
     public void onLeverPull(PlayerInteractEvent event) {
         super.handleLeverPull(event);
     }
 
-    @EventHandler
+    @MechanicEventHandler
     @Override
     public void onBlockPlace(BlockPlaceEvent event) {
         super.handleBlockPlace(event);
     }
 
-    @EventHandler
+    @MechanicEventHandler
     @Override
     public void onBlockBreak(BlockBreakEvent event)  {
         super.handleBlockBreak(event);
     }
 
-    @EventHandler
+    @MechanicEventHandler
     public void onMechanicBuild(MechanicBuildEvent event) {
-        if (this.collectionTrigger == null && event.getMechanic() instanceof TransferCollection collection) {
+        connect(event.getMechanic());
+    }
+
+    @MechanicEventHandler
+    public void onMechanicLoad(MechanicLoadEvent event) {
+        connect(event.getMechanic());
+    }
+
+    private void connect(Mechanic<?> mechanic) {
+        if (this.collectionTrigger == null && mechanic instanceof TransferCollection collection) {
             if (Factorio.get().getMechanicManagerFor(this).getMechanicAt(
                     BlockUtil.getPointingBlock(loc.getBlock(), true).getLocation()) == collection) {
                 this.collectionTrigger = collection;
@@ -85,7 +99,14 @@ public class Comparator extends SignalTrigger<Comparator> implements ThinkingMec
         }
     }
 
-    @EventHandler
+    @MechanicEventHandler
+    public void onMechanicUnload(MechanicUnloadEvent event) {
+        if (this.collectionTrigger == event.getMechanic()) {
+            this.collectionTrigger = null;
+        }
+    }
+
+    @MechanicEventHandler
     public void onMechanicRemove(MechanicRemoveEvent event) {
         if (this.collectionTrigger == event.getMechanic()) {
             this.collectionTrigger = null;
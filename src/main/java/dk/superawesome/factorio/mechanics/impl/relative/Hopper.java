@@ -2,7 +2,9 @@ package dk.superawesome.factorio.mechanics.impl.relative;
 
 import dk.superawesome.factorio.Factorio;
 import dk.superawesome.factorio.api.events.MechanicBuildEvent;
+import dk.superawesome.factorio.api.events.MechanicLoadEvent;
 import dk.superawesome.factorio.api.events.MechanicRemoveEvent;
+import dk.superawesome.factorio.api.events.MechanicUnloadEvent;
 import dk.superawesome.factorio.building.Buildings;
 import dk.superawesome.factorio.mechanics.*;
 import dk.superawesome.factorio.mechanics.routes.events.pipe.PipePutEvent;
@@ -15,7 +17,6 @@ import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Player;
-import org.bukkit.event.EventHandler;
 
 public class Hopper extends AbstractMechanic<Hopper> implements ThinkingMechanic {
 
@@ -68,12 +69,27 @@ public class Hopper extends AbstractMechanic<Hopper> implements ThinkingMechanic
         }
     }
 
-    @EventHandler
+    @MechanicEventHandler
     public void onMechanicBuild(MechanicBuildEvent event) {
         Bukkit.getScheduler().runTask(Factorio.get(), this::checkIO);
     }
 
-    @EventHandler
+    @MechanicEventHandler
+    public void onMechanicLoad(MechanicLoadEvent event) {
+        Bukkit.getScheduler().runTask(Factorio.get(), this::checkIO);
+    }
+
+    @MechanicEventHandler
+    public void onMechanicUnload(MechanicUnloadEvent event) {
+        if (event.getMechanic() == takeMechanic) {
+            takeMechanic = null;
+        }
+        if (event.getMechanic() == putMechanic) {
+            putMechanic = null;
+        }
+    }
+
+    @MechanicEventHandler
     public void onMechanicRemove(MechanicRemoveEvent event) {
         if (event.getMechanic() == takeMechanic || event.getMechanic() == putMechanic) {
             Bukkit.getScheduler().runTask(Factorio.get(), () -> {
@@ -90,6 +106,14 @@ public class Hopper extends AbstractMechanic<Hopper> implements ThinkingMechanic
 
     @Override
     public void think() {
+        // don't transfer from or to a mechanic which was unloaded or removed
+        if (takeMechanic instanceof Mechanic<?> mechanic && !mechanic.exists()) {
+            takeMechanic = null;
+        }
+        if (putMechanic instanceof Mechanic<?> mechanic && !mechanic.exists()) {
+            putMechanic = null;
+        }
+
         if (takeMechanic != null && putMechanic != null && !takeMechanic.isTransferEmpty()) {
             putMechanic.pipePut(takeMechanic, new PipePutEvent(null, takeMechanic, this));
         }
@@ -11,6 +11,7 @@ import dk.superawesome.factorio.mechanics.impl.accessible.Assembler;
 import dk.superawesome.factorio.mechanics.transfer.ItemCollection;
 import dk.superawesome.factorio.mechanics.transfer.MoneyCollection;
 import dk.superawesome.factorio.util.Array;
+import dk.superawesome.factorio.util.MaterialIndex;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.block.BlockFace;
@@ -58,7 +59,7 @@ public class AssemblerProfile implements GuiMechanicProfile<Assembler> {
 
                     @Override
                     public Predicate<ItemStack> getFilter() {
-                        return item -> Assembler.Types.getTypeFromMaterial(item.getType()).isPresent();
+                        return item -> MaterialIndex.getAssemblerType(item.getType()) != null;
                     }
 
                     @Override
@@ -54,13 +54,14 @@ public class StorageBoxProfile implements GuiMechanicProfile<StorageBox> {
         return MechanicLevel.Registry.Builder
                 .make(5)
                 .setDescription(2, Arrays.asList("§eLager: 36 stacks §f-> §e100 stacks"))
-                .setDescription(3, Arrays.asList("§eLager: 100 stacks §f-> §e250 stacks"))
-                .setDescription(4, Arrays.asList("§eLager: 250 stacks §f-> §e400 stacks"))
-                .setDescription(5, Arrays.asList("§eLager: 400 stacks §f-> §e750 stacks"))
+                .setDescription(3, Arrays.asList("§eLager: 100 stacks §f-> §e250 stacks", "§ePipe overførsel: 1 stack §f-> §e2 stacks"))
+                .setDescription(4, Arrays.asList("§eLager: 250 stacks §f-> §e400 stacks", "§ePipe overførsel: 2 stacks §f-> §e3 stacks"))
+                .setDescription(5, Arrays.asList("§eLager: 400 stacks §f-> §e750 stacks", "§ePipe overførsel: 3 stacks §f-> §e4 stacks"))
 
                 .mark(MechanicLevel.LEVEL_COST_MARK, Array.fromData(3048d, 8192d, 16384d, 34960d))
 
                 .mark(ItemCollection.CAPACITY_MARK, Array.fromData(36, 100, 250, 400, 750))
+                .mark(MechanicLevel.TRANSFER_STACKS_MARK, Array.fromData(1, 1, 2, 3, 4))
                 .build();
     }
 
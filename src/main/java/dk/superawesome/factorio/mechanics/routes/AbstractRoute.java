@@ -9,6 +9,7 @@ import dk.superawesome.factorio.mechanics.impl.power.PowerCentral;
 import dk.superawesome.factorio.mechanics.routes.events.pipe.PipePutEvent;
 import dk.superawesome.factorio.mechanics.transfer.TransferCollection;
 import dk.superawesome.factorio.util.Array;
+import dk.superawesome.factorio.util.LongMap;
 import dk.superawesome.factorio.util.statics.BlockUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -20,35 +21,138 @@ import org.bukkit.block.data.Directional;
 import org.bukkit.util.BlockVector;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 @SuppressWarnings("unchecked")
 public abstract class AbstractRoute<R extends AbstractRoute<R, O>, O> {
 
-    private static final Map<World, Map<BlockVector, List<AbstractRoute<?, ?>>>> cachedRoutes = new HashMap<>();
-    private static final Map<World, Map<BlockVector, AbstractRoute<?, ?>>> cachedOriginRoutes = new HashMap<>();
+    private static final AbstractRoute<?, ?>[] NO_ROUTES = new AbstractRoute<?, ?>[0];
+
+    // the routes at each block, the arrays are never modified after they are put into the map
+    private static final Map<World, LongMap<AbstractRoute<?, ?>[]>> cachedRoutes = new HashMap<>();
+    private static final Map<World, LongMap<AbstractRoute<?, ?>>> cachedOriginRoutes = new HashMap<>();
+    // the cached routes which stopped searching at each chunk because it was not loaded
+    private static final Map<World, LongMap<List<AbstractRoute<?, ?>>>> waitingRoutes = new HashMap<>();
 
     public static <R extends AbstractRoute<R, ?>> R getCachedOriginRoute(World world, BlockVector vec) {
-        return (R) cachedOriginRoutes.computeIfAbsent(world, d -> new HashMap<>())
-                .get(new BlockVector(vec.getBlockX(), vec.getBlockY(), vec.getBlockZ()));
+        return getCachedOriginRoute(world, vec.getBlockX(), vec.getBlockY(), vec.getBlockZ());
+    }
+
+    public static <R extends AbstractRoute<R, ?>> R getCachedOriginRoute(World world, int x, int y, int z) {
+        LongMap<AbstractRoute<?, ?>> routes = cachedOriginRoutes.get(world);
+        if (routes == null) {
+            return null;
+        }
+
+        return (R) routes.get(BlockUtil.getBlockKey(x, y, z));
     }
 
     public static List<AbstractRoute<?, ?>> getCachedRoutes(World world, BlockVector vec) {
-        return cachedRoutes.computeIfAbsent(world, d -> new HashMap<>())
-                .getOrDefault(new BlockVector(vec.getBlockX(), vec.getBlockY(), vec.getBlockZ()), new ArrayList<>());
+        return getCachedRoutes(world, vec.getBlockX(), vec.getBlockY(), vec.getBlockZ());
     }
 
-    public static <R extends AbstractRoute<R, ?>> void addRouteToCache(AbstractRoute<?, ?> route) {
-        if (cachedRoutes.isEmpty()) {
-            cachedRoutes.put(route.getWorld(), new HashMap<>());
+    public static List<AbstractRoute<?, ?>> getCachedRoutes(World world, int x, int y, int z) {
+        AbstractRoute<?, ?>[] routes = getRoutesAt(world, BlockUtil.getBlockKey(x, y, z));
+        if (routes.length == 0) {
+            return Collections.emptyList();
+        }
+
+        return Arrays.asList(routes);
+    }
+
+    public static boolean hasCachedRoutes(World world, int x, int y, int z) {
+        return getRoutesAt(world, BlockUtil.getBlockKey(x, y, z)).length > 0;
+    }
+
+    public static List<AbstractRoute<?, ?>> getRoutesWaitingFor(World world, int chunkX, int chunkZ) {
+        LongMap<List<AbstractRoute<?, ?>>> routes = waitingRoutes.get(world);
+        if (routes == null) {
+            return Collections.emptyList();
+        }
+
+        List<AbstractRoute<?, ?>> waiting = routes.get(BlockUtil.getChunkKey(chunkX, chunkZ));
+        if (waiting == null) {
+            return Collections.emptyList();
+        }
+
+        return new ArrayList<>(waiting);
+    }
+
+    private static void addWaitingRoute(AbstractRoute<?, ?> route, long chunk) {
+        waitingRoutes.computeIfAbsent(route.getWorld(), __ -> new LongMap<>())
+                .computeIfAbsent(chunk, __ -> new ArrayList<>())
+                .add(route);
+    }
+
+    private static void removeWaitingRoute(AbstractRoute<?, ?> route, long chunk) {
+        LongMap<List<AbstractRoute<?, ?>>> routes = waitingRoutes.get(route.getWorld());
+        if (routes == null) {
+            return;
         }
 
+        List<AbstractRoute<?, ?>> waiting = routes.get(chunk);
+        if (waiting != null && waiting.remove(route) && waiting.isEmpty()) {
+            routes.remove(chunk);
+        }
+    }
+
+    public static void forEachCachedRoute(World world, Consumer<AbstractRoute<?, ?>> consumer) {
+        LongMap<AbstractRoute<?, ?>> routes = cachedOriginRoutes.get(world);
+        if (routes != null) {
+            routes.forEachValue(consumer);
+        }
+    }
+
+    private static AbstractRoute<?, ?>[] getRoutesAt(World world, long key) {
+        LongMap<AbstractRoute<?, ?>[]> routes = cachedRoutes.get(world);
+        if (routes == null) {
+            return NO_ROUTES;
+        }
+
+        return routes.getOrDefault(key, NO_ROUTES);
+    }
+
+    private static void addRouteAt(AbstractRoute<?, ?> route, long key) {
+        LongMap<AbstractRoute<?, ?>[]> routes = cachedRoutes.computeIfAbsent(route.getWorld(), __ -> new LongMap<>());
+        AbstractRoute<?, ?>[] at = routes.getOrDefault(key, NO_ROUTES);
+        AbstractRoute<?, ?>[] added = Arrays.copyOf(at, at.length + 1);
+        added[at.length] = route;
+        routes.put(key, added);
+    }
+
+    private static void removeRouteAt(AbstractRoute<?, ?> route, long key) {
+        LongMap<AbstractRoute<?, ?>[]> routes = cachedRoutes.get(route.getWorld());
+        if (routes == null) {
+            return;
+        }
+
+        AbstractRoute<?, ?>[] at = routes.getOrDefault(key, NO_ROUTES);
+        for (int i = 0; i < at.length; i++) {
+            if (at[i] == route) {
+                if (at.length == 1) {
+                    routes.remove(key);
+                } else {
+                    AbstractRoute<?, ?>[] removed = new AbstractRoute<?, ?>[at.length - 1];
+                    System.arraycopy(at, 0, removed, 0, i);
+                    System.arraycopy(at, i + 1, removed, i, at.length - i - 1);
+                    routes.put(key, removed);
+                }
+                return;
+            }
+        }
+    }
+
+    public static <R extends AbstractRoute<R, ?>> void addRouteToCache(AbstractRoute<?, ?> route) {
         if (!route.getLocations().isEmpty()) {
-            cachedOriginRoutes.get(route.getWorld()).put(route.getStart(), route);
+            cachedOriginRoutes.computeIfAbsent(route.getWorld(), __ -> new LongMap<>())
+                    .put(BlockUtil.getBlockKey(route.getStart()), route);
             for (BlockVector loc : route.getLocations()) {
-                cachedRoutes.get(route.getWorld())
-                        .computeIfAbsent(loc, __ -> new ArrayList<>())
-                        .add(route);
+                addRouteAt(route, BlockUtil.getBlockKey(loc));
             }
+            for (long chunk : route.waiting) {
+                addWaitingRoute(route, chunk);
+            }
+            route.cached = true;
 
             if (route.getFactory().getEventHandler() != null) {
                 ((R) route).getFactory().getEventHandler().callBuildEvent((R) route);
@@ -57,14 +161,18 @@ public abstract class AbstractRoute<R extends AbstractRoute<R, O>, O> {
     }
 
     public static <R extends AbstractRoute<R, ?>> void removeRouteFromCache(AbstractRoute<?, ?> route) {
-        if (cachedRoutes.isEmpty()) {
+        if (!route.cached) {
             return;
         }
 
-        cachedOriginRoutes.get(route.getWorld()).remove(route.getStart());
+        cachedOriginRoutes.get(route.getWorld()).remove(BlockUtil.getBlockKey(route.getStart()));
         for (BlockVector loc : route.getLocations()) {
-            cachedRoutes.get(route.getWorld()).getOrDefault(loc, new ArrayList<>()).remove(route);
+            removeRouteAt(route, BlockUtil.getBlockKey(loc));
+        }
+        for (long chunk : route.waiting) {
+            removeWaitingRoute(route, chunk);
         }
+        route.cached = false;
 
         if (route.getFactory().getEventHandler() != null) {
             ((R) route).getFactory().getEventHandler().callRemoveEvent((R) route);
@@ -73,11 +181,19 @@ public abstract class AbstractRoute<R extends AbstractRoute<R, O>, O> {
 
     protected final Array<Queue<O>> outputs = new Array<>();
     protected final Set<BlockVector> locations = new HashSet<>();
-    protected final Map<BlockVector, List<BlockVector>> visited = new HashMap<>();
+    // only kept while this route is being searched
+    private VisitedEdges visited;
+    // the chunks this route could not be searched into because they were not loaded
+    private final Set<Long> waiting = new HashSet<>();
 
     private final World world;
     private final BlockVector start;
 
+    // if this route is in the cache, locations added or removed afterwards are updated in the cache as well
+    private boolean cached;
+    // if this route is being expanded in place, the blocks already in the route are not searched again
+    protected boolean extending;
+
     public AbstractRoute(World world, BlockVector start) {
         this.start = start;
         this.world = world;
@@ -92,34 +208,82 @@ public abstract class AbstractRoute<R extends AbstractRoute<R, O>, O> {
     }
 
     public boolean hasVisited(BlockVector vec, BlockVector rel) {
-        return visited.containsKey(vec) && visited.get(vec).contains(rel);
+        if (extending && locations.contains(rel)) {
+            return true;
+        }
+
+        return visited != null && visited.contains(vec, rel);
     }
 
     public void visit(BlockVector vec, BlockVector rel) {
-        visited.computeIfAbsent(vec, __ -> new ArrayList<>()).add(rel);
+        if (visited == null) {
+            visited = new VisitedEdges();
+        }
+
+        visited.add(vec, rel);
+    }
+
+    public void finishSearch() {
+        // the route only has to keep its locations and outputs after it has been searched
+        visited = null;
+    }
+
+    public void waitFor(long chunk) {
+        if (waiting.add(chunk) && cached) {
+            addWaitingRoute(this, chunk);
+        }
+    }
+
+    public boolean isWaiting() {
+        return !waiting.isEmpty();
     }
 
     public void add(BlockVector vec) {
-        locations.add(vec);
+        if (locations.add(vec) && cached) {
+            addRouteAt(this, BlockUtil.getBlockKey(vec));
+        }
+    }
+
+    public void remove(BlockVector vec) {
+        if (locations.remove(vec) && cached) {
+            removeRouteAt(this, BlockUtil.getBlockKey(vec));
+        }
+    }
+
+    public static BlockVector getRelative(BlockVector vec, BlockFace face) {
+        return new BlockVector(vec.getBlockX() + face.getModX(), vec.getBlockY() + face.getModY(), vec.getBlockZ() + face.getModZ());
     }
 
     public Collection<BlockVector> getLocations() {
         return locations;
     }
 
+    public int getOutputContexts() {
+        return outputs.size();
+    }
+
+    public boolean hasOutputs(int context) {
+        return outputs.has(context);
+    }
+
     public Queue<O> getOutputs(int context) {
         return outputs.get(context, LinkedList::new);
     }
 
     public void addOutput(World world, BlockVector vec, BlockVector from, int context) {
         outputs.get(context, LinkedList::new).add(createOutputEntry(world, vec, from));
-        locations.add(vec);
+        add(vec);
     }
 
     public void addOutput(World world, BlockVector vec, BlockVector from) {
         addOutput(world, vec, from, Routes.DEFAULT_CONTEXT);
     }
 
+    // the location of the output and the block it is output from, or null if the outputs of this route can't be stored
+    public BlockVector[] getOutputVectors(O output) {
+        return null;
+    }
+
     public abstract RouteFactory<R> getFactory();
 
     public abstract void search(Block from, BlockVector relVec, Block rel, boolean isFromOrigin);
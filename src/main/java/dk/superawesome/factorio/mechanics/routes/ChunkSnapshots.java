@@ -0,0 +1,69 @@
+package dk.superawesome.factorio.mechanics.routes;
+
+import dk.superawesome.factorio.util.LongMap;
+import dk.superawesome.factorio.util.statics.BlockUtil;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+public class ChunkSnapshots {
+
+    private final LongMap<ChunkSnapshot> snapshots = new LongMap<>();
+    // the change of the chunk at the time it was captured, see RouteDiscovery.getChanges
+    private final LongMap<long[]> capturedAt = new LongMap<>();
+    private final int minHeight;
+    private final int maxHeight;
+
+    public ChunkSnapshots(World world) {
+        this.minHeight = world.getMinHeight();
+        this.maxHeight = world.getMaxHeight();
+    }
+
+    // must be called from the main thread, and not while the snapshots are being read
+    public void capture(Chunk chunk, long changes) {
+        long key = BlockUtil.getChunkKey(chunk);
+        snapshots.put(key, chunk.getChunkSnapshot(false, false, false));
+        capturedAt.put(key, new long[]{changes});
+    }
+
+    // if any of the captured chunks were changed after they were captured
+    public boolean isOutdated(LongMap<long[]> changedAt) {
+        boolean[] outdated = {false};
+        capturedAt.forEach((key, at) -> {
+            long[] changed = changedAt.get(key);
+            if (changed != null && changed[0] > at[0]) {
+                outdated[0] = true;
+            }
+        });
+
+        return outdated[0];
+    }
+
+    public boolean has(int chunkX, int chunkZ) {
+        return snapshots.containsKey(BlockUtil.getChunkKey(chunkX, chunkZ));
+    }
+
+    public boolean isCaptured(int x, int z) {
+        return snapshots.containsKey(BlockUtil.getChunkKeyAt(x, z));
+    }
+
+    public Material getType(int x, int y, int z) {
+        ChunkSnapshot snapshot = snapshots.get(BlockUtil.getChunkKeyAt(x, z));
+        if (snapshot == null || y < minHeight || y >= maxHeight) {
+            return Material.AIR;
+        }
+
+        return snapshot.getBlockType(x & 0xF, y, z & 0xF);
+    }
+
+    public BlockData getBlockData(int x, int y, int z) {
+        ChunkSnapshot snapshot = snapshots.get(BlockUtil.getChunkKeyAt(x, z));
+        if (snapshot == null || y < minHeight || y >= maxHeight) {
+            return null;
+        }
+
+        return snapshot.getBlockData(x & 0xF, y, z & 0xF);
+    }
+}
@@ -0,0 +1,187 @@
+package dk.superawesome.factorio.mechanics.routes;
+
+import dk.superawesome.factorio.Factorio;
+import dk.superawesome.factorio.mechanics.routes.impl.Pipe;
+import dk.superawesome.factorio.mechanics.routes.impl.PipeSearch;
+import dk.superawesome.factorio.util.LongMap;
+import dk.superawesome.factorio.util.statics.BlockUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+public class RouteDiscovery {
+
+    private static final ExecutorService SEARCH_THREAD = Executors.newSingleThreadExecutor();
+
+    // the pipe searches currently running, keyed by their origin
+    private static final Map<World, LongMap<PipeSearch>> searches = new HashMap<>();
+    // counted up every time a pipe block is placed or broken, or a chunk is loaded
+    private static long changes;
+    // the last change in each loaded chunk, so only searches with outdated snapshots of that chunk are started again
+    private static final Map<World, LongMap<long[]>> chunkChanges = new HashMap<>();
+
+    public static void onBlockChange(Block block, Material type) {
+        if (type == Material.GLASS || type == Material.PISTON || BlockUtil.anyStainedGlass.test(type)) {
+            markChanged(block.getWorld(), BlockUtil.getChunkKeyAt(block.getX(), block.getZ()));
+        }
+    }
+
+    private static void markChanged(World world, long chunkKey) {
+        chunkChanges.computeIfAbsent(world, __ -> new LongMap<>())
+                .computeIfAbsent(chunkKey, __ -> new long[1])[0] = ++changes;
+    }
+
+    public static long getChanges() {
+        return changes;
+    }
+
+    private static void capture(PipeSearch search, Chunk chunk) {
+        search.getSnapshots().capture(chunk, changes);
+    }
+
+    private static boolean isOutdated(PipeSearch search) {
+        LongMap<long[]> worldChanges = chunkChanges.get(search.getWorld());
+        return worldChanges != null && search.getSnapshots().isOutdated(worldChanges);
+    }
+
+    public static boolean isSearching(World world, int x, int y, int z) {
+        LongMap<PipeSearch> worldSearches = searches.get(world);
+        return worldSearches != null && worldSearches.containsKey(BlockUtil.getBlockKey(x, y, z));
+    }
+
+    public static void discoverPipe(Block start, boolean onlyExpandIfOriginValid) {
+        World world = start.getWorld();
+        if (!world.isChunkLoaded(start.getX() >> 4, start.getZ() >> 4)
+                || isSearching(world, start.getX(), start.getY(), start.getZ())) {
+            return;
+        }
+
+        PipeSearch search = new PipeSearch(world, BlockUtil.getVec(start), onlyExpandIfOriginValid);
+        capture(search, start.getChunk());
+        searches.computeIfAbsent(world, __ -> new LongMap<>())
+                .put(BlockUtil.getBlockKey(start.getX(), start.getY(), start.getZ()), search);
+        submit(search);
+    }
+
+    // run a task on the search thread, e.g. comparing stored routes to snapshots of their chunks
+    static void submitTask(Runnable task) {
+        if (SEARCH_THREAD.isShutdown()) {
+            return;
+        }
+
+        SEARCH_THREAD.submit(() -> {
+            try {
+                task.run();
+            } catch (Exception ex) {
+                Bukkit.getLogger().log(Level.SEVERE, "Failed to run route task", ex);
+            }
+        });
+    }
+
+    // wait for the searches and tasks which are still running, nothing is searched after this
+    public static void shutdown() {
+        SEARCH_THREAD.shutdown();
+        try {
+            if (!SEARCH_THREAD.awaitTermination(10, TimeUnit.SECONDS)) {
+                Bukkit.getLogger().warning("Route searches did not finish in time");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void submit(PipeSearch search) {
+        if (SEARCH_THREAD.isShutdown()) {
+            return;
+        }
+
+        SEARCH_THREAD.submit(() -> {
+            try {
+                search.run();
+            } catch (Exception ex) {
+                Bukkit.getLogger().log(Level.SEVERE, "Failed to search pipe route at " + search.getStart(), ex);
+            }
+
+            Bukkit.getScheduler().runTask(Factorio.get(), () -> complete(search));
+        });
+    }
+
+    private static void complete(PipeSearch search) {
+        World world = search.getWorld();
+        long key = BlockUtil.getBlockKey(search.getStart());
+        LongMap<PipeSearch> worldSearches = searches.get(world);
+        if (worldSearches == null || worldSearches.get(key) != search) {
+            return;
+        }
+
+        if (isOutdated(search)) {
+            // pipe blocks were changed in the captured chunks while searching, so the snapshots are outdated
+            worldSearches.remove(key);
+            discoverPipe(BlockUtil.getBlock(world, search.getStart()), search.isOnlyExpandIfOriginValid());
+            return;
+        }
+
+        // continue the search into the chunks it has reached which are loaded
+        boolean captured = false;
+        for (long chunk : search.getPendingChunks()) {
+            int chunkX = BlockUtil.getChunkKeyX(chunk);
+            int chunkZ = BlockUtil.getChunkKeyZ(chunk);
+            if (world.isChunkLoaded(chunkX, chunkZ)) {
+                capture(search, world.getChunkAt(chunkX, chunkZ));
+                captured = true;
+            }
+        }
+        if (captured) {
+            submit(search);
+            return;
+        }
+
+        // replace the previous route from this origin at once, the rest waits for the chunks which are not loaded
+        worldSearches.remove(key);
+        Pipe previous = AbstractRoute.getCachedOriginRoute(world, search.getStart());
+        if (previous != null) {
+            AbstractRoute.removeRouteFromCache(previous);
+        }
+        AbstractRoute.addRouteToCache(search.createRoute());
+    }
+
+    public static void onChunkLoad(Chunk chunk) {
+        // the chunk could have been changed while it was unloaded
+        markChanged(chunk.getWorld(), BlockUtil.getChunkKey(chunk));
+
+        for (AbstractRoute<?, ?> route : AbstractRoute.getRoutesWaitingFor(chunk.getWorld(), chunk.getX(), chunk.getZ())) {
+            if (route instanceof Pipe) {
+                // the route is used as it is until it has been searched again
+                discoverPipe(BlockUtil.getBlock(route.getWorld(), route.getStart()), false);
+            } else {
+                AbstractRoute.removeRouteFromCache(route);
+            }
+        }
+    }
+
+    public static void onChunkUnload(Chunk chunk) {
+        LongMap<long[]> worldChanges = chunkChanges.get(chunk.getWorld());
+        if (worldChanges == null) {
+            return;
+        }
+
+        // keep the last change while any search has captured this chunk, otherwise it is marked as changed again when it is loaded
+        LongMap<PipeSearch> worldSearches = searches.get(chunk.getWorld());
+        boolean[] captured = {false};
+        if (worldSearches != null) {
+            worldSearches.forEachValue(search -> captured[0] |= search.getSnapshots().has(chunk.getX(), chunk.getZ()));
+        }
+        if (!captured[0]) {
+            worldChanges.remove(BlockUtil.getChunkKey(chunk));
+        }
+    }
+}
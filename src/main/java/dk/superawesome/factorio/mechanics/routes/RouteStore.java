@@ -0,0 +1,510 @@
+package dk.superawesome.factorio.mechanics.routes;
+
+import dk.superawesome.factorio.Factorio;
+import dk.superawesome.factorio.mechanics.Mechanic;
+import dk.superawesome.factorio.mechanics.MechanicManager;
+import dk.superawesome.factorio.mechanics.routes.impl.Pipe;
+import dk.superawesome.factorio.mechanics.routes.impl.Signal;
+import dk.superawesome.factorio.util.LongMap;
+import dk.superawesome.factorio.util.statics.BlockUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.data.Directional;
+import org.bukkit.util.BlockVector;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.logging.Level;
+
+public class RouteStore {
+
+    private static final int MAGIC = 0x46524F55;
+    // version 2 added the type of the mechanics at the outputs of signal routes to the checksums
+    private static final int VERSION = 2;
+
+    private static final byte PIPE = 0;
+    private static final byte SIGNAL = 1;
+
+    // outputs are stored as pairs of the output location and the block it is output from, for each context
+    private record StoredRoute(byte type, long start, long[] locations, long[][] outputs, long[] chunks, long[] checksums) {
+    }
+
+    // a route being saved, the checksums of its blocks are added from snapshots of its chunks
+    private record SavedRoute(byte type, long start, long[] locations, long[][] outputs, LongMap<long[]> checksums) {
+    }
+
+    // the routes from the last save which have not been used since, keyed by their origin
+    private static final Map<World, LongMap<StoredRoute>> storedRoutes = new HashMap<>();
+    // the stored routes in each chunk they have checksums for, so they are validated when it is loaded and dropped when it is changed
+    private static final Map<World, LongMap<List<StoredRoute>>> chunkRoutes = new HashMap<>();
+    // the stored routes being validated on the search thread
+    private static final Set<StoredRoute> validating = new HashSet<>();
+    // the checksums of the blocks of the validated routes, computed from snapshots of their chunks
+    private static final Map<StoredRoute, LongMap<long[]>> validated = new HashMap<>();
+
+    private static File getFile(World world) {
+        return new File(Factorio.get().getDataFolder(), "routes/" + world.getName() + ".dat");
+    }
+
+    private static byte getType(RouteFactory<?> factory) {
+        if (factory == RouteFactory.PipeRouteFactory.FACTORY) {
+            return PIPE;
+        } else if (factory == RouteFactory.SignalRouteFactory.FACTORY) {
+            return SIGNAL;
+        }
+
+        return -1;
+    }
+
+    private static long mix(long hash) {
+        hash *= 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 32);
+    }
+
+    private static void addChecksum(ChunkSnapshots snapshots, LongMap<long[]> checksums, int x, int y, int z) {
+        Material type = snapshots.getType(x, y, z);
+        long hash = BlockUtil.getBlockKey(x, y, z) * 31 + type.ordinal();
+        if (type == Material.PISTON || type == Material.STICKY_PISTON || type == Material.REPEATER || type == Material.COMPARATOR || type == Material.OBSERVER) {
+            if (snapshots.getBlockData(x, y, z) instanceof Directional directional) {
+                hash = hash * 31 + directional.getFacing().ordinal();
+            }
+        }
+
+        checksums.computeIfAbsent(BlockUtil.getChunkKeyAt(x, z), __ -> new long[1])[0] += mix(hash);
+    }
+
+    // add the sum of the types of the blocks in and next to the route for each chunk, all the chunks of the route must be captured
+    private static LongMap<long[]> addChecksums(ChunkSnapshots snapshots, long[] locations, LongMap<long[]> checksums) {
+        for (long key : locations) {
+            int x = BlockUtil.getBlockKeyX(key), y = BlockUtil.getBlockKeyY(key), z = BlockUtil.getBlockKeyZ(key);
+            addChecksum(snapshots, checksums, x, y, z);
+
+            for (BlockFace face : Routes.RELATIVES) {
+                addChecksum(snapshots, checksums, x + face.getModX(), y + face.getModY(), z + face.getModZ());
+            }
+        }
+
+        return checksums;
+    }
+
+    // what a signal does at an output depends on the type of the mechanic there, so it is part of the checksum of that chunk
+    private static void addMechanicChecksums(World world, byte type, long[][] outputs, LongMap<long[]> checksums) {
+        if (type != SIGNAL) {
+            return;
+        }
+
+        MechanicManager manager = Factorio.get().getMechanicManager(world);
+        for (long[] contextOutputs : outputs) {
+            if (contextOutputs == null) {
+                continue;
+            }
+
+            for (int i = 0; i < contextOutputs.length; i += 2) {
+                long key = contextOutputs[i];
+                int x = BlockUtil.getBlockKeyX(key), y = BlockUtil.getBlockKeyY(key), z = BlockUtil.getBlockKeyZ(key);
+                Mechanic<?> mechanic = manager.getMechanicAt(x, y, z);
+                long hash = key * 31 + (mechanic != null ? mechanic.getProfile().getName().hashCode() : 0);
+                checksums.computeIfAbsent(BlockUtil.getChunkKeyAt(x, z), __ -> new long[1])[0] += mix(hash);
+            }
+        }
+    }
+
+    // the chunks with blocks in or next to the route
+    private static LongMap<Boolean> getChunks(long[] locations) {
+        LongMap<Boolean> chunks = new LongMap<>();
+        for (long key : locations) {
+            int x = BlockUtil.getBlockKeyX(key), z = BlockUtil.getBlockKeyZ(key);
+            chunks.put(BlockUtil.getChunkKeyAt(x, z), true);
+            for (BlockFace face : Routes.RELATIVES) {
+                chunks.put(BlockUtil.getChunkKeyAt(x + face.getModX(), z + face.getModZ()), true);
+            }
+        }
+
+        return chunks;
+    }
+
+    private static boolean capture(World world, ChunkSnapshots snapshots, long chunk) {
+        int chunkX = BlockUtil.getChunkKeyX(chunk), chunkZ = BlockUtil.getChunkKeyZ(chunk);
+        // don't load chunks to compute the checksums
+        if (!world.isChunkLoaded(chunkX, chunkZ)) {
+            return false;
+        }
+
+        if (!snapshots.has(chunkX, chunkZ)) {
+            snapshots.capture(world.getChunkAt(chunkX, chunkZ), RouteDiscovery.getChanges());
+        }
+        return true;
+    }
+
+    private static <O> SavedRoute save(AbstractRoute<?, O> route, ChunkSnapshots snapshots) {
+        byte type = route instanceof Pipe ? PIPE : route instanceof Signal ? SIGNAL : -1;
+        // routes which are not fully searched are searched again
+        if (type == -1 || route.isWaiting()) {
+            return null;
+        }
+
+        long[] locations = new long[route.getLocations().size()];
+        int i = 0;
+        for (BlockVector loc : route.getLocations()) {
+            locations[i++] = BlockUtil.getBlockKey(loc);
+        }
+
+        long[][] outputs = new long[route.getOutputContexts()][];
+        for (int context = 0; context < outputs.length; context++) {
+            if (!route.hasOutputs(context)) {
+                continue;
+            }
+
+            Queue<O> queue = route.getOutputs(context);
+            outputs[context] = new long[queue.size() * 2];
+            int j = 0;
+            for (O output : queue) {
+                BlockVector[] vectors = route.getOutputVectors(output);
+                if (vectors == null) {
+                    return null;
+                }
+
+                outputs[context][j++] = BlockUtil.getBlockKey(vectors[0]);
+                outputs[context][j++] = BlockUtil.getBlockKey(vectors[1]);
+            }
+        }
+
+        boolean[] loaded = {true};
+        getChunks(locations).forEach((chunk, __) -> loaded[0] &= capture(route.getWorld(), snapshots, chunk));
+        if (!loaded[0]) {
+            return null;
+        }
+
+        LongMap<long[]> checksums = new LongMap<>();
+        addMechanicChecksums(route.getWorld(), type, outputs, checksums);
+        return new SavedRoute(type, BlockUtil.getBlockKey(route.getStart()), locations, outputs, checksums);
+    }
+
+    private static StoredRoute store(SavedRoute route, ChunkSnapshots snapshots) {
+        LongMap<long[]> checksums = addChecksums(snapshots, route.locations(), route.checksums());
+
+        long[] chunks = new long[checksums.size()];
+        long[] sums = new long[checksums.size()];
+        int[] j = {0};
+        checksums.forEach((chunk, sum) -> {
+            chunks[j[0]] = chunk;
+            sums[j[0]++] = sum[0];
+        });
+
+        return new StoredRoute(route.type(), route.start(), route.locations(), route.outputs(), chunks, sums);
+    }
+
+    public static <R extends AbstractRoute<R, ?>> R restore(World world, int x, int y, int z, RouteFactory<R> factory) {
+        LongMap<StoredRoute> routes = storedRoutes.get(world);
+        if (routes == null) {
+            return null;
+        }
+
+        StoredRoute stored = routes.get(BlockUtil.getBlockKey(x, y, z));
+        if (stored == null) {
+            return null;
+        }
+
+        // a stored route is only tried once, after that it is searched like any other route
+        LongMap<long[]> checksums = validated.get(stored);
+        drop(world, stored);
+        if (checksums == null || stored.type() != getType(factory)) {
+            // not validated against the blocks in the world yet
+            return null;
+        }
+
+        addMechanicChecksums(world, stored.type(), stored.outputs(), checksums);
+        if (checksums.size() != stored.chunks().length) {
+            return null;
+        }
+        for (int i = 0; i < stored.chunks().length; i++) {
+            long[] sum = checksums.get(stored.chunks()[i]);
+            if (sum == null || sum[0] != stored.checksums()[i]) {
+                // blocks or mechanics in this chunk were changed since the route was stored
+                return null;
+            }
+        }
+
+        R route = factory.create(new BlockVector(x, y, z), world);
+        for (long loc : stored.locations()) {
+            route.add(toVec(loc));
+        }
+        for (int context = 0; context < stored.outputs().length; context++) {
+            long[] outputs = stored.outputs()[context];
+            if (outputs == null) {
+                continue;
+            }
+
+            for (int i = 0; i < outputs.length; i += 2) {
+                route.addOutput(world, toVec(outputs[i]), toVec(outputs[i + 1]), context);
+            }
+        }
+        route.finishSearch();
+
+        AbstractRoute.addRouteToCache(route);
+        return route;
+    }
+
+    private static BlockVector toVec(long key) {
+        return new BlockVector(BlockUtil.getBlockKeyX(key), BlockUtil.getBlockKeyY(key), BlockUtil.getBlockKeyZ(key));
+    }
+
+    private static void drop(World world, StoredRoute route) {
+        LongMap<StoredRoute> routes = storedRoutes.get(world);
+        if (routes != null && routes.get(route.start()) == route) {
+            routes.remove(route.start());
+        }
+        validating.remove(route);
+        validated.remove(route);
+
+        LongMap<List<StoredRoute>> worldChunkRoutes = chunkRoutes.get(world);
+        if (worldChunkRoutes != null) {
+            for (long chunk : route.chunks()) {
+                List<StoredRoute> inChunk = worldChunkRoutes.get(chunk);
+                if (inChunk != null && inChunk.remove(route) && inChunk.isEmpty()) {
+                    worldChunkRoutes.remove(chunk);
+                }
+            }
+        }
+    }
+
+    private static List<StoredRoute> getRoutesIn(World world, long chunk) {
+        LongMap<List<StoredRoute>> worldChunkRoutes = chunkRoutes.get(world);
+        if (worldChunkRoutes == null) {
+            return Collections.emptyList();
+        }
+
+        List<StoredRoute> routes = worldChunkRoutes.get(chunk);
+        return routes != null ? new ArrayList<>(routes) : Collections.emptyList();
+    }
+
+    // compare the stored routes to snapshots of their chunks on the search thread, so restoring them doesn't read any blocks
+    private static void validate(World world, Collection<StoredRoute> routes) {
+        ChunkSnapshots snapshots = new ChunkSnapshots(world);
+        List<StoredRoute> captured = new ArrayList<>();
+        for (StoredRoute route : routes) {
+            if (validating.contains(route) || validated.containsKey(route)) {
+                continue;
+            }
+
+            boolean loaded = true;
+            for (long chunk : route.chunks()) {
+                if (!world.isChunkLoaded(BlockUtil.getChunkKeyX(chunk), BlockUtil.getChunkKeyZ(chunk))) {
+                    // validated when the rest of its chunks are loaded
+                    loaded = false;
+                    break;
+                }
+            }
+
+            if (loaded) {
+                for (long chunk : route.chunks()) {
+                    capture(world, snapshots, chunk);
+                }
+                validating.add(route);
+                captured.add(route);
+            }
+        }
+        if (captured.isEmpty()) {
+            return;
+        }
+
+        RouteDiscovery.submitTask(() -> {
+            Map<StoredRoute, LongMap<long[]>> checksums = new HashMap<>();
+            for (StoredRoute route : captured) {
+                checksums.put(route, addChecksums(snapshots, route.locations(), new LongMap<>()));
+            }
+
+            Bukkit.getScheduler().runTask(Factorio.get(), () -> checksums.forEach((route, sums) -> {
+                // only if it was not changed, unloaded or used while validating
+                if (validating.remove(route)) {
+                    validated.put(route, sums);
+                }
+            }));
+        });
+    }
+
+    public static void onChunkLoad(Chunk chunk) {
+        validate(chunk.getWorld(), getRoutesIn(chunk.getWorld(), BlockUtil.getChunkKey(chunk)));
+    }
+
+    public static void onChunkUnload(Chunk chunk) {
+        // the blocks are validated again when the chunk is loaded
+        for (StoredRoute route : getRoutesIn(chunk.getWorld(), BlockUtil.getChunkKey(chunk))) {
+            validating.remove(route);
+            validated.remove(route);
+        }
+    }
+
+    public static void onBlockChange(Block block) {
+        long key = BlockUtil.getBlockKey(block.getX(), block.getY(), block.getZ());
+        for (StoredRoute route : getRoutesIn(block.getWorld(), BlockUtil.getChunkKeyAt(block.getX(), block.getZ()))) {
+            for (long loc : route.locations()) {
+                if (Math.abs(BlockUtil.getBlockKeyX(loc) - block.getX())
+                        + Math.abs(BlockUtil.getBlockKeyY(loc) - block.getY())
+                        + Math.abs(BlockUtil.getBlockKeyZ(loc) - block.getZ()) <= 1) {
+                    // a block in or next to the route was changed, search it again instead
+                    drop(block.getWorld(), route);
+                    break;
+                }
+            }
+        }
+    }
+
+    public static void load(World world) {
+        File file = getFile(world);
+        if (!file.exists()) {
+            return;
+        }
+
+        LongMap<StoredRoute> routes = new LongMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                // stored by another version, the routes will just be searched again
+                return;
+            }
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                StoredRoute route = read(in);
+                routes.put(route.start(), route);
+            }
+        } catch (IOException ex) {
+            Bukkit.getLogger().log(Level.SEVERE, "Failed to load routes for world " + world.getName(), ex);
+            return;
+        }
+
+        storedRoutes.put(world, routes);
+
+        LongMap<List<StoredRoute>> worldChunkRoutes = new LongMap<>();
+        List<StoredRoute> all = new ArrayList<>(routes.size());
+        routes.forEachValue(route -> {
+            for (long chunk : route.chunks()) {
+                worldChunkRoutes.computeIfAbsent(chunk, __ -> new ArrayList<>()).add(route);
+            }
+            all.add(route);
+        });
+        chunkRoutes.put(world, worldChunkRoutes);
+
+        // the routes in the chunks which are already loaded
+        validate(world, all);
+    }
+
+    // save the routes of this world, the file is written on the search thread unless async is false
+    public static void save(World world, boolean async) {
+        // the routes from the last save which were not used since are saved again
+        LongMap<StoredRoute> routes = new LongMap<>();
+        LongMap<StoredRoute> unused = storedRoutes.get(world);
+        if (unused != null) {
+            unused.forEach(routes::put);
+        }
+
+        ChunkSnapshots snapshots = new ChunkSnapshots(world);
+        List<SavedRoute> saved = new ArrayList<>();
+        AbstractRoute.forEachCachedRoute(world, route -> {
+            SavedRoute save = save(route, snapshots);
+            if (save != null) {
+                saved.add(save);
+            } else {
+                routes.remove(BlockUtil.getBlockKey(route.getStart()));
+            }
+        });
+
+        Runnable write = () -> {
+            for (SavedRoute route : saved) {
+                routes.put(route.start(), store(route, snapshots));
+            }
+            write(world, routes);
+        };
+        if (async) {
+            RouteDiscovery.submitTask(write);
+        } else {
+            write.run();
+        }
+    }
+
+    private static void write(World world, LongMap<StoredRoute> routes) {
+        File file = getFile(world);
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        file.getParentFile().mkdirs();
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(routes.size());
+
+                IOException[] error = new IOException[1];
+                routes.forEachValue(route -> {
+                    if (error[0] == null) {
+                        try {
+                            write(out, route);
+                        } catch (IOException ex) {
+                            error[0] = ex;
+                        }
+                    }
+                });
+                if (error[0] != null) {
+                    throw error[0];
+                }
+            }
+
+            // replace the previous file at once, so it is never left half written
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            Bukkit.getLogger().log(Level.SEVERE, "Failed to save routes for world " + world.getName(), ex);
+        }
+    }
+
+    private static void write(DataOutputStream out, StoredRoute route) throws IOException {
+        out.writeByte(route.type());
+        out.writeLong(route.start());
+        writeLongs(out, route.locations());
+
+        out.writeInt(route.outputs().length);
+        for (long[] outputs : route.outputs()) {
+            out.writeBoolean(outputs != null);
+            if (outputs != null) {
+                writeLongs(out, outputs);
+            }
+        }
+
+        writeLongs(out, route.chunks());
+        writeLongs(out, route.checksums());
+    }
+
+    private static StoredRoute read(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        long start = in.readLong();
+        long[] locations = readLongs(in);
+
+        long[][] outputs = new long[in.readInt()][];
+        for (int i = 0; i < outputs.length; i++) {
+            if (in.readBoolean()) {
+                outputs[i] = readLongs(in);
+            }
+        }
+
+        return new StoredRoute(type, start, locations, outputs, readLongs(in), readLongs(in));
+    }
+
+    private static void writeLongs(DataOutputStream out, long[] values) throws IOException {
+        out.writeInt(values.length);
+        for (long val : values) {
+            out.writeLong(val);
+        }
+    }
+
+    private static long[] readLongs(DataInputStream in) throws IOException {
+        long[] values = new long[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readLong();
+        }
+
+        return values;
+    }
+}
@@ -10,10 +10,12 @@ import dk.superawesome.factorio.mechanics.routes.events.pipe.PipeSuckEvent;
 import dk.superawesome.factorio.mechanics.routes.impl.Pipe;
 import dk.superawesome.factorio.mechanics.routes.impl.Signal;
 import dk.superawesome.factorio.mechanics.transfer.EnergyCollection;
+import dk.superawesome.factorio.mechanics.transfer.ItemCollection;
 import dk.superawesome.factorio.mechanics.transfer.TransferCollection;
 import dk.superawesome.factorio.util.statics.BlockUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.util.BlockVector;
@@ -22,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class Routes {
 
@@ -39,24 +42,31 @@ public class Routes {
             return invoker.invoke(source);
         }
 
-        PipeSuckEvent event = new PipeSuckEvent(block, loc);
-        Bukkit.getPluginManager().callEvent(event);
-        if (event.getTransfer() == null) {
+        TransferCollection transfer = at instanceof TransferCollection tc ? tc : null;
+        // only call the event if any other plugin is listening for it
+        if (PipeSuckEvent.getHandlerList().getRegisteredListeners().length > 0) {
+            PipeSuckEvent event = new PipeSuckEvent(block, loc);
+            event.setTransfer(transfer);
+            Bukkit.getPluginManager().callEvent(event);
+            transfer = event.getTransfer();
+        }
+        if (transfer == null) {
             return false;
         }
 
-        source.setRecentMax(source.getRecentMax() + event.getTransfer().getTransferEnergyCost());
+        double cost = getTransferEnergyCost(transfer);
+        source.setRecentMax(source.getRecentMax() + cost);
 
-        if (!event.getTransfer().getTransferDelayHandler().ready()
-                || event.getTransfer().isTransferEmpty()
-                || source.getEnergy() < event.getTransfer().getTransferEnergyCost()) {
+        if (!transfer.getTransferDelayHandler().ready()
+                || transfer.isTransferEmpty()
+                || source.getEnergy() < cost) {
             return false;
         }
 
         // start the pipe route
         for (Block start : starts) {
-            if (startTransferRoute(start, event.getTransfer(), source, false)) {
-                source.setEnergy(source.getEnergy() - event.getTransfer().getTransferEnergyCost());
+            if (startTransferRoute(start, transfer, source, false)) {
+                source.setEnergy(source.getEnergy() - cost);
                 return true;
             }
         }
@@ -64,6 +74,19 @@ public class Routes {
         return false;
     }
 
+    private static double getTransferEnergyCost(TransferCollection transfer) {
+        // only pay for the stacks which are actually moved, and moving more stacks at once is cheaper for each stack
+        if (transfer instanceof ItemCollection items && items.getTransferStacks() > 1 && !transfer.isTransferEmpty()) {
+            double stackSize = transfer.getMaxTransfer() / items.getTransferStacks();
+            int stacks = (int) Math.ceil(Math.min(transfer.getTransferAmount(), transfer.getMaxTransfer()) / stackSize);
+            if (stacks > 1) {
+                return transfer.getTransferEnergyCost() * Math.sqrt(stacks);
+            }
+        }
+
+        return transfer.getTransferEnergyCost();
+    }
+
     public static boolean invokeEnergySourceOutput(Block start, Location loc, EnergyCollection energySource, SignalSource signal) {
         Mechanic<?> mechanic = Factorio.get().getMechanicManager(start.getWorld()).getMechanicAt(loc);
         if (mechanic instanceof SignalInvoker signalInvoker) {
@@ -90,7 +113,10 @@ public class Routes {
     }
 
     public static <R extends AbstractRoute<R, ?>> R setupRoute(Block start, RouteFactory<R> factory, boolean onlyExpandIfOriginValid) {
-        R route = AbstractRoute.getCachedOriginRoute(start.getWorld(), BlockUtil.getVec(start));
+        R route = AbstractRoute.getCachedOriginRoute(start.getWorld(), start.getX(), start.getY(), start.getZ());
+        if (route == null) {
+            route = RouteStore.restore(start.getWorld(), start.getX(), start.getY(), start.getZ(), factory);
+        }
         if (route == null) {
             route = createNewRoute(start, factory, onlyExpandIfOriginValid);
             AbstractRoute.addRouteToCache(route);
@@ -100,8 +126,19 @@ public class Routes {
     }
 
     public static boolean startTransferRoute(Block start, TransferCollection collection, Source from, boolean onlyExpandIfOriginValid) {
-        return setupRoute(start, RouteFactory.PipeRouteFactory.FACTORY, onlyExpandIfOriginValid)
-                .start(collection, from);
+        Pipe route = AbstractRoute.getCachedOriginRoute(start.getWorld(), start.getX(), start.getY(), start.getZ());
+        if (route == null) {
+            route = RouteStore.restore(start.getWorld(), start.getX(), start.getY(), start.getZ(), RouteFactory.PipeRouteFactory.FACTORY);
+        }
+        if (route == null) {
+            // search the route in the background, nothing can be transferred until it has been found
+            if (Pipe.canStartAt(start, onlyExpandIfOriginValid)) {
+                RouteDiscovery.discoverPipe(start, onlyExpandIfOriginValid);
+            }
+            return false;
+        }
+
+        return route.start(collection, from);
     }
 
     public static boolean startSignalRoute(Block start, SignalSource source, boolean firstCall, boolean onlyExpandIfOriginValid) {
@@ -112,6 +149,7 @@ public class Routes {
     public static <R extends AbstractRoute<R, ?>> R createNewRoute(Block start, RouteFactory<R> factory, boolean onlyExpandIfOriginValid) {
         R route = factory.create(BlockUtil.getVec(start), start.getWorld());
         startRoute(route, start, onlyExpandIfOriginValid);
+        route.finishSearch();
 
         return route;
     }
@@ -145,6 +183,10 @@ public class Routes {
         // iterate over all blocks around this block
         for (BlockFace face : route.getFactory().getRelatives()) {
             BlockVector relVec = BlockUtil.getVec(BlockUtil.getRel(from.getLocation(), face.getDirection()));
+            if (!isLoaded(route, relVec)) {
+                continue;
+            }
+
             // search relative vector
             if (!route.hasVisited(fromVec, relVec)) {
                 Block rel = BlockUtil.getBlock(from.getWorld(), relVec);
@@ -160,6 +202,9 @@ public class Routes {
 
     public static void expandRoute(AbstractRoute<?, ?> route, Block from, BlockVector fromVec, BlockFace face) {
         BlockVector relVec = BlockUtil.getVec(BlockUtil.getRel(from.getLocation(), face.getDirection()));
+        if (!isLoaded(route, relVec)) {
+            return;
+        }
 
         if (!route.hasVisited(fromVec, relVec)) {
             Block rel = BlockUtil.getBlock(from.getWorld(), relVec);
@@ -169,6 +214,16 @@ public class Routes {
         }
     }
 
+    private static boolean isLoaded(AbstractRoute<?, ?> route, BlockVector vec) {
+        // don't load chunks while searching, the route is searched again when the chunk is loaded
+        if (!route.getWorld().isChunkLoaded(vec.getBlockX() >> 4, vec.getBlockZ() >> 4)) {
+            route.waitFor(BlockUtil.getChunkKeyAt(vec.getBlockX(), vec.getBlockZ()));
+            return false;
+        }
+
+        return true;
+    }
+
     public static <R extends AbstractRoute<R, ?>> void setupForcibly(Block block, RouteFactory<R> factory, boolean onlyExpandIfOriginValid) {
         updateNearbyRoutes(block, true, modified -> {
             if (modified.isEmpty()) {
@@ -192,14 +247,74 @@ public class Routes {
         });
     }
 
-    public static void updateNearbyRoutes(Block block, boolean addAgain, Consumer<List<AbstractRoute<?, ?>>> modifiedRoutesFunction) {
-        List<AbstractRoute<?, ?>> routes = new ArrayList<>(AbstractRoute.getCachedRoutes(block.getWorld(), BlockUtil.getVec(block)));
-        for (AbstractRoute<?, ?> route : routes) {
-            AbstractRoute.removeRouteFromCache(route);
+    public static boolean hasNearbyRoutes(Block block) {
+        for (int x = -1; x <= 1; x++) {
+            for (int y = -1; y <= 1; y++) {
+                for (int z = -1; z <= 1; z++) {
+                    if (Math.abs(x) == 1 && Math.abs(z) == 1) {
+                        continue;
+                    }
+
+                    if (AbstractRoute.hasCachedRoutes(block.getWorld(), block.getX() + x, block.getY() + y, block.getZ() + z)) {
+                        return true;
+                    }
+                }
+            }
         }
 
+        return false;
+    }
+
+    public static void expandNearbyRoutesSync(Block block) {
+        Bukkit.getScheduler().runTask(Factorio.get(), () -> {
+            updateNearbyPipes(block, pipe -> {
+                pipe.expand(block);
+                return true;
+            });
+        });
+    }
+
+    public static void cutNearbyRoutesSync(Block block, Material type) {
+        Bukkit.getScheduler().runTask(Factorio.get(), () -> {
+            updateNearbyPipes(block, pipe -> pipe.cut(block, type));
+        });
+    }
+
+    private static void updateNearbyPipes(Block block, Predicate<Pipe> update) {
+        // pipes are updated in place, all other routes are removed and searched again the next time they are used
+        List<Pipe> pipes = new ArrayList<>();
+        updateNearbyRoutes(block, false, null, route -> {
+            if (route instanceof Pipe pipe) {
+                if (!pipes.contains(pipe)) {
+                    pipes.add(pipe);
+                }
+                return false;
+            }
+
+            return true;
+        });
+
+        for (Pipe pipe : pipes) {
+            // the pipe has to be searched again if it could not be updated in place
+            if (!update.test(pipe)) {
+                AbstractRoute.removeRouteFromCache(pipe);
+            }
+        }
+    }
+
+    public static void updateNearbyRoutes(Block block, boolean addAgain, Consumer<List<AbstractRoute<?, ?>>> modifiedRoutesFunction) {
+        updateNearbyRoutes(block, addAgain, modifiedRoutesFunction, __ -> true);
+    }
+
+    private static void updateNearbyRoutes(Block block, boolean addAgain, Consumer<List<AbstractRoute<?, ?>>> modifiedRoutesFunction, Predicate<AbstractRoute<?, ?>> remove) {
         List<AbstractRoute<?, ?>> modifiedRoutes = new ArrayList<>();
-        modifiedRoutes.addAll(routes);
+        for (AbstractRoute<?, ?> route : AbstractRoute.getCachedRoutes(block.getWorld(), block.getX(), block.getY(), block.getZ())) {
+            if (remove.test(route)) {
+                AbstractRoute.removeRouteFromCache(route);
+                modifiedRoutes.add(route);
+            }
+        }
+
         // iterate over all blocks around this block
         for (int x = -1; x <= 1; x++) {
             for (int y = -1; y <= 1; y++) {
@@ -209,10 +324,8 @@ public class Routes {
                         continue;
                     }
 
-                    BlockVector rel = BlockUtil.getVec(BlockUtil.getRel(block.getLocation(), new BlockVector(x, y, z)));
-                    List<AbstractRoute<?, ?>> relRoutes = new ArrayList<>(AbstractRoute.getCachedRoutes(block.getWorld(), rel));
-
-                    for (AbstractRoute<?, ?> relRoute : relRoutes) {
+                    // the cached routes are a snapshot, so they can be removed from the cache while iterating
+                    for (AbstractRoute<?, ?> relRoute : AbstractRoute.getCachedRoutes(block.getWorld(), block.getX() + x, block.getY() + y, block.getZ() + z)) {
                         if (relRoute instanceof Pipe) {
                             // ignore edge blocks for pipes
                             if ((Math.abs(x) == 1 || Math.abs(z) == 1) && Math.abs(y) == 1) {
@@ -225,6 +338,10 @@ public class Routes {
                             }
                         }
 
+                        if (!remove.test(relRoute)) {
+                            continue;
+                        }
+
                         AbstractRoute.removeRouteFromCache(relRoute);
                         modifiedRoutes.add(relRoute);
                     }
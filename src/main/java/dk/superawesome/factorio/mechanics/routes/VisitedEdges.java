@@ -0,0 +1,80 @@
+package dk.superawesome.factorio.mechanics.routes;
+
+import dk.superawesome.factorio.util.statics.BlockUtil;
+import org.bukkit.util.BlockVector;
+
+public class VisitedEdges {
+
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    // the visited edges from each block, as a bit for each of the 27 blocks around it (including itself)
+    private long[] keys = new long[DEFAULT_CAPACITY];
+    private int[] masks = new int[DEFAULT_CAPACITY];
+    private int size;
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int getBit(BlockVector from, BlockVector to) {
+        int dx = to.getBlockX() - from.getBlockX();
+        int dy = to.getBlockY() - from.getBlockY();
+        int dz = to.getBlockZ() - from.getBlockZ();
+        if (Math.abs(dx) > 1 || Math.abs(dy) > 1 || Math.abs(dz) > 1) {
+            throw new IllegalArgumentException("Edge between " + from + " and " + to + " is not between neighbouring blocks");
+        }
+
+        return 1 << ((dx + 1) * 9 + (dy + 1) * 3 + dz + 1);
+    }
+
+    private int indexOf(long key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (masks[i] != 0 && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+
+        return i;
+    }
+
+    public boolean contains(BlockVector from, BlockVector to) {
+        int i = indexOf(BlockUtil.getBlockKey(from));
+        return (masks[i] & getBit(from, to)) != 0;
+    }
+
+    public void add(BlockVector from, BlockVector to) {
+        long key = BlockUtil.getBlockKey(from);
+        int i = indexOf(key);
+        if (masks[i] == 0) {
+            keys[i] = key;
+            if (++size > keys.length * LOAD_FACTOR) {
+                masks[i] = getBit(from, to);
+                rehash();
+                return;
+            }
+        }
+
+        masks[i] |= getBit(from, to);
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldMasks = masks;
+        keys = new long[oldKeys.length << 1];
+        masks = new int[oldMasks.length << 1];
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldMasks[i] != 0) {
+                int j = indexOf(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                masks[j] = oldMasks[i];
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -1,5 +1,8 @@
 package dk.superawesome.factorio.mechanics.routes.impl;
 
+import dk.superawesome.factorio.Factorio;
+import dk.superawesome.factorio.mechanics.Mechanic;
+import dk.superawesome.factorio.mechanics.MechanicManager;
 import dk.superawesome.factorio.mechanics.Source;
 import dk.superawesome.factorio.mechanics.routes.AbstractRoute;
 import dk.superawesome.factorio.mechanics.routes.RouteFactory;
@@ -11,23 +14,53 @@ import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
 import org.bukkit.util.BlockVector;
 
-import java.util.LinkedList;
+import java.util.*;
 
 public class Pipe extends AbstractRoute<Pipe, Pipe.TransferOutputEntry> {
 
     public static class TransferOutputEntry {
 
         protected final Block block;
+        protected final BlockVector from;
 
-        private TransferOutputEntry(World world, BlockVector vec) {
+        // the mechanic at this output, looked up again when any mechanic in the world is loaded, unloaded or moved
+        private MechanicManager manager;
+        private Mechanic<?> mechanic;
+        private int version;
+
+        private TransferOutputEntry(World world, BlockVector vec, BlockVector from) {
             this.block = BlockUtil.getBlock(world, vec);
+            this.from = from;
+        }
+
+        private Mechanic<?> getMechanic() {
+            if (manager == null) {
+                manager = Factorio.get().getMechanicManager(block.getWorld());
+                version = manager.getMechanicsVersion() - 1;
+            }
+
+            if (version != manager.getMechanicsVersion()) {
+                version = manager.getMechanicsVersion();
+                mechanic = manager.getMechanicAt(block.getX(), block.getY(), block.getZ());
+            }
+
+            return mechanic;
         }
 
         public boolean handle(TransferCollection collection, Source from) {
             PipePutEvent event = new PipePutEvent(block, collection, from);
-            Bukkit.getPluginManager().callEvent(event);
+            Mechanic<?> mechanic = getMechanic();
+            if (mechanic != null) {
+                manager.pipePut(mechanic, event);
+            }
+
+            // only call the event if any other plugin is listening for it
+            if (PipePutEvent.getHandlerList().getRegisteredListeners().length > 0) {
+                Bukkit.getPluginManager().callEvent(event);
+            }
 
             return event.transferred();
         }
@@ -37,6 +70,36 @@ public class Pipe extends AbstractRoute<Pipe, Pipe.TransferOutputEntry> {
         super(world, start);
     }
 
+    private static boolean isGlass(Material mat) {
+        return mat == Material.GLASS || BlockUtil.anyStainedGlass.test(mat);
+    }
+
+    public static boolean canStartAt(Block start, boolean onlyExpandIfOriginValid) {
+        if (isGlass(start.getType()) || start.getType() == Material.PISTON) {
+            return true;
+        }
+        if (onlyExpandIfOriginValid) {
+            return false;
+        }
+
+        for (BlockFace face : Routes.RELATIVES) {
+            int x = start.getX() + face.getModX(), z = start.getZ() + face.getModZ();
+            if (start.getWorld().isChunkLoaded(x >> 4, z >> 4)) {
+                Material mat = start.getRelative(face).getType();
+                if (isGlass(mat) || mat == Material.PISTON) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean canConnect(Material from, Material to) {
+        // the same rule as when searching, stained glass only connects to glass or the same stained glass
+        return from == Material.GLASS || to == Material.GLASS || from == to;
+    }
+
     @Override
     public RouteFactory<Pipe> getFactory() {
         return RouteFactory.PipeRouteFactory.FACTORY;
@@ -68,9 +131,249 @@ public class Pipe extends AbstractRoute<Pipe, Pipe.TransferOutputEntry> {
         }
     }
 
+    public void expand(Block block) {
+        if (!isGlass(block.getType()) && block.getType() != Material.PISTON) {
+            return;
+        }
+
+        // search from all blocks of this route next to the placed block, but not through the rest of the route again
+        BlockVector vec = BlockUtil.getVec(block);
+        extending = true;
+        try {
+            for (BlockFace face : Routes.RELATIVES) {
+                BlockVector fromVec = getRelative(vec, face);
+                if (isPipeAt(fromVec)) {
+                    visit(fromVec, vec);
+                    search(BlockUtil.getBlock(getWorld(), fromVec), vec, block, fromVec.equals(getStart()));
+                }
+            }
+        } finally {
+            extending = false;
+            finishSearch();
+        }
+    }
+
+    public boolean cut(Block block, Material type) {
+        BlockVector vec = BlockUtil.getVec(block);
+        if (!getLocations().contains(vec)) {
+            return true;
+        }
+
+        if (vec.equals(getStart())) {
+            // the origin of this route was removed
+            return false;
+        }
+
+        if (type == Material.PISTON) {
+            removeOutputsFrom(vec);
+            removeStructure(vec);
+        } else if (isGlass(type)) {
+            removeStructure(vec);
+            return split(vec);
+        }
+
+        // other blocks are not a part of the pipe itself
+        return true;
+    }
+
+    private Material getTypeAt(BlockVector vec) {
+        // don't load chunks when updating the route, the blocks in unloaded chunks are kept as they are
+        if (!getWorld().isChunkLoaded(vec.getBlockX() >> 4, vec.getBlockZ() >> 4)) {
+            return null;
+        }
+
+        return BlockUtil.getBlock(getWorld(), vec).getType();
+    }
+
+    private boolean isPipeAt(BlockVector vec) {
+        if (vec.equals(getStart())) {
+            return true;
+        }
+        if (!getLocations().contains(vec)) {
+            return false;
+        }
+
+        Material mat = getTypeAt(vec);
+        return mat == null || isGlass(mat);
+    }
+
+    private boolean isOutputAt(BlockVector vec) {
+        for (TransferOutputEntry entry : getOutputs(Routes.DEFAULT_CONTEXT)) {
+            if (entry.block.getX() == vec.getBlockX() && entry.block.getY() == vec.getBlockY() && entry.block.getZ() == vec.getBlockZ()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void removeStructure(BlockVector vec) {
+        // keep the block if a piston is still pointing at it
+        if (!isOutputAt(vec)) {
+            remove(vec);
+        }
+    }
+
+    private void removeOutputsFrom(BlockVector piston) {
+        List<BlockVector> targets = new ArrayList<>();
+        getOutputs(Routes.DEFAULT_CONTEXT).removeIf(entry -> {
+            if (entry.from.equals(piston)) {
+                targets.add(BlockUtil.getVec(entry.block));
+                return true;
+            }
+
+            return false;
+        });
+
+        for (BlockVector target : targets) {
+            Material mat = getTypeAt(target);
+            if (mat != null && !isGlass(mat) && mat != Material.PISTON) {
+                removeStructure(target);
+            }
+        }
+    }
+
+    private void removeIfDetached(BlockVector vec) {
+        // remove pistons which are not connected to this route anymore
+        if (!getLocations().contains(vec) || getTypeAt(vec) != Material.PISTON) {
+            return;
+        }
+
+        for (BlockFace face : Routes.RELATIVES) {
+            if (isPipeAt(getRelative(vec, face))) {
+                return;
+            }
+        }
+
+        removeOutputsFrom(vec);
+        removeStructure(vec);
+    }
+
+    private boolean split(BlockVector removed) {
+        List<BlockVector> parts = new ArrayList<>();
+        for (BlockFace face : Routes.RELATIVES) {
+            BlockVector rel = getRelative(removed, face);
+            if (isPipeAt(rel)) {
+                parts.add(rel);
+            } else {
+                removeIfDetached(rel);
+            }
+        }
+
+        if (parts.size() <= 1) {
+            // nothing can have been disconnected
+            return true;
+        }
+
+        // search from all the blocks next to the removed block one step at a time, and merge the searches when they meet.
+        // if a search runs out of blocks, that part is not connected to the rest of the route anymore.
+        int size = parts.size();
+        int[] parent = new int[size];
+        boolean[] origin = new boolean[size];
+        boolean[] done = new boolean[size];
+        List<Queue<BlockVector>> queues = new ArrayList<>();
+        Map<BlockVector, Integer> owners = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            BlockVector part = parts.get(i);
+            parent[i] = i;
+            origin[i] = part.equals(getStart());
+            queues.add(new ArrayDeque<>(Collections.singletonList(part)));
+            owners.put(part, i);
+        }
+
+        int left = size;
+        while (left > 1) {
+            for (int i = 0; i < size && left > 1; i++) {
+                if (parent[i] != i || done[i]) {
+                    continue;
+                }
+
+                Queue<BlockVector> queue = queues.get(i);
+                if (queue.isEmpty()) {
+                    if (origin[i]) {
+                        // the origin was cut off from the rest, just search the route again from the origin
+                        return false;
+                    }
+
+                    done[i] = true;
+                    left--;
+                    removePart(i, parent, owners);
+                    continue;
+                }
+
+                BlockVector vec = queue.poll();
+                boolean isOrigin = vec.equals(getStart());
+                Material mat = getTypeAt(vec);
+                for (BlockFace face : Routes.RELATIVES) {
+                    BlockVector rel = getRelative(vec, face);
+                    if (!isPipeAt(rel)) {
+                        continue;
+                    }
+
+                    boolean relIsOrigin = rel.equals(getStart());
+                    Material relMat = getTypeAt(rel);
+                    if (!isOrigin && !relIsOrigin && mat != null && relMat != null && !canConnect(mat, relMat)) {
+                        continue;
+                    }
+
+                    Integer owner = owners.get(rel);
+                    if (owner == null) {
+                        owners.put(rel, i);
+                        queue.add(rel);
+                        origin[i] |= relIsOrigin;
+                    } else {
+                        int root = find(parent, owner);
+                        if (root != i && !done[root]) {
+                            // the searches met, so these parts are still connected
+                            parent[root] = i;
+                            origin[i] |= origin[root];
+                            queue.addAll(queues.get(root));
+                            queues.get(root).clear();
+                            left--;
+                        }
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+
+        return i;
+    }
+
+    private void removePart(int part, int[] parent, Map<BlockVector, Integer> owners) {
+        List<BlockVector> removed = new ArrayList<>();
+        for (Map.Entry<BlockVector, Integer> entry : owners.entrySet()) {
+            if (find(parent, entry.getValue()) == part) {
+                removed.add(entry.getKey());
+            }
+        }
+
+        for (BlockVector vec : removed) {
+            removeStructure(vec);
+        }
+        for (BlockVector vec : removed) {
+            for (BlockFace face : Routes.RELATIVES) {
+                removeIfDetached(getRelative(vec, face));
+            }
+        }
+    }
+
+    @Override
+    public BlockVector[] getOutputVectors(TransferOutputEntry output) {
+        return new BlockVector[]{BlockUtil.getVec(output.block), output.from};
+    }
+
     @Override
     protected TransferOutputEntry createOutputEntry(World world, BlockVector vec, BlockVector from) {
-        return new TransferOutputEntry(world, vec);
+        return new TransferOutputEntry(world, vec, from);
     }
 
     public boolean start(TransferCollection collection, Source from) {
@@ -0,0 +1,175 @@
+package dk.superawesome.factorio.mechanics.routes.impl;
+
+import dk.superawesome.factorio.mechanics.routes.AbstractRoute;
+import dk.superawesome.factorio.mechanics.routes.ChunkSnapshots;
+import dk.superawesome.factorio.mechanics.routes.Routes;
+import dk.superawesome.factorio.mechanics.routes.VisitedEdges;
+import dk.superawesome.factorio.util.LongMap;
+import dk.superawesome.factorio.util.statics.BlockUtil;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.Directional;
+import org.bukkit.util.BlockVector;
+
+import java.util.*;
+
+// searches a pipe route from chunk snapshots, so it can run off the main thread
+public class PipeSearch {
+
+    private record Edge(BlockVector from, BlockVector rel, boolean isFromOrigin) {
+    }
+
+    private static class Frame {
+
+        private final BlockVector vec;
+        private final BlockVector ignore;
+        private final boolean isFromOrigin;
+        private int face;
+
+        private Frame(BlockVector vec, BlockVector ignore, boolean isFromOrigin) {
+            this.vec = vec;
+            this.ignore = ignore;
+            this.isFromOrigin = isFromOrigin;
+        }
+    }
+
+    private final World world;
+    private final BlockVector start;
+    private final boolean onlyExpandIfOriginValid;
+    private final ChunkSnapshots snapshots;
+
+    private final VisitedEdges visited = new VisitedEdges();
+    private final Set<BlockVector> locations = new HashSet<>();
+    private final List<BlockVector[]> outputs = new ArrayList<>();
+    // the edges leading into chunks which were not captured, they are searched when the chunk has been captured
+    private final LongMap<List<Edge>> pending = new LongMap<>();
+    // the blocks being expanded, in the same order as the recursive search
+    private final Deque<Frame> frames = new ArrayDeque<>();
+    private boolean started;
+
+    public PipeSearch(World world, BlockVector start, boolean onlyExpandIfOriginValid) {
+        this.world = world;
+        this.start = start;
+        this.onlyExpandIfOriginValid = onlyExpandIfOriginValid;
+        this.snapshots = new ChunkSnapshots(world);
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public BlockVector getStart() {
+        return start;
+    }
+
+    public boolean isOnlyExpandIfOriginValid() {
+        return onlyExpandIfOriginValid;
+    }
+
+    public ChunkSnapshots getSnapshots() {
+        return snapshots;
+    }
+
+    public long[] getPendingChunks() {
+        long[] chunks = new long[pending.size()];
+        int[] i = {0};
+        pending.forEach((key, __) -> chunks[i[0]++] = key);
+        return chunks;
+    }
+
+    public void run() {
+        if (!started) {
+            started = true;
+
+            // search origin vector
+            visited.add(start, start);
+            search(start, start, true);
+            expand();
+
+            // the origin vector was not added to the route, stop expanding
+            if (!locations.contains(start) && onlyExpandIfOriginValid) {
+                pending.clear();
+                return;
+            }
+
+            locations.add(start);
+            frames.push(new Frame(start, start, true));
+            expand();
+            return;
+        }
+
+        // continue the search in the chunks captured since the last run
+        for (long key : getPendingChunks()) {
+            if (snapshots.has(BlockUtil.getChunkKeyX(key), BlockUtil.getChunkKeyZ(key))) {
+                for (Edge edge : pending.remove(key)) {
+                    search(edge.from(), edge.rel(), edge.isFromOrigin());
+                    expand();
+                }
+            }
+        }
+    }
+
+    private void expand() {
+        while (!frames.isEmpty()) {
+            Frame frame = frames.peek();
+            if (frame.face == Routes.RELATIVES.length) {
+                frames.pop();
+                continue;
+            }
+
+            BlockVector rel = AbstractRoute.getRelative(frame.vec, Routes.RELATIVES[frame.face++]);
+            if (visited.contains(frame.vec, rel) || rel.equals(frame.ignore)) {
+                continue;
+            }
+
+            visited.add(frame.vec, rel);
+            search(frame.vec, rel, frame.isFromOrigin);
+        }
+    }
+
+    private void search(BlockVector from, BlockVector rel, boolean isFromOrigin) {
+        int x = rel.getBlockX(), y = rel.getBlockY(), z = rel.getBlockZ();
+        if (!snapshots.isCaptured(x, z)) {
+            pending.computeIfAbsent(BlockUtil.getChunkKeyAt(x, z), __ -> new ArrayList<>())
+                    .add(new Edge(from, rel, isFromOrigin));
+            return;
+        }
+
+        Material mat = snapshots.getType(x, y, z);
+
+        // piston = pipe output
+        if (mat == Material.PISTON) {
+            locations.add(rel);
+            if (snapshots.getBlockData(x, y, z) instanceof Directional directional) {
+                BlockVector point = AbstractRoute.getRelative(rel, directional.getFacing());
+                // ... however only if the piston is not pointing towards the block where the pipe search came from
+                if (!point.equals(from)) {
+                    outputs.add(new BlockVector[]{point, rel});
+                }
+            }
+            // glass = pipe expand
+        } else if (mat == Material.GLASS || BlockUtil.anyStainedGlass.test(mat)) {
+            Material fromMat = snapshots.getType(from.getBlockX(), from.getBlockY(), from.getBlockZ());
+            if (mat == Material.GLASS || isFromOrigin || fromMat == mat || fromMat == Material.GLASS) {
+                locations.add(rel);
+                frames.push(new Frame(rel, from, false));
+            }
+        }
+    }
+
+    public Pipe createRoute() {
+        Pipe route = new Pipe(start, world);
+        for (BlockVector loc : locations) {
+            route.add(loc);
+        }
+        for (BlockVector[] output : outputs) {
+            route.addOutput(world, output[0], output[1]);
+        }
+        for (long chunk : getPendingChunks()) {
+            route.waitFor(chunk);
+        }
+        route.finishSearch();
+
+        return route;
+    }
+}
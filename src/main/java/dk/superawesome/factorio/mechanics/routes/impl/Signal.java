@@ -39,12 +39,19 @@ public class Signal extends AbstractRoute<Signal, Signal.SignalOutputEntry> {
         }
     }
 
-    private final Map<BlockVector, Integer> signals = new HashMap<>();
+    private Map<BlockVector, Integer> signals = new HashMap<>();
 
     public Signal(BlockVector start, World world) {
         super(world, start);
     }
 
+    @Override
+    public void finishSearch() {
+        super.finishSearch();
+        // the signal strengths are only used while searching
+        signals = new HashMap<>();
+    }
+
     @Override
     public RouteFactory<Signal> getFactory() {
         return RouteFactory.SignalRouteFactory.FACTORY;
@@ -155,6 +162,11 @@ public class Signal extends AbstractRoute<Signal, Signal.SignalOutputEntry> {
         Routes.expandRoute(this, rel, ignore);
     }
 
+    @Override
+    public BlockVector[] getOutputVectors(SignalOutputEntry output) {
+        return new BlockVector[]{BlockUtil.getVec(output.block), BlockUtil.getVec(output.from)};
+    }
+
     @Override
     protected SignalOutputEntry createOutputEntry(World world, BlockVector vec, BlockVector from) {
         return new SignalOutputEntry(world, vec, from);
@@ -1,5 +1,6 @@
 package dk.superawesome.factorio.mechanics.stackregistry;
 
+import dk.superawesome.factorio.mechanics.transfer.ItemKey;
 import org.bukkit.Material;
 import org.bukkit.Sound;
 import org.bukkit.inventory.ItemStack;
@@ -28,6 +29,8 @@ public enum Filled {
     private final Fluid fluid;
     private final Sound fillSound;
     private final Supplier<ItemStack> stack;
+    // the output stack is created again every time, so its key is looked up once
+    private ItemKey key;
 
     Filled(Volume volume, Fluid fluid, Sound fillSound, Supplier<ItemStack> stack) {
         this.volume = volume;
@@ -56,6 +59,14 @@ public enum Filled {
         return stack.get();
     }
 
+    public ItemKey getOutputKey() {
+        if (key == null) {
+            key = ItemKey.of(getOutputItemStack());
+        }
+
+        return key;
+    }
+
     public Volume getVolume() {
         return volume;
     }
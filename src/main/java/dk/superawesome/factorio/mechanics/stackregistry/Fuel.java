@@ -1,9 +1,9 @@
 package dk.superawesome.factorio.mechanics.stackregistry;
 
+import dk.superawesome.factorio.util.MaterialIndex;
 import org.bukkit.Material;
 import org.bukkit.Tag;
 
-import java.util.Arrays;
 import java.util.Optional;
 import java.util.function.Predicate;
 
@@ -43,19 +43,22 @@ public record Fuel(Material material, FuelType type) {
             this.fuelAmount = fuelAmount;
             this.energyAmount = energyAmount;
         }
+
+        public boolean test(Material mat) {
+            return tester.test(mat);
+        }
     }
 
     public static boolean isFuel(Material mat) {
-        return Arrays.stream(FuelType.values()).anyMatch(fuel -> fuel.tester.test(mat));
+        return MaterialIndex.isFuel(mat);
     }
 
     public static Optional<FuelType> getType(Material mat) {
-        return Arrays.stream(FuelType.values()).filter(fuel -> fuel.tester.test(mat)).findFirst();
+        return Optional.ofNullable(MaterialIndex.getFuel(mat)).map(Fuel::type);
     }
 
     public static Fuel getFuel(Material mat) {
-        return getType(mat).map(fuelType -> new Fuel(mat, fuelType)).orElse(null);
-
+        return MaterialIndex.getFuel(mat);
     }
 
     public Material getWaste() {
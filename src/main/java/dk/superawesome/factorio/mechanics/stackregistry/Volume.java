@@ -1,8 +1,8 @@
 package dk.superawesome.factorio.mechanics.stackregistry;
 
+import dk.superawesome.factorio.util.MaterialIndex;
 import org.bukkit.Material;
 
-import java.util.Arrays;
 import java.util.Optional;
 
 public enum Volume {
@@ -29,6 +29,6 @@ public enum Volume {
     }
 
     public static Optional<Volume> getTypeFromMaterial(Material type) {
-        return Arrays.stream(values()).filter(volume -> volume.getMat().equals(type)).findFirst();
+        return Optional.ofNullable(MaterialIndex.getVolume(type));
     }
 }
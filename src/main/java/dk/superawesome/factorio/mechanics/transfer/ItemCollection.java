@@ -20,6 +20,28 @@ public interface ItemCollection extends TransferCollection {
 
     List<ItemStack> pipeTake(int amount);
 
+    // the type of the items which are taken next, or null if there is nothing to take
+    ItemKey getTransferKey();
+
+    // takes up to the amount of items of this type in one counted operation, without creating a stack for each of them
+    default long pipeTake(ItemKey key, long amount) {
+        if (key == null || getTransferKey() != key) {
+            return 0;
+        }
+
+        long taken = 0;
+        for (ItemStack item : pipeTake((int) Math.min(Integer.MAX_VALUE, amount))) {
+            taken += item.getAmount();
+        }
+
+        return taken;
+    }
+
+    // the stacks which are moved each time this collection is transferred through a pipe
+    default int getTransferStacks() {
+        return 1;
+    }
+
     default <G extends BaseGui<G>> List<ItemStack> take(int amount, ItemStack stored, int storedAmount, AtomicReference<G> inUse, BiConsumer<G, Integer> doGui, Storage storage) {
         List<ItemStack> items = new ArrayList<>();
         int taken = 0;
@@ -40,4 +62,16 @@ public interface ItemCollection extends TransferCollection {
 
         return items;
     }
+
+    default <G extends BaseGui<G>> int takeAmount(int amount, int storedAmount, AtomicReference<G> inUse, BiConsumer<G, Integer> doGui, Storage storage) {
+        int taken = Math.max(0, Math.min(amount, storedAmount));
+
+        G gui = inUse.get();
+        if (gui != null) {
+            doGui.accept(gui, taken);
+        }
+        storage.setAmount(storage.getAmount() - taken);
+
+        return taken;
+    }
 }
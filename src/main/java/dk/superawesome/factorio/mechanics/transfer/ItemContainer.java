@@ -5,9 +5,7 @@ import dk.superawesome.factorio.gui.MechanicStorageGui;
 import dk.superawesome.factorio.mechanics.Mechanic;
 import dk.superawesome.factorio.mechanics.Storage;
 import org.bukkit.inventory.Inventory;
-import org.bukkit.inventory.ItemStack;
 
-import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 
@@ -26,19 +24,13 @@ public interface ItemContainer extends Container<ItemCollection> {
     }
 
     default <G extends BaseGui<G>> int put(ItemCollection from, int take, AtomicReference<G> inUse, BiConsumer<G, Integer> doGui, Storage storage) {
-        List<ItemStack> items = from.pipeTake(take);
-        int add = 0;
-        for (ItemStack item : items) {
-            add += item.getAmount();
-
+        ItemKey key = from.getTransferKey();
+        int add = (int) from.pipeTake(key, take);
+        if (add > 0) {
             if (storage.getStored() == null) {
-                ItemStack type = item.clone();
-                type.setAmount(1);
-                storage.setStored(type);
+                storage.setStored(key.toItemStack(1));
             }
-        }
 
-        if (add > 0) {
             G gui = inUse.get();
             if (gui != null) {
                 doGui.accept(gui, add);
@@ -0,0 +1,58 @@
+package dk.superawesome.factorio.mechanics.transfer;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Predicate;
+
+// a filter compiled to the materials it accepts, so most items are tested by a single bit
+public class ItemFilter implements Predicate<ItemStack> {
+
+    // materials accepted with any meta
+    private final BitSet materials = new BitSet();
+    // materials only accepted as plain items, like ItemStack#isSimilar with a new item of the material
+    private final BitSet plainMaterials = new BitSet();
+    // the filters which depend on more than the material of the item
+    private final List<Predicate<ItemStack>> others = new ArrayList<>();
+
+    public void addMaterials(BitSet materials) {
+        this.materials.or(materials);
+    }
+
+    public void addPlainMaterial(Material mat) {
+        this.plainMaterials.set(mat.ordinal());
+    }
+
+    public void add(Predicate<ItemStack> filter) {
+        this.others.add(filter);
+    }
+
+    public void clear() {
+        materials.clear();
+        plainMaterials.clear();
+        others.clear();
+    }
+
+    public boolean isEmpty() {
+        return materials.isEmpty() && plainMaterials.isEmpty() && others.isEmpty();
+    }
+
+    @Override
+    public boolean test(ItemStack item) {
+        int ordinal = item.getType().ordinal();
+        if (materials.get(ordinal) || plainMaterials.get(ordinal) && !item.hasItemMeta()) {
+            return true;
+        }
+
+        for (Predicate<ItemStack> filter : others) {
+            if (filter.test(item)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,106 @@
+package dk.superawesome.factorio.mechanics.transfer;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+// an interned item type, two keys are the same type of item only if they are the same instance
+// keys are only created on the main thread, like the transfers they are used for
+public final class ItemKey {
+
+    // remembers the key of the last stack, so a stored stack is only looked up again when it is replaced
+    public static class Holder {
+
+        private ItemStack stack;
+        private ItemKey key;
+
+        public ItemKey get(ItemStack stack) {
+            if (stack != this.stack) {
+                this.stack = stack;
+                this.key = stack == null ? null : of(stack);
+            }
+
+            return key;
+        }
+    }
+
+    // the prototype of a key is only weakly referenced by the map, so a key is forgotten when nothing uses it anymore
+    // while a key is used, its prototype is kept in the map, so the same type of item always gets the same instance
+    private static final Map<ItemStack, WeakReference<ItemKey>> keys = new WeakHashMap<>();
+
+    public static ItemKey of(ItemStack stack) {
+        if (!Bukkit.isPrimaryThread()) {
+            throw new IllegalStateException("Item keys can only be created on the main thread");
+        }
+
+        // keyed by a single item of the stack, so the material and meta is what identifies the key
+        ItemStack prototype = new ItemStack(stack);
+        prototype.setAmount(1);
+
+        WeakReference<ItemKey> ref = keys.get(prototype);
+        ItemKey key = ref != null ? ref.get() : null;
+        if (key == null) {
+            key = new ItemKey(prototype);
+            keys.put(prototype, new WeakReference<>(key));
+        }
+
+        return key;
+    }
+
+    private final ItemStack prototype;
+    private final Material material;
+    private final int maxStackSize;
+    private final int hash;
+
+    private ItemKey(ItemStack prototype) {
+        this.prototype = prototype;
+        this.material = prototype.getType();
+        this.maxStackSize = prototype.getMaxStackSize();
+        this.hash = prototype.hashCode();
+    }
+
+    public Material getMaterial() {
+        return material;
+    }
+
+    public int getMaxStackSize() {
+        return maxStackSize;
+    }
+
+    public boolean matches(ItemStack stack) {
+        return stack != null && prototype.isSimilar(stack);
+    }
+
+    public ItemStack toItemStack(int amount) {
+        ItemStack stack = prototype.clone();
+        stack.setAmount(amount);
+        return stack;
+    }
+
+    public List<ItemStack> toItemStacks(long count) {
+        List<ItemStack> stacks = new ArrayList<>();
+        while (count > 0) {
+            int amount = (int) Math.min(maxStackSize, count);
+            stacks.add(toItemStack(amount));
+            count -= amount;
+        }
+
+        return stacks;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "ItemKey{" + prototype + "}";
+    }
+}
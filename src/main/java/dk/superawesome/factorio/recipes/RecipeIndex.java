@@ -0,0 +1,287 @@
+package dk.superawesome.factorio.recipes;
+
+import dk.superawesome.factorio.mechanics.impl.accessible.Assembler;
+import dk.superawesome.factorio.util.LongMap;
+import org.bukkit.Bukkit;
+import org.bukkit.Keyed;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.*;
+
+import java.util.*;
+
+public class RecipeIndex {
+
+    private record ShapedEntry(Recipe recipe, RecipeChoice[] choices) {
+    }
+
+    private record ShapelessEntry(Recipe recipe, List<RecipeChoice> choices) {
+    }
+
+    // the first recipe smelting each material, material choices only test the type of the item
+    private static final FurnaceRecipe[] smeltingRecipes = new FurnaceRecipe[Material.values().length];
+    // recipes with inputs which can't be looked up by their material, i.e. exact item choices
+    private static final List<FurnaceRecipe> otherSmeltingRecipes = new ArrayList<>();
+
+    // shaped recipes keyed by the slots they fill and the material in the first of these slots
+    private static final LongMap<List<ShapedEntry>> shapedRecipes = new LongMap<>();
+    // shapeless recipes keyed by the amount of ingredients and each material they accept
+    private static final LongMap<List<ShapelessEntry>> shapelessRecipes = new LongMap<>();
+    private static final List<ShapedEntry> otherShapedRecipes = new ArrayList<>();
+    private static final List<ShapelessEntry> otherShapelessRecipes = new ArrayList<>();
+
+    private static long getKey(int shape, Material mat) {
+        return ((long) shape << 32) | mat.ordinal();
+    }
+
+    private static Collection<Material> getMaterials(RecipeChoice choice) {
+        if (choice instanceof RecipeChoice.MaterialChoice materialChoice) {
+            return materialChoice.getChoices();
+        } else if (choice instanceof RecipeChoice.ExactChoice exactChoice) {
+            Set<Material> materials = EnumSet.noneOf(Material.class);
+            for (ItemStack item : exactChoice.getChoices()) {
+                materials.add(item.getType());
+            }
+            return materials;
+        }
+
+        // unknown choice, it can't be looked up by material
+        return null;
+    }
+
+    public static void rebuild() {
+        Arrays.fill(smeltingRecipes, null);
+        otherSmeltingRecipes.clear();
+        shapedRecipes.clear();
+        shapelessRecipes.clear();
+        otherShapedRecipes.clear();
+        otherShapelessRecipes.clear();
+
+        // index the most common recipes first, so they are matched first
+        Set<NamespacedKey> added = new HashSet<>();
+        addCraftingRecipe(new SuspicousStewRecipe(), added);
+        for (Assembler.Types type : Assembler.Types.values()) {
+            addRecipesFor(new ItemStack(type.getMat()), added);
+        }
+
+        Iterator<Recipe> recipeIterator = Bukkit.recipeIterator();
+        while (recipeIterator.hasNext()) {
+            Recipe recipe = recipeIterator.next();
+            if (recipe instanceof FurnaceRecipe furnaceRecipe) {
+                addSmeltingRecipe(furnaceRecipe);
+            } else if (recipe instanceof CraftingRecipe) {
+                addCraftingRecipe(recipe, added);
+            }
+        }
+    }
+
+    private static void addRecipesFor(ItemStack stack, Set<NamespacedKey> added) {
+        for (Recipe recipe : Bukkit.getRecipesFor(stack)) {
+            if (recipe instanceof CraftingRecipe && addCraftingRecipe(recipe, added)) {
+                if (recipe instanceof ShapelessRecipe shapeless) {
+                    for (ItemStack required : shapeless.getIngredientList()) {
+                        addRecipesFor(required, added);
+                    }
+                } else if (recipe instanceof ShapedRecipe shaped) {
+                    Arrays.stream(shaped.getShape())
+                            .flatMap(s -> s.codePoints().mapToObj(c -> (char) c))
+                            .map(c -> shaped.getIngredientMap().get(c))
+                            .filter(Objects::nonNull)
+                            .forEach(required -> addRecipesFor(required, added));
+                }
+            }
+        }
+    }
+
+    private static void addSmeltingRecipe(FurnaceRecipe recipe) {
+        Collection<Material> materials = recipe.getInputChoice() instanceof RecipeChoice.MaterialChoice
+                ? getMaterials(recipe.getInputChoice()) : null;
+        if (materials == null) {
+            otherSmeltingRecipes.add(recipe);
+            return;
+        }
+
+        for (Material mat : materials) {
+            if (smeltingRecipes[mat.ordinal()] == null) {
+                smeltingRecipes[mat.ordinal()] = recipe;
+            }
+        }
+    }
+
+    private static boolean addCraftingRecipe(Recipe recipe, Set<NamespacedKey> added) {
+        if (!added.add(((Keyed) recipe).getKey())) {
+            return false;
+        }
+
+        if (recipe instanceof ShapedRecipe shaped) {
+            // the ingredients matrix required for this recipe, with each row filled up to the width of the grid
+            String[] shape = shaped.getShape();
+            Map<Character, RecipeChoice> choiceMap = shaped.getChoiceMap();
+            RecipeChoice[] choices = new RecipeChoice[shape.length * 3];
+            int filled = 0;
+            for (int row = 0; row < shape.length; row++) {
+                for (int col = 0; col < shape[row].length(); col++) {
+                    RecipeChoice choice = choiceMap.get(shape[row].charAt(col));
+                    if (choice != null) {
+                        choices[row * 3 + col] = choice;
+                        filled |= 1 << (row * 3 + col);
+                    }
+                }
+            }
+            if (filled == 0) {
+                return true;
+            }
+
+            ShapedEntry entry = new ShapedEntry(recipe, choices);
+            Collection<Material> materials = getMaterials(choices[Integer.numberOfTrailingZeros(filled)]);
+            if (materials == null) {
+                otherShapedRecipes.add(entry);
+            } else {
+                for (Material mat : materials) {
+                    shapedRecipes.computeIfAbsent(getKey(filled, mat), __ -> new ArrayList<>()).add(entry);
+                }
+            }
+        } else if (recipe instanceof ShapelessRecipe shapeless) {
+            List<RecipeChoice> choices = shapeless.getChoiceList();
+            if (choices.isEmpty()) {
+                return true;
+            }
+
+            ShapelessEntry entry = new ShapelessEntry(recipe, choices);
+            // the first item in the grid can be any of the ingredients
+            Set<Material> materials = EnumSet.noneOf(Material.class);
+            for (RecipeChoice choice : choices) {
+                Collection<Material> choiceMaterials = getMaterials(choice);
+                if (choiceMaterials == null) {
+                    otherShapelessRecipes.add(entry);
+                    return true;
+                }
+                materials.addAll(choiceMaterials);
+            }
+
+            for (Material mat : materials) {
+                shapelessRecipes.computeIfAbsent(getKey(choices.size(), mat), __ -> new ArrayList<>()).add(entry);
+            }
+        }
+
+        return true;
+    }
+
+    public static FurnaceRecipe findSmeltingRecipe(ItemStack item) {
+        if (item == null) {
+            return null;
+        }
+
+        FurnaceRecipe recipe = smeltingRecipes[item.getType().ordinal()];
+        if (recipe != null) {
+            return recipe;
+        }
+
+        for (FurnaceRecipe other : otherSmeltingRecipes) {
+            if (other.getInputChoice().test(item)) {
+                return other;
+            }
+        }
+
+        return null;
+    }
+
+    // the offer is the crafting grid from its upper left item, the grid is all the items in the crafting grid
+    public static Recipe findCraftingRecipe(List<ItemStack> offer, List<ItemStack> grid) {
+        int filled = 0;
+        for (int i = 0; i < offer.size(); i++) {
+            if (offer.get(i) != null) {
+                filled |= 1 << i;
+            }
+        }
+        if (filled != 0) {
+            Material first = offer.get(Integer.numberOfTrailingZeros(filled)).getType();
+            Recipe recipe = findShapedRecipe(shapedRecipes.get(getKey(filled, first)), offer);
+            if (recipe == null) {
+                recipe = findShapedRecipe(otherShapedRecipes, offer);
+            }
+            if (recipe != null) {
+                return recipe;
+            }
+        }
+
+        List<ItemStack> items = new ArrayList<>();
+        for (ItemStack item : grid) {
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        if (items.isEmpty()) {
+            return null;
+        }
+
+        Recipe recipe = findShapelessRecipe(shapelessRecipes.get(getKey(items.size(), items.get(0).getType())), items);
+        if (recipe == null) {
+            recipe = findShapelessRecipe(otherShapelessRecipes, items);
+        }
+        return recipe;
+    }
+
+    private static Recipe findShapedRecipe(List<ShapedEntry> entries, List<ItemStack> offer) {
+        if (entries == null) {
+            return null;
+        }
+
+        for (ShapedEntry entry : entries) {
+            RecipeChoice[] choices = entry.choices();
+            boolean match = true;
+            for (int i = 0; i < offer.size(); i++) {
+                ItemStack at = offer.get(i);
+                RecipeChoice req = i < choices.length ? choices[i] : null;
+                if (req == null ? at != null : at == null || !req.test(at)) {
+                    match = false;
+                    break;
+                }
+            }
+
+            if (match) {
+                return entry.recipe();
+            }
+        }
+
+        return null;
+    }
+
+    private static Recipe findShapelessRecipe(List<ShapelessEntry> entries, List<ItemStack> items) {
+        if (entries == null) {
+            return null;
+        }
+
+        for (ShapelessEntry entry : entries) {
+            if (entry.choices().size() != items.size()) {
+                continue;
+            }
+
+            // match each item with the first ingredient accepting it
+            List<RecipeChoice> choices = new ArrayList<>(entry.choices());
+            boolean match = true;
+            for (ItemStack at : items) {
+                Iterator<RecipeChoice> choiceIterator = choices.iterator();
+                boolean found = false;
+                while (choiceIterator.hasNext()) {
+                    if (choiceIterator.next().test(at)) {
+                        choiceIterator.remove();
+                        found = true;
+                        break;
+                    }
+                }
+
+                if (!found) {
+                    match = false;
+                    break;
+                }
+            }
+
+            if (match) {
+                return entry.recipe();
+            }
+        }
+
+        return null;
+    }
+}
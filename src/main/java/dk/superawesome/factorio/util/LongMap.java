@@ -0,0 +1,177 @@
+package dk.superawesome.factorio.util;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+@SuppressWarnings("unchecked")
+public class LongMap<V> {
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+
+        void accept(long key, V val);
+    }
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public LongMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int indexOf(long key) {
+        int i = mix(key) & mask;
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    public V get(long key) {
+        int i = indexOf(key);
+        return i == -1 ? null : (V) values[i];
+    }
+
+    public V getOrDefault(long key, V def) {
+        int i = indexOf(key);
+        return i == -1 ? def : (V) values[i];
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) != -1;
+    }
+
+    public V put(long key, V val) {
+        if (val == null) {
+            return remove(key);
+        }
+
+        int i = mix(key) & mask;
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                V prev = (V) values[i];
+                values[i] = val;
+                return prev;
+            }
+            i = (i + 1) & mask;
+        }
+
+        keys[i] = key;
+        values[i] = val;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    public V computeIfAbsent(long key, LongFunction<? extends V> function) {
+        V val = get(key);
+        if (val == null) {
+            val = function.apply(key);
+            put(key, val);
+        }
+
+        return val;
+    }
+
+    public V remove(long key) {
+        int i = indexOf(key);
+        if (i == -1) {
+            return null;
+        }
+
+        V prev = (V) values[i];
+        size--;
+
+        // shift back the following entries in this probe sequence, so no tombstones are needed
+        int last = i;
+        int next = (i + 1) & mask;
+        while (values[next] != null) {
+            int ideal = mix(keys[next]) & mask;
+            if (last <= next ? (ideal <= last || ideal > next) : (ideal <= last && ideal > next)) {
+                keys[last] = keys[next];
+                values[last] = values[next];
+                last = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[last] = null;
+
+        return prev;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        allocate(capacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int j = mix(oldKeys[i]) & mask;
+                while (values[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    // the map must not be modified while iterating
+    public void forEach(EntryConsumer<? super V> consumer) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                consumer.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    public void forEachValue(Consumer<? super V> consumer) {
+        for (Object val : values) {
+            if (val != null) {
+                consumer.accept((V) val);
+            }
+        }
+    }
+}
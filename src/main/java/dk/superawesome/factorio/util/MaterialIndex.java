@@ -0,0 +1,93 @@
+package dk.superawesome.factorio.util;
+
+import dk.superawesome.factorio.mechanics.impl.accessible.Assembler;
+import dk.superawesome.factorio.mechanics.stackregistry.Fuel;
+import dk.superawesome.factorio.mechanics.stackregistry.Volume;
+import org.bukkit.Material;
+import org.bukkit.Tag;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+// lookups from a material, indexed by the ordinal of the material
+public class MaterialIndex {
+
+    private static final Material[] MATERIALS = Material.values();
+
+    private static final Fuel[] FUELS = new Fuel[MATERIALS.length];
+    private static final BitSet FUEL_MATERIALS = new BitSet(MATERIALS.length);
+    private static final Assembler.Types[] ASSEMBLER_TYPES = new Assembler.Types[MATERIALS.length];
+    private static final Volume[] VOLUMES = new Volume[MATERIALS.length];
+    // all items, by their name in lower case
+    private static final Map<String, Material> ITEMS = new HashMap<>();
+    // the materials in each tag, created when the tag is first used
+    private static final Map<Tag<Material>, BitSet> TAGS = new HashMap<>();
+
+    static {
+        for (Material mat : MATERIALS) {
+            if (mat.isLegacy()) {
+                continue;
+            }
+
+            // the first fuel type which accepts this material
+            for (Fuel.FuelType type : Fuel.FuelType.values()) {
+                if (type.test(mat)) {
+                    FUELS[mat.ordinal()] = new Fuel(mat, type);
+                    FUEL_MATERIALS.set(mat.ordinal());
+                    break;
+                }
+            }
+
+            if (mat.isItem()) {
+                ITEMS.putIfAbsent(mat.name().toLowerCase(), mat);
+            }
+        }
+
+        for (Assembler.Types type : Assembler.Types.values()) {
+            if (ASSEMBLER_TYPES[type.getMat().ordinal()] == null) {
+                ASSEMBLER_TYPES[type.getMat().ordinal()] = type;
+            }
+        }
+        for (Volume volume : Volume.values()) {
+            if (VOLUMES[volume.getMat().ordinal()] == null) {
+                VOLUMES[volume.getMat().ordinal()] = volume;
+            }
+        }
+    }
+
+    public static Fuel getFuel(Material mat) {
+        return FUELS[mat.ordinal()];
+    }
+
+    public static boolean isFuel(Material mat) {
+        return FUELS[mat.ordinal()] != null;
+    }
+
+    public static BitSet getFuelMaterials() {
+        return FUEL_MATERIALS;
+    }
+
+    public static Assembler.Types getAssemblerType(Material mat) {
+        return ASSEMBLER_TYPES[mat.ordinal()];
+    }
+
+    public static Volume getVolume(Material mat) {
+        return VOLUMES[mat.ordinal()];
+    }
+
+    public static Material getItem(String name) {
+        return ITEMS.get(name.toLowerCase());
+    }
+
+    public static BitSet getTagged(Tag<Material> tag) {
+        return TAGS.computeIfAbsent(tag, __ -> {
+            BitSet tagged = new BitSet(MATERIALS.length);
+            for (Material mat : tag.getValues()) {
+                tagged.set(mat.ordinal());
+            }
+
+            return tagged;
+        });
+    }
+}
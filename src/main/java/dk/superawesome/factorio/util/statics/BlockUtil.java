@@ -3,6 +3,7 @@ package dk.superawesome.factorio.util.statics;
 import dk.superawesome.factorio.mechanics.routes.Routes;
 import dk.superawesome.factorio.util.Action;
 import dk.superawesome.factorio.util.BlockValidator;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
@@ -64,6 +65,55 @@ public class BlockUtil {
         return new BlockVector(loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
     }
 
+    public static long getBlockKey(int x, int y, int z) {
+        return ((long) x & 0x7FFFFFF) | (((long) z & 0x7FFFFFF) << 27) | ((long) y << 54);
+    }
+
+    public static long getBlockKey(Location loc) {
+        return getBlockKey(loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
+    }
+
+    public static long getBlockKey(BlockVector vec) {
+        return getBlockKey(vec.getBlockX(), vec.getBlockY(), vec.getBlockZ());
+    }
+
+    public static int getBlockKeyX(long key) {
+        return (int) ((key << 37) >> 37);
+    }
+
+    public static int getBlockKeyY(long key) {
+        return (int) (key >> 54);
+    }
+
+    public static int getBlockKeyZ(long key) {
+        return (int) ((key << 10) >> 37);
+    }
+
+    public static long getChunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX & 0xFFFFFFFFL) | (((long) chunkZ & 0xFFFFFFFFL) << 32);
+    }
+
+    public static long getChunkKey(Chunk chunk) {
+        return getChunkKey(chunk.getX(), chunk.getZ());
+    }
+
+    public static int getChunkKeyX(long key) {
+        return (int) key;
+    }
+
+    public static int getChunkKeyZ(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static long getChunkKeyAt(int x, int z) {
+        return getChunkKey(x >> 4, z >> 4);
+    }
+
+    public static long getChunkBlockKey(int x, int y, int z) {
+        // position relative to the chunk this block is in
+        return (x & 0xF) | ((z & 0xF) << 4) | ((long) y << 8);
+    }
+
     public static Location getRel(Location loc, Vector vec) {
         return new Location(loc.getWorld(), loc.getBlockX(), loc.getBlockY(), loc.getBlockZ(), loc.getYaw(), loc.getPitch())
                 .add(vec);
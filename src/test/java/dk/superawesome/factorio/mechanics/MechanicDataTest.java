@@ -0,0 +1,399 @@
+package dk.superawesome.factorio.mechanics;
+
+import dk.superawesome.factorio.mechanics.db.DataCodec;
+import dk.superawesome.factorio.mechanics.impl.accessible.*;
+import dk.superawesome.factorio.mechanics.impl.power.Generator;
+import dk.superawesome.factorio.mechanics.impl.power.PowerCentral;
+import dk.superawesome.factorio.mechanics.stackregistry.Filled;
+import dk.superawesome.factorio.mechanics.stackregistry.Fluid;
+import dk.superawesome.factorio.mechanics.stackregistry.Fuel;
+import dk.superawesome.factorio.mechanics.stackregistry.Volume;
+import org.bukkit.*;
+import org.bukkit.block.BlockFace;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// saves each mechanic and loads the saved data into a new mechanic, and loads the data as it was written before records
+public class MechanicDataTest {
+
+    private static Location loc;
+
+    @BeforeAll
+    public static void setupServer() {
+        if (Bukkit.getServer() == null) {
+            Server server = mock(Server.class);
+            ItemFactory items = mock(ItemFactory.class);
+            // none of the items have meta
+            when(items.equals(any(), any())).thenReturn(true);
+            Tag<?> tag = mock(Tag.class);
+
+            when(server.getLogger()).thenReturn(Logger.getLogger("MechanicDataTest"));
+            when(server.getItemFactory()).thenReturn(items);
+            when(server.getScheduler()).thenReturn(mock(BukkitScheduler.class));
+            when(server.getPluginManager()).thenReturn(mock(PluginManager.class));
+            when(server.isPrimaryThread()).thenReturn(true);
+            when(server.getTag(anyString(), any(), any())).thenAnswer(__ -> tag);
+            Bukkit.setServer(server);
+        }
+
+        loc = new Location(mock(World.class), 0, 64, 0);
+    }
+
+    // writes data in the layout from before records, stored as Base64 like the data column was
+    private static class LegacyData {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        public LegacyData item(Material mat, int amount) throws IOException {
+            byte[] name = mat.name().getBytes(StandardCharsets.UTF_8);
+            out.write(name.length);
+            out.write(name);
+            out.writeInt(amount);
+            out.write(0);
+            return this;
+        }
+
+        public LegacyData noItem() throws IOException {
+            out.write(0);
+            return this;
+        }
+
+        public LegacyData writeByte(int val) throws IOException {
+            out.write(val);
+            return this;
+        }
+
+        public LegacyData writeInt(int val) throws IOException {
+            out.writeInt(val);
+            return this;
+        }
+
+        public LegacyData writeDouble(double val) throws IOException {
+            out.writeDouble(val);
+            return this;
+        }
+
+        public LegacyData writeBoolean(boolean val) throws IOException {
+            out.writeBoolean(val);
+            return this;
+        }
+
+        public byte[] encode() {
+            return Base64.getEncoder().encode(bytes.toByteArray());
+        }
+    }
+
+    // a context with the encoded data stored, or nothing stored if null
+    private static MechanicStorageContext context(byte[] stored) throws Exception {
+        MechanicStorageContext context = mock(MechanicStorageContext.class);
+        when(context.getFallbackManagement()).thenReturn(new Management(UUID.randomUUID()));
+        when(context.newRecord(anyInt())).thenAnswer(i -> RecordWriter.get(i.getArgument(0)));
+        when(context.hasContext()).thenReturn(stored != null);
+        if (stored != null) {
+            when(context.getRecord()).thenAnswer(__ -> new RecordReader(DataCodec.decode(stored), DataCodec.isRecord(stored)));
+        }
+
+        return context;
+    }
+
+    private static <M extends AbstractMechanic<M>> M build(MechanicFactory<M> factory) throws Exception {
+        return factory.create(loc, BlockFace.NORTH, context(null), false, true);
+    }
+
+    private static <M extends AbstractMechanic<M>> M load(MechanicFactory<M> factory, byte[] stored) throws Exception {
+        return factory.create(loc, BlockFace.NORTH, context(stored), false, true);
+    }
+
+    private static <M extends AbstractMechanic<M>> M roundTrip(MechanicFactory<M> factory, M mechanic) throws Exception {
+        byte[] saved = mechanic.save(context(null));
+        assertEquals(1, new RecordReader(saved, true).getVersion());
+
+        return load(factory, DataCodec.encode(saved, true));
+    }
+
+    private static void assertItem(Material mat, ItemStack stack) {
+        assertNotNull(stack);
+        assertEquals(mat, stack.getType());
+    }
+
+    private static void assertSmelter(Smelter smelter) {
+        assertItem(Material.IRON_ORE, smelter.getIngredient());
+        assertEquals(10, smelter.getIngredientAmount());
+        assertItem(Material.IRON_INGOT, smelter.getSmeltResult());
+        assertEquals(Fuel.getFuel(Material.COAL), smelter.getFuel());
+        assertEquals(5, smelter.getFuelAmount());
+        assertEquals(Fuel.getFuel(Material.COAL), smelter.getCurrentFuel());
+        assertEquals(0.75f, smelter.getCurrentFuelAmount(), 0.0001f);
+        assertItem(Material.IRON_INGOT, smelter.getStorageType());
+        assertEquals(20, smelter.getStorageAmount());
+    }
+
+    @Test
+    public void testSmelter() throws Exception {
+        Smelter smelter = build(Smelter::new);
+        smelter.setIngredient(new ItemStack(Material.IRON_ORE));
+        smelter.setIngredientAmount(10);
+        smelter.setSmeltResult(new ItemStack(Material.IRON_INGOT));
+        smelter.setFuel(Fuel.getFuel(Material.COAL));
+        smelter.setFuelAmount(5);
+        smelter.setCurrentFuel(Fuel.getFuel(Material.COAL));
+        smelter.setCurrentFuelAmount(0.75f);
+        smelter.setStorageType(new ItemStack(Material.IRON_INGOT));
+        smelter.setStorageAmount(20);
+
+        assertSmelter(roundTrip(Smelter::new, smelter));
+    }
+
+    @Test
+    public void testLegacySmelter() throws Exception {
+        byte[] legacy = new LegacyData()
+                .item(Material.IRON_ORE, 1).item(Material.IRON_INGOT, 1).writeInt(10)
+                // the current fuel is written as the units of it which are used
+                .item(Material.COAL, 1).writeInt(5).item(Material.COAL, 1).writeInt(2)
+                .item(Material.IRON_INGOT, 1).writeInt(20)
+                .encode();
+
+        assertSmelter(load(Smelter::new, legacy));
+    }
+
+    private static void assertAssembler(Assembler assembler) {
+        assertNotNull(assembler.getType());
+        assertEquals(Assembler.Types.DIODE, assembler.getType().getType());
+        assertEquals(7, assembler.getIngredientAmount());
+        assertEquals(12.5, assembler.getMoneyAmount());
+    }
+
+    @Test
+    public void testAssembler() throws Exception {
+        Assembler assembler = build(Assembler::new);
+        assembler.setType(Assembler.Types.DIODE);
+        assembler.setIngredientAmount(7);
+        assembler.setMoneyAmount(12.5);
+
+        assertAssembler(roundTrip(Assembler::new, assembler));
+    }
+
+    @Test
+    public void testLegacyAssembler() throws Exception {
+        byte[] legacy = new LegacyData()
+                .item(Material.REPEATER, 1).writeInt(7).writeDouble(12.5)
+                .encode();
+
+        assertAssembler(load(Assembler::new, legacy));
+    }
+
+    private static void assertConstructor(Constructor constructor) {
+        ItemStack[] grid = constructor.getCraftingGridItems();
+        for (int i = 0; i < 9; i++) {
+            if (i < 4) {
+                assertItem(Material.OAK_PLANKS, grid[i]);
+            } else {
+                assertNull(grid[i]);
+            }
+        }
+        assertItem(Material.CRAFTING_TABLE, constructor.getRecipeResult());
+        assertItem(Material.CRAFTING_TABLE, constructor.getStorageType());
+        assertEquals(3, constructor.getStorageAmount());
+    }
+
+    @Test
+    public void testConstructor() throws Exception {
+        Constructor constructor = build(Constructor::new);
+        for (int i = 0; i < 4; i++) {
+            constructor.getCraftingGridItems()[i] = new ItemStack(Material.OAK_PLANKS);
+        }
+        constructor.setRecipeResult(new ItemStack(Material.CRAFTING_TABLE));
+        constructor.setStorageType(new ItemStack(Material.CRAFTING_TABLE));
+        constructor.setStorageAmount(3);
+
+        assertConstructor(roundTrip(Constructor::new, constructor));
+    }
+
+    @Test
+    public void testLegacyConstructor() throws Exception {
+        LegacyData legacy = new LegacyData();
+        for (int i = 0; i < 9; i++) {
+            if (i < 4) {
+                legacy.item(Material.OAK_PLANKS, 1);
+            } else {
+                legacy.noItem();
+            }
+        }
+        legacy.item(Material.CRAFTING_TABLE, 1).item(Material.CRAFTING_TABLE, 1).writeInt(3);
+
+        assertConstructor(load(Constructor::new, legacy.encode()));
+    }
+
+    private static void assertGenerator(Generator generator) {
+        assertEquals(Fuel.getFuel(Material.COAL), generator.getFuel());
+        assertEquals(4, generator.getFuelAmount());
+        assertNull(generator.getCurrentFuel());
+        assertEquals(12.5, generator.getTransferAmount());
+    }
+
+    @Test
+    public void testGenerator() throws Exception {
+        // the energy can only be set by loading it
+        Generator generator = load(Generator::new, new LegacyData()
+                .noItem().writeInt(0).noItem().writeInt(0).writeDouble(12.5)
+                .encode());
+        generator.setFuel(Fuel.getFuel(Material.COAL));
+        generator.setFuelAmount(4);
+
+        assertGenerator(roundTrip(Generator::new, generator));
+    }
+
+    @Test
+    public void testLegacyGenerator() throws Exception {
+        byte[] legacy = new LegacyData()
+                .item(Material.COAL, 1).writeInt(4).noItem().writeInt(0).writeDouble(12.5)
+                .encode();
+
+        assertGenerator(load(Generator::new, legacy));
+    }
+
+    private static void assertPowerCentral(PowerCentral powerCentral) {
+        assertEquals(1.5, powerCentral.getEnergy());
+        assertFalse(powerCentral.isActivated());
+    }
+
+    @Test
+    public void testPowerCentral() throws Exception {
+        PowerCentral powerCentral = build(PowerCentral::new);
+        powerCentral.setEnergy(1.5);
+        powerCentral.setActivated(false);
+
+        assertPowerCentral(roundTrip(PowerCentral::new, powerCentral));
+    }
+
+    @Test
+    public void testLegacyPowerCentral() throws Exception {
+        // written as if the power central is turned off
+        byte[] legacy = new LegacyData()
+                .writeDouble(1.5).writeBoolean(true)
+                .encode();
+
+        assertPowerCentral(load(PowerCentral::new, legacy));
+    }
+
+    private static void assertStorageBox(StorageBox storageBox) {
+        assertItem(Material.COBBLESTONE, storageBox.getStored());
+        assertEquals(300, storageBox.getAmount());
+    }
+
+    @Test
+    public void testStorageBox() throws Exception {
+        StorageBox storageBox = build(StorageBox::new);
+        storageBox.setStored(new ItemStack(Material.COBBLESTONE));
+        storageBox.setAmount(300);
+
+        assertStorageBox(roundTrip(StorageBox::new, storageBox));
+    }
+
+    @Test
+    public void testLegacyStorageBox() throws Exception {
+        byte[] legacy = new LegacyData()
+                .item(Material.COBBLESTONE, 1).writeInt(300)
+                .encode();
+
+        assertStorageBox(load(StorageBox::new, legacy));
+    }
+
+    private static void assertRefinery(Refinery refinery) {
+        assertEquals(Volume.BUCKET, refinery.getVolume());
+        assertEquals(4, refinery.getVolumeAmount());
+        assertEquals(Filled.WATER_BUCKET, refinery.getFilled());
+        assertEquals(2, refinery.getFilledAmount());
+    }
+
+    @Test
+    public void testRefinery() throws Exception {
+        Refinery refinery = build(Refinery::new);
+        refinery.setVolume(Volume.BUCKET);
+        refinery.setVolumeAmount(4);
+        refinery.setFilled(Filled.WATER_BUCKET);
+        refinery.setFilledAmount(2);
+
+        assertRefinery(roundTrip(Refinery::new, refinery));
+    }
+
+    @Test
+    public void testLegacyRefinery() throws Exception {
+        byte[] legacy = new LegacyData()
+                .writeInt(4).item(Material.BUCKET, 1).writeInt(2).item(Material.WATER_BUCKET, 1)
+                .encode();
+
+        assertRefinery(load(Refinery::new, legacy));
+    }
+
+    @Test
+    public void testLiquidTank() throws Exception {
+        LiquidTank liquidTank = build(LiquidTank::new);
+        liquidTank.setFluid(Fluid.LAVA);
+        liquidTank.setFluidAmount(7);
+
+        LiquidTank loaded = roundTrip(LiquidTank::new, liquidTank);
+        assertEquals(Fluid.LAVA, loaded.getFluid());
+        assertEquals(7, loaded.getFluidAmount());
+    }
+
+    @Test
+    public void testEmptyLiquidTank() throws Exception {
+        // no fluid is written as a byte of 0xFF
+        LiquidTank loaded = roundTrip(LiquidTank::new, build(LiquidTank::new));
+        assertNull(loaded.getFluid());
+        assertEquals(0, loaded.getFluidAmount());
+    }
+
+    @Test
+    public void testLegacyLiquidTank() throws Exception {
+        LiquidTank loaded = load(LiquidTank::new, new LegacyData()
+                .writeByte(Fluid.LAVA.ordinal()).writeInt(7)
+                .encode());
+        assertEquals(Fluid.LAVA, loaded.getFluid());
+        assertEquals(7, loaded.getFluidAmount());
+
+        LiquidTank empty = load(LiquidTank::new, new LegacyData()
+                .writeByte(0xFF).writeInt(0)
+                .encode());
+        assertNull(empty.getFluid());
+        assertEquals(0, empty.getFluidAmount());
+    }
+
+    @Test
+    public void testEmeraldForge() throws Exception {
+        EmeraldForge emeraldForge = build(EmeraldForge::new);
+        emeraldForge.setMoneyAmount(12.5);
+
+        assertEquals(12.5, roundTrip(EmeraldForge::new, emeraldForge).getMoneyAmount());
+    }
+
+    @Test
+    public void testLegacyEmeraldForge() throws Exception {
+        byte[] legacy = new LegacyData()
+                .writeDouble(12.5)
+                .encode();
+
+        assertEquals(12.5, load(EmeraldForge::new, legacy).getMoneyAmount());
+    }
+}
@@ -0,0 +1,149 @@
+package dk.superawesome.factorio.mechanics;
+
+import dk.superawesome.factorio.mechanics.db.DataCodec;
+import dk.superawesome.factorio.util.db.Query;
+
+import java.io.*;
+import java.util.Base64;
+
+// compares writing and reading the data of a mechanic as a record to the fixed length Base64 format it replaced
+// run with: java -cp <test classpath> dk.superawesome.factorio.mechanics.RecordBenchmark [iterations]
+public class RecordBenchmark {
+
+    private static final int WARMUP = 200_000;
+
+    // the serializer as it was before records, wrapping the stream for each value and checking the available bytes before reading it
+    private static class LegacySerializer {
+
+        public <T> T readData(ByteArrayInputStream stream, int bytesRequired, T or, Query.CheckedFunction<DataInputStream, T> function) throws IOException {
+            if (stream.available() >= bytesRequired) {
+                DataInputStream dataStream = new DataInputStream(stream);
+                return function.sneaky(dataStream);
+            }
+
+            return or;
+        }
+
+        public void writeData(ByteArrayOutputStream stream, Query.CheckedConsumer<DataOutputStream> function) {
+            DataOutputStream dataStream = new DataOutputStream(stream);
+            function.sneaky(dataStream);
+        }
+
+        public int readInt(ByteArrayInputStream stream) throws IOException {
+            return readData(stream, 4, 0, DataInputStream::readInt);
+        }
+
+        public void writeInt(ByteArrayOutputStream stream, int val) {
+            writeData(stream, data -> data.writeInt(val));
+        }
+
+        public long readLong(ByteArrayInputStream stream) throws IOException {
+            return readData(stream, 8, 0L, DataInputStream::readLong);
+        }
+
+        public void writeLong(ByteArrayOutputStream stream, long val) {
+            writeData(stream, data -> data.writeLong(val));
+        }
+
+        public double readDouble(ByteArrayInputStream stream) throws IOException {
+            return readData(stream, 8, 0d, DataInputStream::readDouble);
+        }
+
+        public void writeDouble(ByteArrayOutputStream stream, double val) {
+            writeData(stream, data -> data.writeDouble(val));
+        }
+
+        public boolean readBoolean(ByteArrayInputStream stream) throws IOException {
+            return readData(stream, 1, false, DataInputStream::readBoolean);
+        }
+
+        public void writeBoolean(ByteArrayOutputStream stream, boolean val) {
+            writeData(stream, data -> data.writeBoolean(val));
+        }
+    }
+
+    private static final LegacySerializer LEGACY = new LegacySerializer();
+
+    // roughly the data of a smelter, amounts of ingredients, storage and fuel
+    private static void writeRecord(RecordWriter writer, int i) {
+        writer.writeInt(i & 0xFF);
+        writer.writeInt(64 * 9);
+        writer.writeInt(-1);
+        writer.writeLong(i);
+        writer.writeDouble(0.25);
+        writer.writeBoolean((i & 1) == 0);
+    }
+
+    private static void writeLegacy(ByteArrayOutputStream stream, int i) {
+        LEGACY.writeInt(stream, i & 0xFF);
+        LEGACY.writeInt(stream, 64 * 9);
+        LEGACY.writeInt(stream, -1);
+        LEGACY.writeLong(stream, i);
+        LEGACY.writeDouble(stream, 0.25);
+        LEGACY.writeBoolean(stream, (i & 1) == 0);
+    }
+
+    private static long readLegacy(ByteArrayInputStream stream) throws IOException {
+        return LEGACY.readInt(stream) + LEGACY.readInt(stream) + LEGACY.readInt(stream) + LEGACY.readLong(stream) + (long) LEGACY.readDouble(stream) + (LEGACY.readBoolean(stream) ? 1 : 0);
+    }
+
+    private static long readRecord(RecordReader reader) throws IOException {
+        return reader.readInt() + reader.readInt() + reader.readInt() + reader.readLong() + (long) reader.readDouble() + (reader.readBoolean() ? 1 : 0);
+    }
+
+    private static long runRecord(int iterations) throws IOException {
+        long sum = 0;
+        for (int i = 0; i < iterations; i++) {
+            RecordWriter writer = RecordWriter.get(1);
+            writeRecord(writer, i);
+            byte[] encoded = DataCodec.encode(writer.toByteArray(), true);
+
+            RecordReader reader = new RecordReader(DataCodec.decode(encoded), DataCodec.isRecord(encoded));
+            sum += readRecord(reader) + encoded.length;
+        }
+        return sum;
+    }
+
+    private static long runLegacy(int iterations) throws IOException {
+        long sum = 0;
+        for (int i = 0; i < iterations; i++) {
+            // written and read the way the data column was before records, as a Base64 string
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            writeLegacy(bytes, i);
+            String encoded = Base64.getEncoder().encodeToString(bytes.toByteArray());
+
+            ByteArrayInputStream stream = new ByteArrayInputStream(Base64.getDecoder().decode(encoded));
+            sum += readLegacy(stream) + encoded.length();
+        }
+        return sum;
+    }
+
+    private interface Run {
+
+        long run(int iterations) throws IOException;
+    }
+
+    private static void measure(String name, Run run, int iterations) throws IOException {
+        run.run(WARMUP);
+
+        long start = System.nanoTime();
+        long sum = run.run(iterations);
+        long time = System.nanoTime() - start;
+        System.out.printf("%-8s %8.1f ns/op (%d)%n", name, (double) time / iterations, sum);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+        RecordWriter writer = RecordWriter.get(1);
+        writeRecord(writer, 1000);
+        ByteArrayOutputStream legacy = new ByteArrayOutputStream();
+        writeLegacy(legacy, 1000);
+        System.out.println("record: " + DataCodec.encode(writer.toByteArray(), true).length + " bytes, legacy: " + Base64.getEncoder().encodeToString(legacy.toByteArray()).length() + " bytes");
+
+        for (int i = 0; i < 3; i++) {
+            measure("record", RecordBenchmark::runRecord, iterations);
+            measure("legacy", RecordBenchmark::runLegacy, iterations);
+        }
+    }
+}
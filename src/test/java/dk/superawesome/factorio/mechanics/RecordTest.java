@@ -0,0 +1,206 @@
+package dk.superawesome.factorio.mechanics;
+
+import dk.superawesome.factorio.mechanics.db.DataCodec;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecordTest {
+
+    private static final int[] INTS = {0, 1, -1, 63, -64, 64, -65, 127, 128, Short.MAX_VALUE, Short.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE};
+    private static final long[] LONGS = {0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+
+    private static RecordReader read(RecordWriter writer) throws IOException {
+        return new RecordReader(writer.toByteArray(), true);
+    }
+
+    @Test
+    public void testIntRoundTrip() throws IOException {
+        RecordWriter writer = RecordWriter.get(1);
+        for (int val : INTS) {
+            writer.writeInt(val);
+        }
+
+        RecordReader reader = read(writer);
+        assertEquals(1, reader.getVersion());
+        for (int val : INTS) {
+            assertEquals(val, reader.readInt());
+        }
+        assertEquals(0, reader.remaining());
+    }
+
+    @Test
+    public void testLongRoundTrip() throws IOException {
+        RecordWriter writer = RecordWriter.get(1);
+        for (long val : LONGS) {
+            writer.writeLong(val);
+        }
+
+        RecordReader reader = read(writer);
+        for (long val : LONGS) {
+            assertEquals(val, reader.readLong());
+        }
+        assertEquals(0, reader.remaining());
+    }
+
+    @Test
+    public void testZigzagLength() {
+        // zero and small negative numbers take a single byte, the edges of an int take five
+        assertEquals(1, intLength(0));
+        assertEquals(1, intLength(-1));
+        assertEquals(1, intLength(63));
+        assertEquals(1, intLength(-64));
+        assertEquals(2, intLength(64));
+        assertEquals(2, intLength(-65));
+        assertEquals(5, intLength(Integer.MAX_VALUE));
+        assertEquals(5, intLength(Integer.MIN_VALUE));
+    }
+
+    private static int intLength(int val) {
+        RecordWriter writer = RecordWriter.get(1);
+        int header = writer.size();
+        writer.writeInt(val);
+        return writer.size() - header;
+    }
+
+    @Test
+    public void testVarIntIsUnsigned() throws IOException {
+        RecordWriter writer = RecordWriter.get(1);
+        writer.writeVarInt(-1);
+        writer.writeVarInt(Integer.MIN_VALUE);
+
+        RecordReader reader = read(writer);
+        assertEquals(-1, reader.readVarInt());
+        assertEquals(Integer.MIN_VALUE, reader.readVarInt());
+    }
+
+    @Test
+    public void testInvalidVersion() {
+        assertThrows(IllegalArgumentException.class, () -> RecordWriter.get(0));
+    }
+
+    @Test
+    public void testReadNewerVersion() throws IOException {
+        // a newer version added a field at the end, which older code doesn't read
+        RecordWriter writer = RecordWriter.get(2);
+        writer.writeInt(42);
+        writer.writeString("Factorio");
+        writer.writeBytes(new byte[]{1, 2, 3});
+        writer.writeDouble(1.5);
+
+        RecordReader reader = read(writer);
+        assertEquals(2, reader.getVersion());
+        assertEquals(42, reader.readInt());
+        assertEquals("Factorio", reader.readString());
+        assertTrue(reader.remaining() > 0);
+    }
+
+    @Test
+    public void testReadOlderVersion() throws IOException {
+        // fields missing at the end of an older version are read as zero
+        RecordWriter writer = RecordWriter.get(1);
+        writer.writeInt(42);
+
+        RecordReader reader = read(writer);
+        assertEquals(1, reader.getVersion());
+        assertEquals(42, reader.readInt());
+        assertEquals(0, reader.readInt());
+        assertEquals(0, reader.readLong());
+        assertEquals(0, reader.readDouble());
+        assertFalse(reader.readBoolean());
+        assertEquals(-1, reader.readUnsignedByte());
+    }
+
+    @Test
+    public void testSkipBytes() throws IOException {
+        // a field written with its length can be skipped without knowing what is in it
+        RecordWriter writer = RecordWriter.get(1);
+        writer.writeBytes("skipped".getBytes(StandardCharsets.UTF_8));
+        writer.writeInt(-7);
+
+        RecordReader reader = read(writer);
+        reader.readBytes();
+        assertEquals(-7, reader.readInt());
+    }
+
+    @Test
+    public void testInvalidLength() throws IOException {
+        RecordWriter writer = RecordWriter.get(1);
+        writer.writeVarInt(100);
+        writer.writeByte(1);
+
+        RecordReader reader = read(writer);
+        assertThrows(IOException.class, reader::readBytes);
+    }
+
+    @Test
+    public void testTruncatedNumber() throws IOException {
+        RecordWriter writer = RecordWriter.get(1);
+        writer.writeInt(Integer.MAX_VALUE);
+        byte[] bytes = writer.toByteArray();
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+        RecordReader reader = new RecordReader(truncated, true);
+        assertThrows(IOException.class, reader::readInt);
+    }
+
+    @Test
+    public void testHasData() {
+        RecordWriter writer = RecordWriter.get(1);
+        writer.writeInt(0);
+        writer.writeBoolean(false);
+        assertFalse(writer.hasData());
+
+        writer.writeInt(1);
+        assertTrue(writer.hasData());
+    }
+
+    @Test
+    public void testEncodedRecord() throws IOException {
+        RecordWriter writer = RecordWriter.get(3);
+        writer.writeInt(Integer.MIN_VALUE);
+        writer.writeLong(Long.MAX_VALUE);
+
+        byte[] encoded = DataCodec.encode(writer.toByteArray(), true);
+        assertTrue(DataCodec.isRecord(encoded));
+
+        RecordReader reader = new RecordReader(DataCodec.decode(encoded), DataCodec.isRecord(encoded));
+        assertEquals(3, reader.getVersion());
+        assertEquals(Integer.MIN_VALUE, reader.readInt());
+        assertEquals(Long.MAX_VALUE, reader.readLong());
+    }
+
+    @Test
+    public void testLegacyBase64() throws IOException {
+        // data written before records, with integers of a fixed length and stored as Base64
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(-1);
+            out.writeInt(Integer.MAX_VALUE);
+            out.writeLong(Long.MIN_VALUE);
+            out.writeDouble(2.25);
+            out.writeBoolean(true);
+        }
+        byte[] encoded = Base64.getEncoder().encode(bytes.toByteArray());
+
+        assertTrue(DataCodec.isLegacy(encoded));
+        assertFalse(DataCodec.isRecord(encoded));
+
+        RecordReader reader = new RecordReader(DataCodec.decode(encoded), DataCodec.isRecord(encoded));
+        assertTrue(reader.isLegacy());
+        assertEquals(-1, reader.readInt());
+        assertEquals(Integer.MAX_VALUE, reader.readInt());
+        assertEquals(Long.MIN_VALUE, reader.readLong());
+        assertEquals(2.25, reader.readDouble());
+        assertTrue(reader.readBoolean());
+        // missing fields are read as zero, like newer versions of a record
+        assertEquals(0, reader.readInt());
+    }
+}
@@ -0,0 +1,91 @@
+package dk.superawesome.factorio.mechanics.db;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataCodecTest {
+
+    private static byte[] repeating(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i % 7);
+        }
+        return bytes;
+    }
+
+    private static byte[] random(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void assertRoundTrip(byte[] bytes, byte codec) throws IOException {
+        for (boolean record : new boolean[]{false, true}) {
+            byte[] encoded = DataCodec.encode(bytes, record);
+            assertEquals(codec, encoded[0] & ~DataCodec.RECORD);
+            assertEquals(record, DataCodec.isRecord(encoded));
+            assertFalse(DataCodec.isLegacy(encoded));
+            assertArrayEquals(bytes, DataCodec.decode(encoded));
+        }
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        assertRoundTrip(new byte[0], DataCodec.RAW);
+        assertEquals(0, DataCodec.decode(null).length);
+        assertEquals(0, DataCodec.decode(new byte[0]).length);
+    }
+
+    @Test
+    public void testRaw() throws IOException {
+        // too small to be worth compressing
+        assertRoundTrip(repeating(127), DataCodec.RAW);
+    }
+
+    @Test
+    public void testFast() throws IOException {
+        assertRoundTrip(repeating(128), DataCodec.FAST);
+        assertRoundTrip(repeating(8191), DataCodec.FAST);
+    }
+
+    @Test
+    public void testDeflate() throws IOException {
+        assertRoundTrip(repeating(8192), DataCodec.DEFLATE);
+        assertRoundTrip(repeating(1 << 20), DataCodec.DEFLATE);
+    }
+
+    @Test
+    public void testIncompressible() throws IOException {
+        // stored as it is when compressing doesn't make it smaller
+        assertRoundTrip(random(512), DataCodec.RAW);
+        assertRoundTrip(random(16384), DataCodec.RAW);
+    }
+
+    @Test
+    public void testLegacy() throws IOException {
+        byte[] bytes = random(300);
+        byte[] encoded = Base64.getEncoder().encode(bytes);
+        assertTrue(DataCodec.isLegacy(encoded));
+        assertFalse(DataCodec.isRecord(encoded));
+        assertArrayEquals(bytes, DataCodec.decode(encoded));
+    }
+
+    @Test
+    public void testInvalidLegacy() {
+        assertThrows(IOException.class, () -> DataCodec.decode("not base64!".getBytes()));
+    }
+
+    @Test
+    public void testTruncated() {
+        byte[] encoded = DataCodec.encode(repeating(4096));
+        assertEquals(DataCodec.FAST, encoded[0]);
+        assertThrows(IOException.class, () -> DataCodec.decode(Arrays.copyOf(encoded, encoded.length / 2)));
+        assertThrows(IOException.class, () -> DataCodec.decode(Arrays.copyOf(encoded, 3)));
+    }
+}